@@ -3,9 +3,6 @@ package com.albert.okutils;
 import android.util.Base64;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.security.DigestInputStream;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.KeyFactory;
@@ -170,31 +167,19 @@ public class EncryptUtils {
      * @return the bytes of file's MD5 encryption
      */
     public static byte[] encryptMD5File(final File file) {
-        if (file == null) return null;
-        FileInputStream fis = null;
-        DigestInputStream digestInputStream;
-        try {
-            fis = new FileInputStream(file);
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            digestInputStream = new DigestInputStream(fis, md);
-            byte[] buffer = new byte[256 * 1024];
-            while (true) {
-                if (!(digestInputStream.read(buffer) > 0)) break;
-            }
-            md = digestInputStream.getMessageDigest();
-            return md.digest();
-        } catch (NoSuchAlgorithmException | IOException e) {
-            e.printStackTrace();
-            return null;
-        } finally {
-            try {
-                if (fis != null) {
-                    fis.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
+        byte[][] digests = UtilsBridge.getFileDigests(file, "MD5");
+        return digests == null ? null : digests[0];
+    }
+
+    /**
+     * 读取一次文件，同时获取多个文件摘要
+     *
+     * @param file       The file.
+     * @param algorithms The name of algorithms, such as "MD5", "SHA-1", "SHA-256".
+     * @return the digests in the order of algorithms
+     */
+    public static byte[][] encryptFileDigests(final File file, final String... algorithms) {
+        return UtilsBridge.getFileDigests(file, algorithms);
     }
 
     /**
@@ -9,6 +9,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
 
+import androidx.annotation.FloatRange;
 import androidx.annotation.IntDef;
 import androidx.annotation.IntRange;
 import androidx.annotation.RequiresApi;
@@ -19,37 +20,50 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.text.ParseException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.Formatter;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
 
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
 
 /**
  * <pre>
@@ -72,6 +86,26 @@ public final class LogUtils {
     public @interface TYPE {
     }
 
+    /**
+     * 环形缓冲满时丢弃新的日志行，丢弃数可由 {@link #getDroppedFileLogCount()} 获取
+     */
+    public static final int BUFFER_FULL_DROP = 0;
+    /**
+     * 环形缓冲满时阻塞调用线程直到有空位
+     */
+    public static final int BUFFER_FULL_BLOCK = 1;
+    /**
+     * 环形缓冲满时丢弃新的日志行，并在文件中写入丢弃的行数
+     */
+    public static final int BUFFER_FULL_REPORT = 2;
+
+    @IntDef({BUFFER_FULL_DROP, BUFFER_FULL_BLOCK, BUFFER_FULL_REPORT})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface BufferFullPolicy {
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private static final char[] T = new char[]{'V', 'D', 'I', 'W', 'E', 'A'};
 
     private static final int FILE = 0x10;
@@ -102,6 +136,25 @@ public final class LogUtils {
 
     private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
 
+    private static volatile RingFileAppender sAppender;
+
+    private static final int MAX_CALL_SITES = 512;
+    private static final ConcurrentHashMap<StackTraceElement, CallSite> CALL_SITES = new ConcurrentHashMap<>();
+
+    private static final int MAX_BUILDER_CAPACITY = 32 * 1024;
+    private static final ThreadLocal<StringBuilder> TEMPLATE_BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+    private static final ThreadLocal<StringBuilder> CHUNK_BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(MAX_LEN + 256);
+        }
+    };
+
     private static final SimpleArrayMap<Class, IFormatter> I_FORMATTER_MAP = new SimpleArrayMap<>();
 
     private LogUtils() {
@@ -182,6 +235,168 @@ public final class LogUtils {
         log(A, tag, contents);
     }
 
+    /**
+     * 模板格式的 Verbose 日志，"{}" 依次替换为参数，低于过滤级别时不格式化参数
+     *
+     * @param template
+     * @param args
+     */
+    public static void vFormat(final String template, final Object... args) {
+        if (isLoggable(V)) {
+            log(V, CONFIG.getGlobalTag(), formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 自定义 tag 的模板格式 Verbose 日志
+     *
+     * @param tag
+     * @param template
+     * @param args
+     */
+    public static void vTagFormat(final String tag, final String template, final Object... args) {
+        if (isLoggable(V)) {
+            log(V, tag, formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 模板格式的 Debug 日志，"{}" 依次替换为参数，低于过滤级别时不格式化参数
+     *
+     * @param template
+     * @param args
+     */
+    public static void dFormat(final String template, final Object... args) {
+        if (isLoggable(D)) {
+            log(D, CONFIG.getGlobalTag(), formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 自定义 tag 的模板格式 Debug 日志
+     *
+     * @param tag
+     * @param template
+     * @param args
+     */
+    public static void dTagFormat(final String tag, final String template, final Object... args) {
+        if (isLoggable(D)) {
+            log(D, tag, formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 模板格式的 Info 日志，"{}" 依次替换为参数，低于过滤级别时不格式化参数
+     *
+     * @param template
+     * @param args
+     */
+    public static void iFormat(final String template, final Object... args) {
+        if (isLoggable(I)) {
+            log(I, CONFIG.getGlobalTag(), formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 自定义 tag 的模板格式 Info 日志
+     *
+     * @param tag
+     * @param template
+     * @param args
+     */
+    public static void iTagFormat(final String tag, final String template, final Object... args) {
+        if (isLoggable(I)) {
+            log(I, tag, formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 模板格式的 Warn 日志，"{}" 依次替换为参数，低于过滤级别时不格式化参数
+     *
+     * @param template
+     * @param args
+     */
+    public static void wFormat(final String template, final Object... args) {
+        if (isLoggable(W)) {
+            log(W, CONFIG.getGlobalTag(), formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 自定义 tag 的模板格式 Warn 日志
+     *
+     * @param tag
+     * @param template
+     * @param args
+     */
+    public static void wTagFormat(final String tag, final String template, final Object... args) {
+        if (isLoggable(W)) {
+            log(W, tag, formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 模板格式的 Error 日志，"{}" 依次替换为参数，低于过滤级别时不格式化参数
+     *
+     * @param template
+     * @param args
+     */
+    public static void eFormat(final String template, final Object... args) {
+        if (isLoggable(E)) {
+            log(E, CONFIG.getGlobalTag(), formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 自定义 tag 的模板格式 Error 日志
+     *
+     * @param tag
+     * @param template
+     * @param args
+     */
+    public static void eTagFormat(final String tag, final String template, final Object... args) {
+        if (isLoggable(E)) {
+            log(E, tag, formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 模板格式的 Assert 日志，"{}" 依次替换为参数，低于过滤级别时不格式化参数
+     *
+     * @param template
+     * @param args
+     */
+    public static void aFormat(final String template, final Object... args) {
+        if (isLoggable(A)) {
+            log(A, CONFIG.getGlobalTag(), formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 自定义 tag 的模板格式 Assert 日志
+     *
+     * @param tag
+     * @param template
+     * @param args
+     */
+    public static void aTagFormat(final String tag, final String template, final Object... args) {
+        if (isLoggable(A)) {
+            log(A, tag, formatTemplate(template, args));
+        }
+    }
+
+    /**
+     * 该级别的 log 是否会输出到控制台或文件
+     *
+     * @param type
+     * @return
+     */
+    public static boolean isLoggable(@TYPE final int type) {
+        if (!CONFIG.isLogSwitch()) return false;
+        return (CONFIG.isLog2ConsoleSwitch() && type >= CONFIG.mConsoleFilter)
+                || (CONFIG.isLog2FileSwitch() && type >= CONFIG.mFileFilter);
+    }
+
     /**
      * log 到文件
      *
@@ -318,12 +533,29 @@ public final class LogUtils {
             if (type_low < CONFIG.mConsoleFilter && type_low < CONFIG.mFileFilter) {
                 return;
             }
-            final TagHead tagHead = processTagAndHead(tag);
-            final String body = processBody(type_high, contents);
+            long now = 0;
+            final LogLimiter levelLimiter = CONFIG.mLevelLimiters.get(type_low - V);
+            if (levelLimiter != null && !levelLimiter.tryAcquire(now = System.nanoTime())) {
+                return;
+            }
+            final TagHead tagHead = processTagAndHead(type_low, tag);
+            LogLimiter tagLimiter = null;
+            if (!CONFIG.mTagLimiters.isEmpty()) {
+                tagLimiter = CONFIG.mTagLimiters.get(tagHead.tag);
+                if (tagLimiter != null) {
+                    if (now == 0) now = System.nanoTime();
+                    if (!tagLimiter.tryAcquire(now)) return;
+                }
+            }
+            final String body = appendSummary(now, levelLimiter, tagLimiter, processBody(type_high, contents));
             if (CONFIG.isLog2ConsoleSwitch() && type_high != FILE && type_low >= CONFIG.mConsoleFilter) {
                 print2Console(type_low, tagHead.tag, tagHead.consoleHead, body);
             }
             if ((CONFIG.isLog2FileSwitch() || type_high == FILE) && type_low >= CONFIG.mFileFilter) {
+                if (CONFIG.mRingBufferSwitch && CONFIG.mFileWriter == null) {
+                    getAppender().append(type_low, tagHead.tag, tagHead.fileHead, body);
+                    return;
+                }
                 // 子线程输出到文件
                 EXECUTOR.execute(new Runnable() {
                     @Override
@@ -335,6 +567,70 @@ public final class LogUtils {
         }
     }
 
+    private static String appendSummary(final long now,
+                                        final LogLimiter levelLimiter,
+                                        final LogLimiter tagLimiter,
+                                        final String body) {
+        if (now == 0) return body;
+        String levelSummary = levelLimiter == null ? null : levelLimiter.pollSummary(now);
+        String tagSummary = tagLimiter == null ? null : tagLimiter.pollSummary(now);
+        if (levelSummary == null && tagSummary == null) return body;
+        StringBuilder sb = new StringBuilder();
+        if (levelSummary != null) sb.append(levelSummary).append(LINE_SEP);
+        if (tagSummary != null) sb.append(tagSummary).append(LINE_SEP);
+        return sb.append(body).toString();
+    }
+
+    /**
+     * 单独输出限流汇总，不经过限流和调用栈解析
+     */
+    private static void printSummary(String tag, final String summary) {
+        if (!CONFIG.isLogSwitch()) return;
+        if (tag == null) {
+            tag = CONFIG.mTagIsSpace ? "LogUtils" : CONFIG.getGlobalTag();
+        }
+        if (CONFIG.isLog2ConsoleSwitch() && W >= CONFIG.mConsoleFilter) {
+            print2Console(W, tag, null, summary);
+        }
+        if (CONFIG.isLog2FileSwitch() && W >= CONFIG.mFileFilter) {
+            if (CONFIG.mRingBufferSwitch && CONFIG.mFileWriter == null) {
+                getAppender().append(W, tag, ": ", summary);
+                return;
+            }
+            final String fileTag = tag;
+            EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    print2File(W, fileTag, ": " + summary);
+                }
+            });
+        }
+    }
+
+    /**
+     * 获取环形缓冲满时丢弃的文件日志行数
+     *
+     * @return
+     */
+    public static long getDroppedFileLogCount() {
+        RingFileAppender appender = sAppender;
+        return appender == null ? 0 : appender.getDroppedCount();
+    }
+
+    private static RingFileAppender getAppender() {
+        RingFileAppender appender = sAppender;
+        if (appender == null) {
+            synchronized (LogUtils.class) {
+                appender = sAppender;
+                if (appender == null) {
+                    appender = new RingFileAppender(CONFIG.mRingBufferSize);
+                    sAppender = appender;
+                }
+            }
+        }
+        return appender;
+    }
+
     /**
      * 获取当前日志文件路径
      *
@@ -364,37 +660,32 @@ public final class LogUtils {
         return list;
     }
 
-    private static TagHead processTagAndHead(String tag) {
+    private static TagHead processTagAndHead(final int type, String tag) {
         if (!CONFIG.mTagIsSpace && !CONFIG.isLogHeadSwitch()) {
             tag = CONFIG.getGlobalTag();
+        } else if (type < CONFIG.mHeadFilter
+                || (!CONFIG.isLogHeadSwitch() && !UtilsBridge.isSpace(tag))) {
+            // 低于头信息过滤级别，或不输出头信息且已指定 tag 时不解析调用栈
+            if (UtilsBridge.isSpace(tag)) {
+                tag = CONFIG.mTagIsSpace ? "LogUtils" : CONFIG.getGlobalTag();
+            }
         } else {
             final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
             final int stackIndex = 3 + CONFIG.getStackOffset();
             if (stackIndex >= stackTrace.length) {
-                StackTraceElement targetElement = stackTrace[3];
-                final String fileName = getFileName(targetElement);
+                CallSite site = getCallSite(stackTrace[3]);
                 if (CONFIG.mTagIsSpace && UtilsBridge.isSpace(tag)) {
-                    int index = fileName.indexOf('.');// Use proguard may not find '.'.
-                    tag = index == -1 ? fileName : fileName.substring(0, index);
+                    tag = site.tag;
                 }
                 return new TagHead(tag, null, ": ");
             }
-            StackTraceElement targetElement = stackTrace[stackIndex];
-            final String fileName = getFileName(targetElement);
+            CallSite site = getCallSite(stackTrace[stackIndex]);
             if (CONFIG.mTagIsSpace && UtilsBridge.isSpace(tag)) {
-                int index = fileName.indexOf('.');// Use proguard may not find '.'.
-                tag = index == -1 ? fileName : fileName.substring(0, index);
+                tag = site.tag;
             }
             if (CONFIG.isLogHeadSwitch()) {
                 String tName = Thread.currentThread().getName();
-                final String head = new Formatter()
-                        .format("%s, %s.%s(%s:%d)",
-                                tName,
-                                targetElement.getClassName(),
-                                targetElement.getMethodName(),
-                                fileName,
-                                targetElement.getLineNumber())
-                        .toString();
+                final String head = tName + ", " + site.location;
                 final String fileHead = " [" + head + "]: ";
                 if (CONFIG.getStackDeep() <= 1) {
                     return new TagHead(tag, new String[]{head}, fileHead);
@@ -405,18 +696,11 @@ public final class LogUtils {
                                     stackTrace.length - stackIndex
                             )];
                     consoleHead[0] = head;
-                    int spaceLen = tName.length() + 2;
-                    String space = new Formatter().format("%" + spaceLen + "s", "").toString();
+                    char[] space = new char[tName.length() + 2];
+                    Arrays.fill(space, ' ');
+                    String spaceStr = new String(space);
                     for (int i = 1, len = consoleHead.length; i < len; ++i) {
-                        targetElement = stackTrace[i + stackIndex];
-                        consoleHead[i] = new Formatter()
-                                .format("%s%s.%s(%s:%d)",
-                                        space,
-                                        targetElement.getClassName(),
-                                        targetElement.getMethodName(),
-                                        getFileName(targetElement),
-                                        targetElement.getLineNumber())
-                                .toString();
+                        consoleHead[i] = spaceStr + getCallSite(stackTrace[i + stackIndex]).location;
                     }
                     return new TagHead(tag, consoleHead, fileHead);
                 }
@@ -425,21 +709,35 @@ public final class LogUtils {
         return new TagHead(tag, null, ": ");
     }
 
+    private static CallSite getCallSite(final StackTraceElement targetElement) {
+        CallSite site = CALL_SITES.get(targetElement);
+        if (site != null) return site;
+        final String fileName = getFileName(targetElement);
+        int index = fileName.indexOf('.');// Use proguard may not find '.'.
+        site = new CallSite(
+                index == -1 ? fileName : fileName.substring(0, index),
+                targetElement.getClassName() + "." + targetElement.getMethodName()
+                        + "(" + fileName + ":" + targetElement.getLineNumber() + ")"
+        );
+        if (CALL_SITES.size() >= MAX_CALL_SITES) {
+            CALL_SITES.clear();
+        }
+        CALL_SITES.put(targetElement, site);
+        return site;
+    }
+
     private static String getFileName(final StackTraceElement targetElement) {
         String fileName = targetElement.getFileName();
         if (fileName != null) return fileName;
         // If name of file is null, should add
         // "-keepattributes SourceFile,LineNumberTable" in proguard file.
         String className = targetElement.getClassName();
-        String[] classNameInfo = className.split("\\.");
-        if (classNameInfo.length > 0) {
-            className = classNameInfo[classNameInfo.length - 1];
+        int start = className.lastIndexOf('.') + 1;
+        int end = className.indexOf('$', start);
+        if (end == -1) {
+            end = className.length();
         }
-        int index = className.indexOf('$');
-        if (index != -1) {
-            className = className.substring(0, index);
-        }
-        return className + ".java";
+        return className.substring(start, end) + ".java";
     }
 
     private static String processBody(final int type, final Object... contents) {
@@ -465,6 +763,39 @@ public final class LogUtils {
         return body.length() == 0 ? NOTHING : body;
     }
 
+    static String formatTemplate(final String template, final Object... args) {
+        if (template == null) return NULL;
+        StringBuilder sb = TEMPLATE_BUILDER.get();
+        sb.setLength(0);
+        int argIndex = 0, argCount = args == null ? 0 : args.length;
+        int start = 0, len = template.length();
+        while (start < len) {
+            int index = template.indexOf("{}", start);
+            if (index == -1 || argIndex >= argCount) break;
+            sb.append(template, start, index);
+            sb.append(formatArg(args[argIndex++]));
+            start = index + 2;
+        }
+        sb.append(template, start, len);
+        if (argIndex < argCount && args[argCount - 1] instanceof Throwable) {
+            // 多余的最后一个参数为异常时输出其堆栈
+            sb.append(LINE_SEP).append(formatObject(args[argCount - 1]));
+        }
+        String result = sb.toString();
+        releaseBuilder(TEMPLATE_BUILDER, sb);
+        return result;
+    }
+
+    private static String formatArg(Object arg) {
+        if (arg instanceof Supplier) {
+            arg = ((Supplier) arg).get();
+        }
+        if (arg instanceof CharSequence) {
+            return arg.toString();
+        }
+        return formatObject(arg);
+    }
+
     private static String formatObject(int type, Object object) {
         if (object == null) return NULL;
         if (type == JSON) return LogFormatter.object2String(object, JSON);
@@ -489,7 +820,7 @@ public final class LogUtils {
                                       final String[] head,
                                       final String msg) {
         if (CONFIG.isSingleTagSwitch()) {
-            printSingleTagMsg(type, tag, processSingleTagMsg(type, tag, head, msg));
+            printSingleTagMsg(type, tag, head, msg);
         } else {
             printBorder(type, tag, true);
             printHead(type, tag, head);
@@ -515,98 +846,198 @@ public final class LogUtils {
 
     private static void printMsg(final int type, final String tag, final String msg) {
         int len = msg.length();
-        int countOfSub = len / MAX_LEN;
-        if (countOfSub > 0) {
-            int index = 0;
-            for (int i = 0; i < countOfSub; i++) {
-                printSubMsg(type, tag, msg.substring(index, index + MAX_LEN));
-                index += MAX_LEN;
-            }
-            if (index != len) {
-                printSubMsg(type, tag, msg.substring(index, len));
-            }
-        } else {
-            printSubMsg(type, tag, msg);
+        if (len <= MAX_LEN) {
+            printSubMsg(type, tag, msg, 0, len);
+            return;
+        }
+        for (int index = 0; index < len; index += MAX_LEN) {
+            printSubMsg(type, tag, msg, index, Math.min(index + MAX_LEN, len));
         }
     }
 
-    private static void printSubMsg(final int type, final String tag, final String msg) {
+    private static void printSubMsg(final int type, final String tag,
+                                    final String msg, final int start, int end) {
         if (!CONFIG.isLogBorderSwitch()) {
-            print2Console(type, tag, msg);
+            print2Console(type, tag, start == 0 && end == msg.length() ? msg : msg.substring(start, end));
             return;
         }
-        StringBuilder sb = new StringBuilder();
-        String[] lines = msg.split(LINE_SEP);
-        for (String line : lines) {
-            print2Console(type, tag, LEFT_BORDER + line);
+        StringBuilder sb = CHUNK_BUILDER.get();
+        boolean empty = start == end;
+        end = trimTrailingLineSep(msg, start, end);
+        if (start == end && !empty) return;
+        int lineStart = start;
+        for (; ; ) {
+            int lineEnd = indexOfLineSep(msg, lineStart, end);
+            sb.setLength(0);
+            sb.append(LEFT_BORDER).append(msg, lineStart, lineEnd);
+            print2Console(type, tag, sb.toString());
+            if (lineEnd == end) break;
+            lineStart = lineEnd + LINE_SEP.length();
+        }
+        releaseBuilder(CHUNK_BUILDER, sb);
+    }
+
+    /**
+     * 与 split(LINE_SEP) 一致，去掉末尾的空行
+     */
+    private static int trimTrailingLineSep(final CharSequence msg, final int start, int end) {
+        final int sepLen = LINE_SEP.length();
+        while (end - start >= sepLen && regionIsLineSep(msg, end - sepLen)) {
+            end -= sepLen;
         }
+        return end;
     }
 
-    private static String processSingleTagMsg(final int type,
-                                              final String tag,
-                                              final String[] head,
-                                              final String msg) {
-        StringBuilder sb = new StringBuilder();
-        if (CONFIG.isLogBorderSwitch()) {
-            sb.append(PLACEHOLDER).append(LINE_SEP);
-            sb.append(TOP_BORDER).append(LINE_SEP);
+    /**
+     * @return [from, end) 中第一个换行符的位置，没有时返回 end
+     */
+    private static int indexOfLineSep(final CharSequence msg, final int from, final int end) {
+        final char first = LINE_SEP.charAt(0);
+        for (int i = from, last = end - LINE_SEP.length(); i <= last; i++) {
+            if (msg.charAt(i) == first && regionIsLineSep(msg, i)) return i;
+        }
+        return end;
+    }
+
+    private static boolean regionIsLineSep(final CharSequence msg, final int index) {
+        for (int i = 0, len = LINE_SEP.length(); i < len; i++) {
+            if (msg.charAt(index + i) != LINE_SEP.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static void releaseBuilder(final ThreadLocal<StringBuilder> local, final StringBuilder sb) {
+        if (sb.capacity() > MAX_BUILDER_CAPACITY) {
+            local.remove();
+        }
+    }
+
+    private static void printSingleTagMsg(final int type,
+                                          final String tag,
+                                          final String[] head,
+                                          final String msg) {
+        SingleTagChunker out = new SingleTagChunker(type, tag, CONFIG.isLogBorderSwitch());
+        try {
+            // 第一遍只统计拼接后的长度以确定分段，第二遍把各段直接写入分段缓冲，整条消息不会被拼接出来
+            processSingleTagMsg(out, head, msg);
+            out.start();
+            processSingleTagMsg(out, head, msg);
+            out.finish();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            releaseBuilder(CHUNK_BUILDER, out.mChunk);
+        }
+    }
+
+    private static void processSingleTagMsg(final SingleTagChunker out,
+                                            final String[] head,
+                                            final String msg) {
+        if (out.mBorder) {
+            out.append(PLACEHOLDER).append(LINE_SEP);
+            out.append(TOP_BORDER).append(LINE_SEP);
             if (head != null) {
                 for (String aHead : head) {
-                    sb.append(LEFT_BORDER).append(aHead).append(LINE_SEP);
+                    out.append(LEFT_BORDER).append(aHead).append(LINE_SEP);
                 }
-                sb.append(MIDDLE_BORDER).append(LINE_SEP);
+                out.append(MIDDLE_BORDER).append(LINE_SEP);
             }
-            for (String line : msg.split(LINE_SEP)) {
-                sb.append(LEFT_BORDER).append(line).append(LINE_SEP);
+            int len = msg.length();
+            int end = trimTrailingLineSep(msg, 0, len);
+            if (end > 0 || len == 0) {
+                int lineStart = 0;
+                for (; ; ) {
+                    int lineEnd = indexOfLineSep(msg, lineStart, end);
+                    out.append(LEFT_BORDER).append(msg, lineStart, lineEnd).append(LINE_SEP);
+                    if (lineEnd == end) break;
+                    lineStart = lineEnd + LINE_SEP.length();
+                }
             }
-            sb.append(BOTTOM_BORDER);
+            out.append(BOTTOM_BORDER);
         } else {
             if (head != null) {
-                sb.append(PLACEHOLDER).append(LINE_SEP);
+                out.append(PLACEHOLDER).append(LINE_SEP);
                 for (String aHead : head) {
-                    sb.append(aHead).append(LINE_SEP);
+                    out.append(aHead).append(LINE_SEP);
                 }
             }
-            sb.append(msg);
+            out.append(msg);
         }
-        return sb.toString();
     }
 
-    private static void printSingleTagMsg(final int type, final String tag, final String msg) {
-        try {
-            int len = msg.length();
-            int countOfSub = CONFIG.isLogBorderSwitch() ? (len - BOTTOM_BORDER.length()) / MAX_LEN : len / MAX_LEN;
-            if (countOfSub > 0) {
-                if (CONFIG.isLogBorderSwitch()) {
-                    print2Console(type, tag, msg.substring(0, MAX_LEN) + LINE_SEP + BOTTOM_BORDER);
-                    int index = MAX_LEN;
-                    for (int i = 1; i < countOfSub; i++) {
-                        print2Console(type, tag, PLACEHOLDER + LINE_SEP + TOP_BORDER + LINE_SEP
-                                + LEFT_BORDER + msg.substring(index, index + MAX_LEN)
-                                + LINE_SEP + BOTTOM_BORDER);
-                        index += MAX_LEN;
-                    }
-                    if (index != len - BOTTOM_BORDER.length()) {
-                        print2Console(type, tag, PLACEHOLDER + LINE_SEP + TOP_BORDER + LINE_SEP
-                                + LEFT_BORDER + msg.substring(index, len));
-                    }
-                } else {
-                    print2Console(type, tag, msg.substring(0, MAX_LEN));
-                    int index = MAX_LEN;
-                    for (int i = 1; i < countOfSub; i++) {
-                        print2Console(type, tag,
-                                PLACEHOLDER + LINE_SEP + msg.substring(index, index + MAX_LEN));
-                        index += MAX_LEN;
-                    }
-                    if (index != len) {
-                        print2Console(type, tag, PLACEHOLDER + LINE_SEP + msg.substring(index, len));
-                    }
-                }
-            } else {
-                print2Console(type, tag, msg);
+    /**
+     * 把 processSingleTagMsg 拼接出的内容每 MAX_LEN 个字符切一段输出，
+     * 分段位置及每段附加的边框与拼接整条消息后再切分时一致
+     */
+    private static final class SingleTagChunker {
+
+        private final int mType;
+        private final String mTag;
+        private final boolean mBorder;
+        private final StringBuilder mChunk;
+
+        private boolean mCounting = true;
+        private int mLength;
+        private int mPos;
+        private int mLastCut;
+        private int mNextCut = Integer.MAX_VALUE;
+
+        SingleTagChunker(final int type, final String tag, final boolean border) {
+            mType = type;
+            mTag = tag;
+            mBorder = border;
+            mChunk = CHUNK_BUILDER.get();
+            mChunk.setLength(0);
+        }
+
+        SingleTagChunker append(final String s) {
+            return append(s, 0, s.length());
+        }
+
+        SingleTagChunker append(final String s, int start, final int end) {
+            if (mCounting) {
+                mPos += end - start;
+                return this;
+            }
+            while (end - start >= mNextCut - mPos) {
+                int take = mNextCut - mPos;
+                mChunk.append(s, start, start + take);
+                start += take;
+                mPos += take;
+                cut();
+            }
+            mChunk.append(s, start, end);
+            mPos += end - start;
+            return this;
+        }
+
+        void start() {
+            mLength = mPos;
+            int countOfSub = mBorder ? (mLength - BOTTOM_BORDER.length()) / MAX_LEN : mLength / MAX_LEN;
+            mLastCut = countOfSub * MAX_LEN;
+            mNextCut = countOfSub > 0 ? MAX_LEN : Integer.MAX_VALUE;
+            mPos = 0;
+            mCounting = false;
+        }
+
+        private void cut() {
+            if (mBorder) {
+                mChunk.append(LINE_SEP).append(BOTTOM_BORDER);
+            }
+            print2Console(mType, mTag, mChunk.toString());
+            mChunk.setLength(0);
+            mChunk.append(PLACEHOLDER).append(LINE_SEP);
+            if (mBorder) {
+                mChunk.append(TOP_BORDER).append(LINE_SEP).append(LEFT_BORDER);
+            }
+            mNextCut = mPos < mLastCut ? mPos + MAX_LEN : Integer.MAX_VALUE;
+        }
+
+        void finish() {
+            int rest = mBorder ? mLength - BOTTOM_BORDER.length() : mLength;
+            if (mLastCut == 0 || mLastCut != rest) {
+                print2Console(mType, mTag, mChunk.toString());
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
     }
 
@@ -634,6 +1065,7 @@ public final class LogUtils {
                 msg +
                 LINE_SEP;
         input2File(currentLogFilePath, content);
+        onFileWritten(currentLogFilePath, content);
     }
 
     private static String getCurrentLogFilePath(Date d) {
@@ -657,9 +1089,10 @@ public final class LogUtils {
         if (file.exists()) return file.isFile();
         if (!UtilsBridge.createOrExistsDir(file.getParentFile())) return false;
         try {
-            deleteDueLogs(filePath, date);
             boolean isCreate = file.createNewFile();
             if (isCreate) {
+                LogFileIndex.get().add(file, parseDate(date));
+                deleteDueLogs(filePath, date);
                 printDeviceInfo(filePath, date);
             }
             return isCreate;
@@ -670,74 +1103,207 @@ public final class LogUtils {
     }
 
     private static void deleteDueLogs(final String filePath, final String date) {
-        if (CONFIG.getSaveDays() <= 0) return;
-        File file = new File(filePath);
-        File parentFile = file.getParentFile();
-        File[] files = parentFile.listFiles(new FilenameFilter() {
+        int dueDay = -1;
+        if (CONFIG.getSaveDays() > 0) {
+            int day = parseDate(date);
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(day / 10000, day / 100 % 100 - 1, day % 100);
+            calendar.add(Calendar.DAY_OF_MONTH, -CONFIG.getSaveDays());
+            dueDay = calendar.get(Calendar.YEAR) * 10000
+                    + (calendar.get(Calendar.MONTH) + 1) * 100
+                    + calendar.get(Calendar.DAY_OF_MONTH);
+        }
+        if (dueDay == -1 && CONFIG.mMaxDirSize <= 0) return;
+        final List<File> files = LogFileIndex.get().removeExpired(dueDay, CONFIG.mMaxDirSize, filePath);
+        if (files.isEmpty()) return;
+        EXECUTOR.execute(new Runnable() {
             @Override
-            public boolean accept(File dir, String name) {
-                return isMatchLogFileName(name);
+            public void run() {
+                for (File aFile : files) {
+                    boolean delete = aFile.delete();
+                    if (!delete) {
+                        Log.e("LogUtils", "delete " + aFile + " failed!");
+                    }
+                }
             }
         });
-        if (files == null || files.length <= 0) return;
-        final SimpleDateFormat sdf = new SimpleDateFormat("yyyy_MM_dd", Locale.getDefault());
-        try {
-            long dueMillis = sdf.parse(date).getTime() - CONFIG.getSaveDays() * 86400000L;
-            for (final File aFile : files) {
-                String name = aFile.getName();
-                int l = name.length();
-                String logDay = findDate(name);
-                if (sdf.parse(logDay).getTime() <= dueMillis) {
-                    EXECUTOR.execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            boolean delete = aFile.delete();
-                            if (!delete) {
-                                Log.e("LogUtils", "delete " + aFile + " failed!");
-                            }
-                        }
-                    });
-                }
+    }
+
+    /**
+     * "yyyy_MM_dd" 转为 yyyyMMdd
+     */
+    private static int parseDate(final String date) {
+        int day = 0;
+        for (int i = 0, len = date.length(); i < len; i++) {
+            char c = date.charAt(i);
+            if (c >= '0' && c <= '9') {
+                day = day * 10 + (c - '0');
             }
-        } catch (ParseException e) {
-            e.printStackTrace();
         }
+        return day;
     }
 
     private static boolean isMatchLogFileName(String name) {
         return name.matches("^" + CONFIG.getFilePrefix() + "_[0-9]{4}_[0-9]{2}_[0-9]{2}_.*$");
     }
 
-    private static String findDate(String str) {
-        Pattern pattern = Pattern.compile("[0-9]{4}_[0-9]{2}_[0-9]{2}");
-        Matcher matcher = pattern.matcher(str);
-        if (matcher.find()) {
-            return matcher.group();
+    /**
+     * 记录写入的大小，超过单文件上限时滚动
+     */
+    private static void onFileWritten(final String filePath, final String content) {
+        if (CONFIG.mMaxFileSize <= 0 && CONFIG.mMaxDirSize <= 0) return;
+        long size = LogFileIndex.get().addSize(filePath, utf8Length(content));
+        if (CONFIG.mMaxFileSize > 0 && size >= CONFIG.mMaxFileSize) {
+            rollFile(filePath);
         }
-        return "";
     }
 
-    private static void printDeviceInfo(final String filePath, final String date) {
-        CONFIG.mFileHead.addFirst("Date of Log", date);
-        input2File(filePath, CONFIG.mFileHead.toString());
+    /**
+     * 与 getBytes("UTF-8") 的长度一致，代理对为 4 字节，单独的代理字符被替换为 '?'
+     */
+    static int utf8Length(final String content) {
+        int length = 0;
+        for (int i = 0, len = content.length(); i < len; i++) {
+            char c = content.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (!Character.isSurrogate(c)) {
+                length += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(content.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 1;
+            }
+        }
+        return length;
     }
 
-    private static void input2File(final String filePath, final String input) {
-        if (CONFIG.mFileWriter == null) {
-            UtilsBridge.writeFileFromString(filePath, input, true);
-        } else {
-            CONFIG.mFileWriter.write(filePath, input);
+    /**
+     * 把当前文件重命名为 "xxx.N.txt"，N 比已有的滚动文件都大，下次写入时再创建新文件
+     */
+    private static void rollFile(final String filePath) {
+        if (CONFIG.mFileWriter instanceof MmapFileWriter) {
+            ((MmapFileWriter) CONFIG.mFileWriter).flush();
+        }
+        String ext = CONFIG.getFileExtension();
+        String base = filePath.endsWith(ext) ? filePath.substring(0, filePath.length() - ext.length()) : filePath;
+        File rolled;
+        int n = LogFileIndex.get().nextRollNumber(base, ext);
+        do {
+            rolled = new File(base + "." + n++ + ext);
+        } while (rolled.exists() || new File(rolled.getPath() + ".gz").exists());
+        File file = new File(filePath);
+        if (!file.renameTo(rolled)) {
+            Log.e("LogUtils", "roll " + filePath + " failed!");
+            return;
         }
-        if (CONFIG.mOnFileOutputListener != null) {
-            CONFIG.mOnFileOutputListener.onFileOutput(filePath, input);
+        LogFileIndex.get().replace(file, rolled);
+        if (CONFIG.mCompressSwitch) {
+            final File src = rolled;
+            CompressExecutor.EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compressFile(src);
+                }
+            });
+        }
+    }
+
+    private static void compressFile(final File src) {
+        File gz = new File(src.getPath() + ".gz");
+        File tmp = new File(gz.getPath() + ".tmp");
+        InputStream is = null;
+        OutputStream os = null;
+        boolean success = false;
+        try {
+            is = new FileInputStream(src);
+            os = new GZIPOutputStream(new FileOutputStream(tmp), 8192);
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                os.write(buffer, 0, len);
+            }
+            success = true;
+        } catch (IOException e) {
+            Log.e("LogUtils", "compress " + src + " failed!", e);
+        } finally {
+            try {
+                if (is != null) is.close();
+                if (os != null) os.close();
+            } catch (IOException e) {
+                success = false;
+                e.printStackTrace();
+            }
+        }
+        if (success && tmp.renameTo(gz)) {
+            if (!LogFileIndex.get().replace(src, gz)) {
+                // src was removed by the cleanup while being compressed, nothing would delete the gz
+                gz.delete();
+            }
+            if (!src.delete() && src.exists()) {
+                Log.e("LogUtils", "delete " + src + " failed!");
+            }
+        } else {
+            tmp.delete();
         }
     }
 
     /**
-     * log 全局配置
+     * 压缩滚动文件的低优先级线程，首次压缩时才创建，不占用 ThreadUtils 的共享线程池
      */
-    public static final class Config {
-        private String mDefaultDir;                // The default storage directory of log.
+    private static final class CompressExecutor {
+
+        private static final ExecutorService EXECUTOR =
+                Executors.newSingleThreadExecutor(newDaemonThreadFactory("log-compress"));
+    }
+
+    /**
+     * 定时输出限流汇总的线程，首次限流时才创建
+     */
+    private static final class SummaryExecutor {
+
+        private static final ScheduledExecutorService EXECUTOR =
+                Executors.newSingleThreadScheduledExecutor(newDaemonThreadFactory("log-summary"));
+    }
+
+    private static ThreadFactory newDaemonThreadFactory(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        };
+    }
+
+    private static void printDeviceInfo(final String filePath, final String date) {
+        CONFIG.mFileHead.addFirst("Date of Log", date);
+        input2File(filePath, CONFIG.mFileHead.toString());
+    }
+
+    private static void input2File(final String filePath, final String input) {
+        if (CONFIG.mFileWriter == null) {
+            UtilsBridge.writeFileFromString(filePath, input, true);
+        } else {
+            CONFIG.mFileWriter.write(filePath, input);
+        }
+        if (CONFIG.mOnFileOutputListener != null) {
+            CONFIG.mOnFileOutputListener.onFileOutput(filePath, input);
+        }
+    }
+
+    /**
+     * log 全局配置
+     */
+    public static final class Config {
+        private String mDefaultDir;                // The default storage directory of log.
         private String mDir;                       // The storage directory of log.
         private String mFilePrefix = "util";// The file prefix of log.
         private String mFileExtension = ".txt";// The file extension of log.
@@ -751,14 +1317,27 @@ public final class LogUtils {
         private boolean mSingleTagSwitch = true;  // The single tag of log.
         private int mConsoleFilter = V;     // The console's filter of log.
         private int mFileFilter = V;     // The file's filter of log.
+        private int mHeadFilter = V;     // The caller info's filter of log.
         private int mStackDeep = 1;     // The stack's deep of log.
         private int mStackOffset = 0;     // The stack's offset of log.
         private int mSaveDays = -1;    // The save days of log.
+        private volatile long mMaxFileSize = 0;  // The max size of one log file, 0 means no limit.
+        private volatile long mMaxDirSize = 0;   // The max total size of log files, 0 means no limit.
+        private volatile boolean mCompressSwitch = false; // The gzip's switch of rolled log file.
+        private final AtomicReferenceArray<LogLimiter> mLevelLimiters = new AtomicReferenceArray<>(A - V + 1);
+        private final ConcurrentHashMap<String, LogLimiter> mTagLimiters = new ConcurrentHashMap<>();
+        private volatile long mSuppressSummaryNanos = TimeUnit.SECONDS.toNanos(10);
+        private int mMaxFormatLength = 0;  // The max length of formatted json and xml, 0 means no limit.
         private String mProcessName = UtilsBridge.getCurrentProcessName();
         private IFileWriter mFileWriter;
         private OnConsoleOutputListener mOnConsoleOutputListener;
         private OnFileOutputListener mOnFileOutputListener;
         private UtilsBridge.FileHead mFileHead = new UtilsBridge.FileHead("Log");
+        private volatile boolean mRingBufferSwitch = false; // The ring buffer's switch of file log.
+        private int mRingBufferSize = 1024;  // The slot count of ring buffer.
+        private volatile int mRingBufferPolicy = BUFFER_FULL_DROP;
+        private volatile long mRingBufferFlushMillis = 1000;
+        private volatile int mRingBufferFlushBytes = 32 * 1024;
 
         private Config() {
             String exfilePath = PathUtils.getExternalAppFilesPath();
@@ -935,6 +1514,19 @@ public final class LogUtils {
             return this;
         }
 
+        /**
+         * 设置 log 头信息过滤器 默认 使用 Log.v
+         * 低于该级别的 log 不解析调用栈，不输出调用位置，tag 为空时使用全局 tag 或 "LogUtils"
+         * 解析调用栈需要抓取整个线程栈，是一次 log 中最耗时的部分
+         *
+         * @param headFilter
+         * @return
+         */
+        public final Config setHeadFilter(@TYPE final int headFilter) {
+            mHeadFilter = headFilter;
+            return this;
+        }
+
         /**
          * 设置 log 栈深度 默认：1
          *
@@ -968,6 +1560,195 @@ public final class LogUtils {
             return this;
         }
 
+        /**
+         * 设置 json、xml 格式化后的最大长度 默认 0 不限制
+         * 超出后停止格式化并截断，避免大报文整体格式化
+         *
+         * @param maxFormatLength
+         * @return
+         */
+        public final Config setMaxFormatLength(@IntRange(from = 0) final int maxFormatLength) {
+            mMaxFormatLength = maxFormatLength;
+            return this;
+        }
+
+        /**
+         * 设置单个 log 文件大小上限 默认 0 不限制
+         * 超过后当前文件重命名为 "xxx.1.txt" 等，后续 log 写入新文件
+         *
+         * @param maxFileSize 字节数
+         * @return
+         */
+        public final Config setMaxFileSize(@IntRange(from = 0) final long maxFileSize) {
+            mMaxFileSize = maxFileSize;
+            return this;
+        }
+
+        /**
+         * 设置 log 目录总大小上限 默认 0 不限制
+         * 创建新文件时从最旧的 log 文件开始删除，直到总大小不超过上限
+         *
+         * @param maxDirSize 字节数
+         * @return
+         */
+        public final Config setMaxDirSize(@IntRange(from = 0) final long maxDirSize) {
+            mMaxDirSize = maxDirSize;
+            return this;
+        }
+
+        /**
+         * 设置滚动后 log 文件的 gzip 压缩开关 默认 false
+         * 压缩在低优先级线程中进行，完成后删除原文件
+         *
+         * @param compressSwitch
+         * @return
+         */
+        public final Config setCompressSwitch(final boolean compressSwitch) {
+            mCompressSwitch = compressSwitch;
+            return this;
+        }
+
+        /**
+         * 设置某一级别 log 的限流 默认不限流
+         * 每秒最多输出 permitsPerSecond 条，允许 burst 条突发，超出的 log 被丢弃并计数
+         *
+         * @param level
+         * @param permitsPerSecond 小于等于 0 时取消限流
+         * @param burst
+         * @return
+         */
+        public final Config setLevelRateLimit(@TYPE final int level,
+                                              final double permitsPerSecond,
+                                              @IntRange(from = 1) final int burst) {
+            LogLimiter old = mLevelLimiters.get(level - V);
+            float sampleRate = old == null ? 1f : old.mSampleRate;
+            mLevelLimiters.set(level - V, newLimiter(String.valueOf(T[level - V]), null, permitsPerSecond, burst, sampleRate));
+            return this;
+        }
+
+        /**
+         * 设置某一级别 log 的采样率 默认 1 全部输出
+         *
+         * @param level
+         * @param sampleRate 0 到 1 之间，按概率保留 log
+         * @return
+         */
+        public final Config setLevelSampleRate(@TYPE final int level,
+                                               @FloatRange(from = 0, to = 1) final float sampleRate) {
+            LogLimiter old = mLevelLimiters.get(level - V);
+            mLevelLimiters.set(level - V, old == null
+                    ? newLimiter(String.valueOf(T[level - V]), null, 0, 1, sampleRate)
+                    : newLimiter(old.mName, null, old.mPermitsPerSecond, old.mBurst, sampleRate));
+            return this;
+        }
+
+        /**
+         * 设置某一 tag 的限流 默认不限流
+         *
+         * @param tag
+         * @param permitsPerSecond 小于等于 0 时取消限流
+         * @param burst
+         * @return
+         */
+        public final Config setTagRateLimit(final String tag,
+                                            final double permitsPerSecond,
+                                            @IntRange(from = 1) final int burst) {
+            LogLimiter old = mTagLimiters.get(tag);
+            putTagLimiter(tag, newLimiter(tag, tag, permitsPerSecond, burst, old == null ? 1f : old.mSampleRate));
+            return this;
+        }
+
+        /**
+         * 设置某一 tag 的采样率 默认 1 全部输出
+         *
+         * @param tag
+         * @param sampleRate 0 到 1 之间，按概率保留 log
+         * @return
+         */
+        public final Config setTagSampleRate(final String tag,
+                                             @FloatRange(from = 0, to = 1) final float sampleRate) {
+            LogLimiter old = mTagLimiters.get(tag);
+            putTagLimiter(tag, old == null
+                    ? newLimiter(tag, tag, 0, 1, sampleRate)
+                    : newLimiter(tag, tag, old.mPermitsPerSecond, old.mBurst, sampleRate));
+            return this;
+        }
+
+        /**
+         * 设置被限流 log 的汇总间隔 默认 10 秒
+         * 间隔到达后的下一条 log 前输出 "suppressed N messages from TAG in 10s"
+         * 之后没有 log 时在间隔结束时单独输出
+         *
+         * @param millis
+         * @return
+         */
+        public final Config setSuppressSummaryInterval(@IntRange(from = 1) final long millis) {
+            mSuppressSummaryNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            return this;
+        }
+
+        private LogLimiter newLimiter(String name, String tag, double permitsPerSecond, int burst, float sampleRate) {
+            if (permitsPerSecond <= 0 && sampleRate >= 1f) return null;
+            return new LogLimiter(name, tag, permitsPerSecond, burst, sampleRate);
+        }
+
+        private void putTagLimiter(String tag, LogLimiter limiter) {
+            if (limiter == null) {
+                mTagLimiters.remove(tag);
+            } else {
+                mTagLimiters.put(tag, limiter);
+            }
+        }
+
+        /**
+         * 设置 log 文件环形缓冲开关 默认 false
+         * 开启后日志行写入预分配的环形缓冲，由单个线程批量写入常驻的文件通道，
+         * 设置了 {@link IFileWriter} 时不生效
+         *
+         * @param ringBufferSwitch
+         * @return
+         */
+        public final Config setRingBufferSwitch(final boolean ringBufferSwitch) {
+            mRingBufferSwitch = ringBufferSwitch;
+            return this;
+        }
+
+        /**
+         * 设置 log 文件环形缓冲的行数 默认 1024，需在第一次写文件前设置
+         *
+         * @param ringBufferSize
+         * @return
+         */
+        public final Config setRingBufferSize(@IntRange(from = 1) final int ringBufferSize) {
+            mRingBufferSize = ringBufferSize;
+            return this;
+        }
+
+        /**
+         * 设置 log 文件环形缓冲满时的策略 默认 {@link #BUFFER_FULL_DROP}
+         *
+         * @param policy
+         * @return
+         */
+        public final Config setRingBufferPolicy(@BufferFullPolicy final int policy) {
+            mRingBufferPolicy = policy;
+            return this;
+        }
+
+        /**
+         * 设置 log 文件环形缓冲的刷盘条件 默认 1000 毫秒或 32KB，先到者触发
+         *
+         * @param flushMillis
+         * @param flushBytes
+         * @return
+         */
+        public final Config setRingBufferFlush(@IntRange(from = 1) final long flushMillis,
+                                               @IntRange(from = 1) final int flushBytes) {
+            mRingBufferFlushMillis = flushMillis;
+            mRingBufferFlushBytes = flushBytes;
+            return this;
+        }
+
         /**
          * 增加 log 格式化器
          *
@@ -1106,6 +1887,10 @@ public final class LogUtils {
             return T[mFileFilter - V];
         }
 
+        public final char getHeadFilter() {
+            return T[mHeadFilter - V];
+        }
+
         public final int getStackDeep() {
             return mStackDeep;
         }
@@ -1140,9 +1925,14 @@ public final class LogUtils {
                     + LINE_SEP + "singleTagSwitch: " + isSingleTagSwitch()
                     + LINE_SEP + "consoleFilter: " + getConsoleFilter()
                     + LINE_SEP + "fileFilter: " + getFileFilter()
+                    + LINE_SEP + "headFilter: " + getHeadFilter()
                     + LINE_SEP + "stackDeep: " + getStackDeep()
                     + LINE_SEP + "stackOffset: " + getStackOffset()
                     + LINE_SEP + "saveDays: " + getSaveDays()
+                    + LINE_SEP + "maxFileSize: " + mMaxFileSize
+                    + LINE_SEP + "maxDirSize: " + mMaxDirSize
+                    + LINE_SEP + "compressSwitch: " + mCompressSwitch
+                    + LINE_SEP + "ringBufferSwitch: " + mRingBufferSwitch
                     + LINE_SEP + "formatter: " + I_FORMATTER_MAP
                     + LINE_SEP + "fileWriter: " + mFileWriter
                     + LINE_SEP + "onConsoleOutputListener: " + mOnConsoleOutputListener
@@ -1151,6 +1941,311 @@ public final class LogUtils {
         }
     }
 
+    /**
+     * 环形缓冲的异步文件写入器
+     * <p>日志行写入预分配的槽位，由单个写线程批量编码后写入常驻的 FileChannel，
+     * 达到批量大小或间隔时间时刷盘。</p>
+     */
+    static final class RingFileAppender implements Runnable {
+
+        private static final int ENCODE_CHARS = 16 * 1024;
+
+        private final int mCapacity;
+        private final int mMask;
+        private final Slot[] mSlots;
+        private final AtomicLongArray mSequences;
+        private final AtomicLong mTail = new AtomicLong();
+        private final AtomicLong mDropped = new AtomicLong();
+        private final Thread mThread;
+
+        private volatile boolean mWaiting;
+        // written by the appender thread once per drain, read by producers to decide on a wake up
+        private volatile long mHead;
+
+        // only touched by the appender thread
+        private long mReported;
+        private final StringBuilder mLine = new StringBuilder(256);
+        private final StringBuilder mBatch = new StringBuilder(ENCODE_CHARS + 1024);
+        private final CharsetEncoder mEncoder = UTF_8.newEncoder();
+        private ByteBuffer mBytes;
+        private int mPendingBytes;
+        private long mLastFlushMillis;
+        private FileChannel mChannel;
+        private String mPath;
+        private long mDayStart;
+        private long mDayEnd;
+        private long mMinuteStart = -1;
+        private String mMinutePrefix;
+
+        RingFileAppender(int capacity) {
+            int size = 1;
+            while (size < capacity) size <<= 1;
+            mCapacity = size;
+            mMask = size - 1;
+            mSlots = new Slot[size];
+            mSequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                mSlots[i] = new Slot();
+                mSequences.set(i, i);
+            }
+            mThread = new Thread(this, "log-appender");
+            mThread.setDaemon(true);
+            mThread.start();
+        }
+
+        void append(final int type, final String tag, final String head, final String body) {
+            final long millis = System.currentTimeMillis();
+            long pos = mTail.get();
+            for (; ; ) {
+                int index = (int) (pos & mMask);
+                long diff = mSequences.get(index) - pos;
+                if (diff == 0) {
+                    if (mTail.compareAndSet(pos, pos + 1)) break;
+                    pos = mTail.get();
+                } else if (diff < 0) {
+                    // full
+                    if (CONFIG.mRingBufferPolicy != BUFFER_FULL_BLOCK) {
+                        mDropped.incrementAndGet();
+                        wakeUp();
+                        return;
+                    }
+                    wakeUp();
+                    LockSupport.parkNanos(100000);
+                    pos = mTail.get();
+                } else {
+                    pos = mTail.get();
+                }
+            }
+            int index = (int) (pos & mMask);
+            Slot slot = mSlots[index];
+            slot.millis = millis;
+            slot.type = type;
+            slot.tag = tag;
+            slot.head = head;
+            slot.body = body;
+            mSequences.lazySet(index, pos + 1);
+            if (mWaiting && pos - mHead >= mCapacity >> 1) {
+                wakeUp();
+            }
+        }
+
+        long getDroppedCount() {
+            return mDropped.get();
+        }
+
+        private void wakeUp() {
+            if (mWaiting) {
+                LockSupport.unpark(mThread);
+            }
+        }
+
+        @Override
+        public void run() {
+            mLastFlushMillis = System.currentTimeMillis();
+            for (; ; ) {
+                try {
+                    int count = drain();
+                    long now = System.currentTimeMillis();
+                    if (mBatch.length() > 0 || mPendingBytes > 0) {
+                        if (now - mLastFlushMillis >= CONFIG.mRingBufferFlushMillis
+                                || mPendingBytes + mBatch.length() >= CONFIG.mRingBufferFlushBytes) {
+                            flush();
+                        }
+                    } else {
+                        mLastFlushMillis = now;
+                    }
+                    if (count == 0) {
+                        mWaiting = true;
+                        if (isEmpty()) {
+                            long wait = CONFIG.mRingBufferFlushMillis - (now - mLastFlushMillis);
+                            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.max(wait, 1)));
+                        }
+                        mWaiting = false;
+                    }
+                } catch (Throwable t) {
+                    Log.e("LogUtils", "appender failed", t);
+                    // drop the lines which failed, or they would be written again and again
+                    mBatch.setLength(0);
+                    if (mBytes != null) {
+                        mBytes.clear();
+                    }
+                    mPendingBytes = 0;
+                    closeChannel();
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            long head = mHead;
+            return mSequences.get((int) (head & mMask)) != head + 1;
+        }
+
+        private int drain() throws IOException {
+            int count = 0;
+            long head = mHead;
+            try {
+                for (; ; ) {
+                    int index = (int) (head & mMask);
+                    if (mSequences.get(index) != head + 1) break;
+                    Slot slot = mSlots[index];
+                    appendLine(slot.millis, slot.type, slot.tag, slot.head, slot.body);
+                    slot.tag = null;
+                    slot.head = null;
+                    slot.body = null;
+                    mSequences.lazySet(index, head + mCapacity);
+                    head++;
+                    count++;
+                }
+            } finally {
+                mHead = head;
+            }
+            long dropped = mDropped.get();
+            if (dropped != mReported && CONFIG.mRingBufferPolicy == BUFFER_FULL_REPORT) {
+                appendLine(System.currentTimeMillis(), W, "LogUtils", ": ",
+                        "log buffer is full, " + (dropped - mReported) + " lines dropped");
+                mReported = dropped;
+            }
+            return count;
+        }
+
+        private void appendLine(long millis, int type, String tag, String head, String body) throws IOException {
+            if (millis < mDayStart || millis >= mDayEnd) {
+                // the day rolls, write the lines of the last day out first
+                flush();
+                openDay(millis);
+            }
+            if (mChannel == null) return;
+            StringBuilder line = mLine;
+            line.setLength(0);
+            appendTime(line, millis);
+            line.append(T[type - V]).append('/').append(tag).append(head).append(body).append(LINE_SEP);
+            mBatch.append(line);
+            if (CONFIG.mOnFileOutputListener != null) {
+                CONFIG.mOnFileOutputListener.onFileOutput(mPath, line.toString());
+            }
+            if (mBatch.length() >= ENCODE_CHARS) {
+                encodeBatch();
+            }
+        }
+
+        private void appendTime(StringBuilder sb, long millis) {
+            if (millis < mMinuteStart || millis >= mMinuteStart + 60000) {
+                // the zone offset only changes at minute boundaries
+                Calendar calendar = Calendar.getInstance();
+                calendar.setTimeInMillis(millis);
+                calendar.set(Calendar.SECOND, 0);
+                calendar.set(Calendar.MILLISECOND, 0);
+                mMinuteStart = calendar.getTimeInMillis();
+                mMinutePrefix = String.format(Locale.US, "%02d:%02d:",
+                        calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE));
+            }
+            int ms = (int) (millis - mMinuteStart);
+            int second = ms / 1000;
+            ms %= 1000;
+            sb.append(mMinutePrefix);
+            if (second < 10) sb.append('0');
+            sb.append(second).append('.');
+            if (ms < 100) sb.append('0');
+            if (ms < 10) sb.append('0');
+            sb.append(ms).append(' ');
+        }
+
+        private void openDay(long millis) throws IOException {
+            closeChannel();
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(millis);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            mDayStart = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            mDayEnd = calendar.getTimeInMillis();
+            Date d = new Date(millis);
+            String date = getSdf().format(d).substring(0, 10);
+            mPath = getCurrentLogFilePath(d);
+            if (!createOrExistsFile(mPath, date)) {
+                Log.e("LogUtils", "create " + mPath + " failed!");
+                return;
+            }
+            mChannel = new FileOutputStream(mPath, true).getChannel();
+        }
+
+        private void encodeBatch() throws IOException {
+            if (mBatch.length() == 0) return;
+            if (mBytes == null) {
+                mBytes = ByteBuffer.allocateDirect(Math.max(CONFIG.mRingBufferFlushBytes, 4 * ENCODE_CHARS));
+            }
+            CharBuffer chars = CharBuffer.wrap(mBatch);
+            mEncoder.reset();
+            for (; ; ) {
+                CoderResult result = mEncoder.encode(chars, mBytes, true);
+                if (result.isOverflow()) {
+                    writeBytes();
+                    continue;
+                }
+                result = mEncoder.flush(mBytes);
+                if (result.isOverflow()) {
+                    writeBytes();
+                    continue;
+                }
+                break;
+            }
+            mPendingBytes = mBytes.position();
+            mBatch.setLength(0);
+        }
+
+        private void writeBytes() throws IOException {
+            mBytes.flip();
+            while (mBytes.hasRemaining()) {
+                mChannel.write(mBytes);
+            }
+            mBytes.clear();
+            mPendingBytes = 0;
+        }
+
+        private void flush() throws IOException {
+            mLastFlushMillis = System.currentTimeMillis();
+            if (mChannel == null) {
+                mBatch.setLength(0);
+                return;
+            }
+            encodeBatch();
+            if (mBytes != null && mBytes.position() > 0) {
+                writeBytes();
+            }
+            if (CONFIG.mMaxFileSize > 0 || CONFIG.mMaxDirSize > 0) {
+                long size = mChannel.size();
+                LogFileIndex.get().setSize(mPath, size);
+                if (CONFIG.mMaxFileSize > 0 && size >= CONFIG.mMaxFileSize) {
+                    // reopened with a new file by the next line
+                    closeChannel();
+                    rollFile(mPath);
+                }
+            }
+        }
+
+        private void closeChannel() {
+            if (mChannel != null) {
+                try {
+                    mChannel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                mChannel = null;
+            }
+            mDayStart = mDayEnd = 0;
+        }
+
+        private static final class Slot {
+            long millis;
+            int type;
+            String tag;
+            String head;
+            String body;
+        }
+    }
+
     public abstract static class IFormatter<T> {
         public abstract String format(T t);
     }
@@ -1159,14 +2254,456 @@ public final class LogUtils {
         void write(String file, String content);
     }
 
+    /**
+     * 基于内存映射缓冲文件的写入器
+     * <p>log 先拷贝到映射内存中，进程被杀时由系统将脏页写回缓冲文件，
+     * 下次创建写入器时把缓冲中残留的内容追加到原日志文件。
+     * 缓冲超过三分之一时或调用 {@link #flush()} 时写入日志文件。</p>
+     * <pre>
+     * LogUtils.getConfig().setFileWriter(new LogUtils.MmapFileWriter());
+     * </pre>
+     */
+    public static class MmapFileWriter implements IFileWriter {
+
+        private static final int MAGIC = 0x4C4F4742;  // "LOGB"
+        private static final int MAX_PATH_LEN = 512;
+        private static final int HEADER_SIZE = 4 + 4 + 2 + MAX_PATH_LEN;
+        private static final int DEFAULT_CAPACITY = 150 * 1024;
+
+        private final MappedByteBuffer mBuffer;
+        private final int mCapacity;
+        private String mTarget;
+
+        /**
+         * 缓冲文件放在当前 log 目录下
+         */
+        public MmapFileWriter() {
+            this(CONFIG.getDir() + "." + CONFIG.getFilePrefix() + "_" + CONFIG.getProcessName() + ".mmap",
+                    DEFAULT_CAPACITY);
+        }
+
+        /**
+         * @param bufferPath 缓冲文件路径，同一进程同一时间只能有一个写入器使用
+         * @param capacity   缓冲可存放的 log 字节数
+         */
+        public MmapFileWriter(final String bufferPath, @IntRange(from = 1) final int capacity) {
+            MappedByteBuffer buffer = null;
+            File file = new File(bufferPath);
+            if (UtilsBridge.createOrExistsDir(file.getParentFile())) {
+                RandomAccessFile raf = null;
+                try {
+                    raf = new RandomAccessFile(file, "rw");
+                    buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+                } catch (IOException e) {
+                    Log.e("LogUtils", "map " + bufferPath + " failed!", e);
+                } finally {
+                    if (raf != null) {
+                        try {
+                            // the mapping stays valid after the file is closed
+                            raf.close();
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+            mBuffer = buffer;
+            mCapacity = capacity;
+            if (mBuffer != null) {
+                recover();
+            }
+        }
+
+        @Override
+        public synchronized void write(final String file, final String content) {
+            if (mBuffer == null) {
+                UtilsBridge.writeFileFromString(file, content, true);
+                return;
+            }
+            if (!file.equals(mTarget)) {
+                flush();
+                setTarget(file);
+            }
+            byte[] bytes = content.getBytes(UTF_8);
+            int length = mBuffer.getInt(4);
+            if (length + bytes.length > mCapacity) {
+                flush();
+                length = 0;
+                if (bytes.length > mCapacity) {
+                    append(file, bytes, 0, bytes.length);
+                    return;
+                }
+            }
+            mBuffer.position(HEADER_SIZE + length);
+            mBuffer.put(bytes);
+            // publish the length after the content, a kill in between only loses this line
+            mBuffer.putInt(4, length + bytes.length);
+            if (length + bytes.length >= mCapacity / 3) {
+                flush();
+            }
+        }
+
+        /**
+         * 把缓冲中的 log 写入日志文件
+         */
+        public synchronized void flush() {
+            if (mBuffer == null) return;
+            int length = mBuffer.getInt(4);
+            if (length > 0 && mTarget != null) {
+                byte[] bytes = new byte[length];
+                mBuffer.position(HEADER_SIZE);
+                mBuffer.get(bytes);
+                append(mTarget, bytes, 0, length);
+            }
+            mBuffer.putInt(4, 0);
+        }
+
+        private void recover() {
+            if (mBuffer.getInt(0) != MAGIC) {
+                mBuffer.putInt(0, MAGIC);
+                mBuffer.putInt(4, 0);
+                mBuffer.putShort(8, (short) 0);
+                return;
+            }
+            int length = mBuffer.getInt(4);
+            int pathLen = mBuffer.getShort(8);
+            if (length > 0 && length <= mCapacity && pathLen > 0 && pathLen <= MAX_PATH_LEN) {
+                byte[] path = new byte[pathLen];
+                mBuffer.position(10);
+                mBuffer.get(path);
+                mTarget = new String(path, UTF_8);
+                flush();
+            }
+            mBuffer.putInt(4, 0);
+        }
+
+        private void setTarget(final String file) {
+            byte[] path = file.getBytes(UTF_8);
+            if (path.length > MAX_PATH_LEN) {
+                // can't be recovered, but still buffered
+                mBuffer.putShort(8, (short) 0);
+            } else {
+                mBuffer.position(10);
+                mBuffer.put(path);
+                mBuffer.putShort(8, (short) path.length);
+            }
+            mTarget = file;
+        }
+
+        private static void append(final String file, final byte[] bytes, final int offset, final int length) {
+            FileOutputStream fos = null;
+            try {
+                fos = new FileOutputStream(file, true);
+                fos.write(bytes, offset, length);
+            } catch (IOException e) {
+                Log.e("LogUtils", "write " + file + " failed!", e);
+            } finally {
+                if (fos != null) {
+                    try {
+                        fos.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
     public interface OnConsoleOutputListener {
         void onConsoleOutput(@TYPE int type, String tag, String content);
     }
 
+    /**
+     * 模板 log 的延迟参数，仅在 log 会输出时才计算
+     *
+     * @param <T>
+     */
+    public interface Supplier<T> {
+        T get();
+    }
+
     public interface OnFileOutputListener {
         void onFileOutput(String filePath, String content);
     }
 
+    /**
+     * 日志目录的内存索引，首次使用时扫描一次目录，之后由写入、滚动、压缩和清理维护
+     */
+    private static final class LogFileIndex {
+
+        private static LogFileIndex sIndex;
+
+        private final String mDir;
+        private final String mPrefix;
+        // sorted from the oldest to the newest
+        private final ArrayList<Entry> mEntries = new ArrayList<>();
+        private long mTotalSize;
+
+        private LogFileIndex(final String dir, final String prefix) {
+            mDir = dir;
+            mPrefix = prefix;
+            File[] files = new File(dir).listFiles();
+            if (files == null) return;
+            for (File file : files) {
+                int day = parseDay(file.getName());
+                if (day != -1 && file.isFile()) {
+                    mEntries.add(new Entry(file, day, file.length(), file.lastModified()));
+                }
+            }
+            Collections.sort(mEntries, new Comparator<Entry>() {
+                @Override
+                public int compare(Entry o1, Entry o2) {
+                    if (o1.day != o2.day) return o1.day < o2.day ? -1 : 1;
+                    return o1.modified < o2.modified ? -1 : (o1.modified == o2.modified ? 0 : 1);
+                }
+            });
+            for (Entry entry : mEntries) {
+                mTotalSize += entry.size;
+            }
+        }
+
+        static synchronized LogFileIndex get() {
+            String dir = CONFIG.getDir();
+            String prefix = CONFIG.getFilePrefix();
+            if (sIndex == null || !sIndex.mDir.equals(dir) || !sIndex.mPrefix.equals(prefix)) {
+                sIndex = new LogFileIndex(dir, prefix);
+            }
+            return sIndex;
+        }
+
+        /**
+         * "prefix_yyyy_MM_dd_..." 中的日期转为 yyyyMMdd，不匹配时返回 -1
+         */
+        int parseDay(final String name) {
+            int start = mPrefix.length() + 1;
+            if (name.length() < start + 11 || !name.startsWith(mPrefix) || name.charAt(start - 1) != '_') {
+                return -1;
+            }
+            int day = 0;
+            for (int i = 0; i < 10; i++) {
+                char c = name.charAt(start + i);
+                if (i == 4 || i == 7) {
+                    if (c != '_') return -1;
+                } else {
+                    if (c < '0' || c > '9') return -1;
+                    day = day * 10 + (c - '0');
+                }
+            }
+            return name.charAt(start + 10) == '_' ? day : -1;
+        }
+
+        synchronized void add(final File file, final int day) {
+            Entry entry = find(file.getPath());
+            if (entry == null) {
+                long size = file.length();
+                mEntries.add(new Entry(file, day, size, System.currentTimeMillis()));
+                mTotalSize += size;
+            }
+        }
+
+        /**
+         * @return 记录后的文件大小
+         */
+        synchronized long addSize(final String path, final long delta) {
+            Entry entry = find(path);
+            if (entry == null) return 0;
+            entry.size += delta;
+            mTotalSize += delta;
+            return entry.size;
+        }
+
+        synchronized void setSize(final String path, final long size) {
+            Entry entry = find(path);
+            if (entry == null) return;
+            mTotalSize += size - entry.size;
+            entry.size = size;
+        }
+
+        /**
+         * @return from 不在索引中时返回 false
+         */
+        synchronized boolean replace(final File from, final File to) {
+            Entry entry = find(from.getPath());
+            if (entry == null) return false;
+            long size = to.length();
+            mTotalSize += size - entry.size;
+            entry.file = to;
+            entry.size = size;
+            return true;
+        }
+
+        /**
+         * 移出早于 dueDay 的日志，以及超出总大小上限时最旧的日志，当前文件除外
+         *
+         * @return 需要删除的文件
+         */
+        synchronized List<File> removeExpired(final int dueDay, final long maxDirSize, final String current) {
+            List<File> expired = new ArrayList<>();
+            Iterator<Entry> it = mEntries.iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.file.getPath().equals(current)) continue;
+                if (entry.day <= dueDay || (maxDirSize > 0 && mTotalSize > maxDirSize)) {
+                    it.remove();
+                    mTotalSize -= entry.size;
+                    expired.add(entry.file);
+                }
+            }
+            return expired;
+        }
+
+        /**
+         * 比 "base.N.ext" 和 "base.N.ext.gz" 中最大的 N 大 1，最旧的文件被清理后序号也不会复用
+         */
+        synchronized int nextRollNumber(final String base, final String ext) {
+            String prefix = new File(base).getName() + ".";
+            int max = 0;
+            for (Entry entry : mEntries) {
+                String name = entry.file.getName();
+                if (!name.startsWith(prefix)) continue;
+                int n = 0, i = prefix.length();
+                for (; i < name.length() && name.charAt(i) >= '0' && name.charAt(i) <= '9'; i++) {
+                    n = n * 10 + (name.charAt(i) - '0');
+                }
+                if (i > prefix.length() && name.startsWith(ext, i)) {
+                    max = Math.max(max, n);
+                }
+            }
+            return max + 1;
+        }
+
+        private Entry find(final String path) {
+            // the current file is almost always the newest one
+            for (int i = mEntries.size() - 1; i >= 0; i--) {
+                Entry entry = mEntries.get(i);
+                if (entry.file.getPath().equals(path)) return entry;
+            }
+            return null;
+        }
+
+        private static final class Entry {
+            File file;
+            final int day;
+            long size;
+            final long modified;
+
+            Entry(File file, int day, long size, long modified) {
+                this.file = file;
+                this.day = day;
+                this.size = size;
+                this.modified = modified;
+            }
+        }
+    }
+
+    /**
+     * 令牌桶限流与采样，基于 GCRA 只用一个 CAS 维护令牌桶状态
+     */
+    private static final class LogLimiter {
+        final String mName;
+        final String mTag;
+        final double mPermitsPerSecond;
+        final int mBurst;
+        final float mSampleRate;
+        private final long mIntervalNanos;
+        private final long mToleranceNanos;
+        private final AtomicLong mTat;
+        private final AtomicLong mSuppressed = new AtomicLong();
+        private final AtomicLong mLastSummary;
+        private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+        private final Runnable mFlush = new Runnable() {
+            @Override
+            public void run() {
+                mFlushScheduled.set(false);
+                long now = System.nanoTime();
+                String summary = pollSummary(now);
+                if (summary != null) {
+                    printSummary(mTag, summary);
+                } else if (mSuppressed.get() > 0) {
+                    // a log in between took the summary, or the interval was changed
+                    scheduleFlush(now);
+                }
+            }
+        };
+
+        /**
+         * @param tag 汇总输出使用的 tag，null 时使用全局 tag
+         */
+        LogLimiter(String name, String tag, double permitsPerSecond, int burst, float sampleRate) {
+            mName = name;
+            mTag = tag;
+            mPermitsPerSecond = permitsPerSecond;
+            mBurst = Math.max(burst, 1);
+            mSampleRate = sampleRate;
+            mIntervalNanos = permitsPerSecond > 0 ? (long) (1000000000L / permitsPerSecond) : 0;
+            // 允许在 tat 之前 burst - 1 个间隔内通过，即最多连续 burst 条
+            mToleranceNanos = mIntervalNanos * (mBurst - 1);
+            long now = System.nanoTime();
+            mTat = new AtomicLong(now);
+            mLastSummary = new AtomicLong(now);
+        }
+
+        boolean tryAcquire(final long now) {
+            if (mSampleRate < 1f && ThreadLocalRandom.current().nextFloat() >= mSampleRate) {
+                onSuppressed(now);
+                return false;
+            }
+            if (mIntervalNanos <= 0) return true;
+            for (; ; ) {
+                long tat = mTat.get();
+                if (now - (tat - mToleranceNanos) < 0) {
+                    onSuppressed(now);
+                    return false;
+                }
+                if (mTat.compareAndSet(tat, Math.max(tat, now) + mIntervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        private void onSuppressed(final long now) {
+            mSuppressed.incrementAndGet();
+            if (!mFlushScheduled.get()) {
+                scheduleFlush(now);
+            }
+        }
+
+        /**
+         * 汇总间隔结束时输出汇总，之后没有 log 的 tag 也能输出
+         */
+        private void scheduleFlush(final long now) {
+            if (!mFlushScheduled.compareAndSet(false, true)) return;
+            long delay = mLastSummary.get() + CONFIG.mSuppressSummaryNanos - now;
+            SummaryExecutor.EXECUTOR.schedule(mFlush, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * 距上次汇总超过汇总间隔且有被抑制的 log 时返回汇总，否则返回 null
+         */
+        String pollSummary(final long now) {
+            if (mSuppressed.get() == 0) return null;
+            long last = mLastSummary.get();
+            if (now - last < CONFIG.mSuppressSummaryNanos || !mLastSummary.compareAndSet(last, now)) {
+                return null;
+            }
+            long count = mSuppressed.getAndSet(0);
+            if (count == 0) return null;
+            long millis = TimeUnit.NANOSECONDS.toMillis(now - last);
+            return "suppressed " + count + " messages from " + mName
+                    + " in " + (millis < 1000 ? millis + "ms" : (millis + 500) / 1000 + "s");
+        }
+    }
+
+    private final static class CallSite {
+        final String tag;
+        final String location;
+
+        CallSite(String tag, String location) {
+            this.tag = tag;
+            this.location = location;
+        }
+    }
+
     private final static class TagHead {
         String tag;
         String[] consoleHead;
@@ -1374,7 +2911,7 @@ public final class LogUtils {
 
         private static String object2Json(Object object) {
             if (object instanceof CharSequence) {
-                return UtilsBridge.formatJson(object.toString());
+                return UtilsBridge.formatJson(object.toString(), CONFIG.mMaxFormatLength);
             }
             try {
                 return UtilsBridge.getGson4LogUtils().toJson(object);
@@ -1401,19 +2938,120 @@ public final class LogUtils {
             return json;
         }
 
-        private static String formatXml(String xml) {
-            try {
-                Source xmlInput = new StreamSource(new StringReader(xml));
-                StreamResult xmlOutput = new StreamResult(new StringWriter());
-                Transformer transformer = TransformerFactory.newInstance().newTransformer();
-                transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-                transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-                transformer.transform(xmlInput, xmlOutput);
-                xml = xmlOutput.getWriter().toString().replaceFirst(">", ">" + LINE_SEP);
-            } catch (Exception e) {
-                e.printStackTrace();
+        private static String formatXml(final String xml) {
+            return formatXml(xml, CONFIG.mMaxFormatLength);
+        }
+
+        /**
+         * 单遍扫描格式化 xml，缩进 2 个空格，只有文本的元素保持在一行
+         * 标签不匹配时返回原字符串
+         */
+        private static String formatXml(final String xml, final int maxLength) {
+            final int len = xml.length();
+            final int limit = maxLength > 0 ? maxLength : Integer.MAX_VALUE;
+            StringBuilder sb = new StringBuilder(Math.min(len + (len >> 1), limit) + 64);
+            // start and end index of the open tag names
+            int[] stack = new int[32];
+            int depth = 0;
+            boolean inline = false;
+            int i = 0;
+            while (i < len) {
+                if (sb.length() >= limit) {
+                    sb.setLength(limit);
+                    return sb.append(LINE_SEP).append("... (truncated, ")
+                            .append(len).append(" chars in total)").toString();
+                }
+                if (xml.charAt(i) != '<') {
+                    int end = xml.indexOf('<', i);
+                    if (end == -1) end = len;
+                    int from = i, to = end;
+                    while (from < to && Character.isWhitespace(xml.charAt(from))) from++;
+                    while (to > from && Character.isWhitespace(xml.charAt(to - 1))) to--;
+                    if (from < to) {
+                        if (inline && xml.startsWith("</", end)) {
+                            sb.append(xml, from, to);
+                        } else {
+                            appendXmlLine(sb, depth).append(xml, from, to);
+                            inline = false;
+                        }
+                    }
+                    i = end;
+                    continue;
+                }
+                int end = findXmlTagEnd(xml, i);
+                if (end == -1) return xml;
+                char k = i + 1 < len ? xml.charAt(i + 1) : 0;
+                if (k == '/') {
+                    if (depth == 0) return xml;
+                    int nameStart = stack[(depth - 1) << 1], nameEnd = stack[((depth - 1) << 1) + 1];
+                    int nameLen = nameEnd - nameStart;
+                    if (!xml.regionMatches(i + 2, xml, nameStart, nameLen)
+                            || xmlNameEnd(xml, i + 2) != i + 2 + nameLen) {
+                        return xml;
+                    }
+                    depth--;
+                    if (!inline) appendXmlLine(sb, depth);
+                    sb.append(xml, i, end);
+                    inline = false;
+                } else if (k == '?' || k == '!' || xml.charAt(end - 2) == '/') {
+                    appendXmlLine(sb, depth).append(xml, i, end);
+                    inline = false;
+                } else {
+                    if ((depth << 1) == stack.length) {
+                        int[] grown = new int[stack.length << 1];
+                        System.arraycopy(stack, 0, grown, 0, stack.length);
+                        stack = grown;
+                    }
+                    stack[depth << 1] = i + 1;
+                    stack[(depth << 1) + 1] = xmlNameEnd(xml, i + 1);
+                    appendXmlLine(sb, depth++).append(xml, i, end);
+                    inline = true;
+                }
+                i = end;
+            }
+            return depth == 0 ? sb.toString() : xml;
+        }
+
+        /**
+         * @return '>' 之后的下标，找不到时返回 -1
+         */
+        private static int findXmlTagEnd(final String xml, final int start) {
+            if (xml.startsWith("<!--", start)) {
+                int end = xml.indexOf("-->", start + 4);
+                return end == -1 ? -1 : end + 3;
+            }
+            if (xml.startsWith("<![CDATA[", start)) {
+                int end = xml.indexOf("]]>", start + 9);
+                return end == -1 ? -1 : end + 3;
+            }
+            char quote = 0;
+            for (int i = start + 1, len = xml.length(); i < len; i++) {
+                char c = xml.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) quote = 0;
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private static int xmlNameEnd(final String xml, int i) {
+            for (int len = xml.length(); i < len; i++) {
+                char c = xml.charAt(i);
+                if (c == '>' || c == '/' || Character.isWhitespace(c)) break;
+            }
+            return i;
+        }
+
+        private static StringBuilder appendXmlLine(final StringBuilder sb, final int depth) {
+            if (sb.length() > 0) sb.append(LINE_SEP);
+            for (int i = depth << 1; i > 0; i--) {
+                sb.append(' ');
             }
-            return xml;
+            return sb;
         }
 
         private static String array2String(Object object) {
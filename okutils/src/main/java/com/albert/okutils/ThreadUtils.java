@@ -1,30 +1,48 @@
 package com.albert.okutils;
 
+import android.os.Debug;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import android.view.Choreographer;
 
 import androidx.annotation.CallSuper;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Queue;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * <pre>
@@ -38,20 +56,49 @@ public final class ThreadUtils {
 
     private static final Handler HANDLER = new Handler(Looper.getMainLooper());
 
-    private static final Map<Integer, Map<Integer, ExecutorService>> TYPE_PRIORITY_POOLS = new HashMap<>();
+    private static final int PRIORITY_COUNT = Thread.MAX_PRIORITY - Thread.MIN_PRIORITY + 1;
 
-    private static final Map<Task, ExecutorService> TASK_POOL_MAP = new ConcurrentHashMap<>();
+    private static final int TYPE_COUNT = 5;
+
+    // single, cached, io, cpu and adaptive io pools, indexed by type
+    private static final AtomicReferenceArray<ThreadPoolExecutor4Util> TYPE_POOLS =
+            new AtomicReferenceArray<>(TYPE_COUNT);
+
+    // the views of TYPE_POOLS which submit with priority, indexed by type and priority
+    private static final AtomicReferenceArray<PriorityPool4Util> TYPE_PRIORITY_POOLS =
+            new AtomicReferenceArray<>(TYPE_COUNT * PRIORITY_COUNT);
+
+    // fixed pools, keyed by size
+    private static final ConcurrentHashMap<Integer, ThreadPoolExecutor4Util> FIXED_POOLS = new ConcurrentHashMap<>();
+
+    // the views of FIXED_POOLS, keyed by size and priority
+    private static final ConcurrentHashMap<Long, PriorityPool4Util> FIXED_PRIORITY_POOLS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentHashMap<Task, ExecutorService> TASK_POOL_MAP = new ConcurrentHashMap<>();
 
     private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
-    private static final Timer TIMER = new Timer();
+    private static final HashedWheelTimer4Util TIMER = new HashedWheelTimer4Util();
 
     private static final byte TYPE_SINGLE = -1;
     private static final byte TYPE_CACHED = -2;
     private static final byte TYPE_IO = -4;
     private static final byte TYPE_CPU = -8;
+    private static final byte TYPE_ADAPTIVE_IO = -16;
+
+    private static volatile ForkJoinPool sWorkStealingPool;
+
+    private static volatile int sAdaptiveIoMinSize = CPU_COUNT + 1;
+    private static volatile int sAdaptiveIoMaxSize = 8 * CPU_COUNT;
+    private static volatile OnPoolResizeListener sOnPoolResizeListener;
+    private static volatile CpuTimeSource sCpuTimeSource = CpuTimeSource.DEBUG;
 
     private static Executor sDeliver;
 
+    private static final ConcurrentHashMap<ExecutorService, Executor> POOL_DELIVERS = new ConcurrentHashMap<>();
+
+    private static volatile boolean sMetricsEnabled;
+    private static HashedWheelTimer4Util.Timeout sPoolStatsTimeout;
+
     /**
      * Return whether the thread is the main thread.
      *
@@ -193,6 +240,120 @@ public final class ThreadUtils {
         return getPoolByTypeAndPriority(TYPE_CPU, priority);
     }
 
+    /**
+     * Return an IO thread pool which grows or shrinks its threads between
+     * the limits by the blocking ratio and the throughput of its tasks.
+     * <p>It starts with (2 * CPU_COUNT + 1) threads and decides once a second.</p>
+     *
+     * @return an adaptive IO thread pool
+     */
+    public static ExecutorService getAdaptiveIoPool() {
+        return getPoolByTypeAndPriority(TYPE_ADAPTIVE_IO);
+    }
+
+    /**
+     * Return an IO thread pool which grows or shrinks its threads between
+     * the limits by the blocking ratio and the throughput of its tasks.
+     *
+     * @param priority The priority of thread in the poll.
+     * @return an adaptive IO thread pool
+     */
+    public static ExecutorService getAdaptiveIoPool(@IntRange(from = 1, to = 10) final int priority) {
+        return getPoolByTypeAndPriority(TYPE_ADAPTIVE_IO, priority);
+    }
+
+    /**
+     * Set the limits of the size of adaptive IO thread pools.
+     *
+     * @param minSize The minimum size.
+     * @param maxSize The maximum size.
+     */
+    public static void setAdaptiveIoPoolLimits(@IntRange(from = 1) final int minSize,
+                                               @IntRange(from = 1) final int maxSize) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("minSize: " + minSize + ", maxSize: " + maxSize);
+        }
+        sAdaptiveIoMinSize = minSize;
+        sAdaptiveIoMaxSize = maxSize;
+    }
+
+    /**
+     * Return the recent resize decisions of adaptive IO thread pools.
+     *
+     * @return the decisions, the oldest first
+     */
+    public static List<PoolResizeDecision> getAdaptiveIoDecisions() {
+        List<PoolResizeDecision> decisions = new ArrayList<>();
+        ThreadPoolExecutor4Util pool = TYPE_POOLS.get(getTypeIndex(TYPE_ADAPTIVE_IO));
+        if (pool != null && pool.mAdaptiveController != null) {
+            pool.mAdaptiveController.copyDecisions(decisions);
+        }
+        return decisions;
+    }
+
+    /**
+     * Set the listener of resize decisions of adaptive IO thread pools,
+     * it will be called in cached pool.
+     *
+     * @param listener The listener.
+     */
+    public static void setOnPoolResizeListener(final OnPoolResizeListener listener) {
+        sOnPoolResizeListener = listener;
+    }
+
+    /**
+     * Set the source of the CPU time of threads, which gives the blocking ratio of adaptive pools.
+     * <p>For tests and benchmarks off device, where {@link Debug#threadCpuTimeNanos()} returns 0.</p>
+     *
+     * @param source The source, null to restore {@link Debug#threadCpuTimeNanos()}.
+     */
+    static void setCpuTimeSource(final CpuTimeSource source) {
+        sCpuTimeSource = source == null ? CpuTimeSource.DEBUG : source;
+    }
+
+    /**
+     * Executes the given task in an adaptive IO thread pool.
+     *
+     * @param task The task to execute.
+     * @param <T>  The type of the task's result.
+     */
+    public static <T> void executeByAdaptiveIo(final Task<T> task) {
+        execute(getPoolByTypeAndPriority(TYPE_ADAPTIVE_IO), task);
+    }
+
+    /**
+     * Executes the given task in an adaptive IO thread pool.
+     *
+     * @param task     The task to execute.
+     * @param priority The priority of thread in the poll.
+     * @param <T>      The type of the task's result.
+     */
+    public static <T> void executeByAdaptiveIo(final Task<T> task,
+                                               @IntRange(from = 1, to = 10) final int priority) {
+        execute(getPoolByTypeAndPriority(TYPE_ADAPTIVE_IO, priority), task);
+    }
+
+    /**
+     * Return a work-stealing pool which parallelism equals CPU_COUNT,
+     * each thread has its own deque and steals from the others when idle.
+     * <p>It suits recursive fork/join work and data parallel work.</p>
+     *
+     * @return a work-stealing pool
+     */
+    public static ForkJoinPool getWorkStealingPool() {
+        ForkJoinPool pool = sWorkStealingPool;
+        if (pool == null) {
+            synchronized (ThreadUtils.class) {
+                pool = sWorkStealingPool;
+                if (pool == null) {
+                    pool = new ForkJoinPool(CPU_COUNT, new StealThreadFactory(), null, false);
+                    sWorkStealingPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
     /**
      * Executes the given task in a fixed thread pool.
      *
@@ -796,6 +957,16 @@ public final class ThreadUtils {
         );
     }
 
+    /**
+     * Executes the given task in the work-stealing pool.
+     *
+     * @param task The task to execute.
+     * @param <T>  The type of the task's result.
+     */
+    public static <T> void executeByWorkStealing(final Task<T> task) {
+        execute(getWorkStealingPool(), task);
+    }
+
     /**
      * Executes the given task in a custom thread pool.
      *
@@ -899,7 +1070,7 @@ public final class ThreadUtils {
      * @param executorService The pool.
      */
     public static void cancel(ExecutorService executorService) {
-        if (executorService instanceof ThreadPoolExecutor4Util) {
+        if (executorService instanceof PriorityPool4Util) {
             for (Map.Entry<Task, ExecutorService> taskTaskInfoEntry : TASK_POOL_MAP.entrySet()) {
                 if (taskTaskInfoEntry.getValue() == executorService) {
                     cancel(taskTaskInfoEntry.getKey());
@@ -919,6 +1090,345 @@ public final class ThreadUtils {
         sDeliver = deliver;
     }
 
+    /**
+     * Set the deliver of the tasks executed in the given pool,
+     * the deliver of task takes precedence over it.
+     * <p>The pools of one type with different priorities share their threads,
+     * so it applies to all of them, such as {@link #getIoPool()} and {@link #getIoPool(int)}.</p>
+     *
+     * @param pool    The pool.
+     * @param deliver The deliver, null to use the global deliver.
+     */
+    public static void setDeliver(final ExecutorService pool, final Executor deliver) {
+        if (deliver == null) {
+            POOL_DELIVERS.remove(getDeliverKey(pool));
+        } else {
+            POOL_DELIVERS.put(getDeliverKey(pool), deliver);
+        }
+    }
+
+    private static ExecutorService getDeliverKey(final ExecutorService pool) {
+        return pool instanceof PriorityPool4Util ? ((PriorityPool4Util) pool).mPool : pool;
+    }
+
+    /**
+     * Return the deliver which batches the results into one main thread dispatch per frame.
+     * <p>Results which exceed the budget of a frame are carried over to the next frame,
+     * set it by {@link #setFrameDeliverBudget(long, TimeUnit)}.</p>
+     * <p>Use it as the deliver of tasks or pools which may complete in bursts,
+     * such as loading thumbnails of a list.</p>
+     *
+     * @return the frame deliver
+     */
+    public static Executor getFrameDeliver() {
+        return FrameDeliver.INSTANCE;
+    }
+
+    /**
+     * Set the time budget of the frame deliver in one frame, 4ms by default.
+     *
+     * @param budget The budget.
+     * @param unit   The time unit of the budget parameter.
+     */
+    public static void setFrameDeliverBudget(final long budget, final TimeUnit unit) {
+        FrameDeliver.INSTANCE.mBudgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * Run the consumer over [from, to) in the work-stealing pool and wait for it.
+     * <p>The range is split into chunks by CPU_COUNT automatically,
+     * don't call it in main thread.</p>
+     *
+     * @param from     The start index, inclusive.
+     * @param to       The end index, exclusive.
+     * @param consumer The consumer of each chunk.
+     */
+    public static void parallelForRange(final int from, final int to, final RangeConsumer consumer) {
+        if (to <= from) return;
+        int threshold = getChunkSize(to - from);
+        if (threshold >= to - from) {
+            consumer.accept(from, to);
+            return;
+        }
+        getWorkStealingPool().invoke(new RangeAction(from, to, threshold, consumer));
+    }
+
+    /**
+     * Run the consumer with each item of the list in the work-stealing pool and wait for it.
+     *
+     * @param list     The list.
+     * @param consumer The consumer.
+     * @param <T>      The type of item.
+     */
+    public static <T> void parallelForEach(final List<T> list, final Utils.Consumer<T> consumer) {
+        if (list == null || list.isEmpty()) return;
+        final List<T> items = toRandomAccess(list);
+        parallelForRange(0, items.size(), new RangeConsumer() {
+            @Override
+            public void accept(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    consumer.accept(items.get(i));
+                }
+            }
+        });
+    }
+
+    /**
+     * Map each item of the list in the work-stealing pool and wait for it.
+     *
+     * @param list     The list.
+     * @param function The function of mapping.
+     * @param <T>      The type of item.
+     * @param <R>      The type of result.
+     * @return the results in the order of the list
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, R> List<R> parallelMap(final List<T> list, final Function<T, R> function) {
+        if (list == null || list.isEmpty()) return new ArrayList<>();
+        final List<T> items = toRandomAccess(list);
+        final Object[] results = new Object[items.size()];
+        parallelForRange(0, items.size(), new RangeConsumer() {
+            @Override
+            public void accept(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    results[i] = function.apply(items.get(i));
+                }
+            }
+        });
+        return new ArrayList<>((List<R>) Arrays.asList(results));
+    }
+
+    /**
+     * Map each value of the array in the work-stealing pool and wait for it.
+     *
+     * @param array  The array.
+     * @param mapper The mapper.
+     * @return the mapped array
+     */
+    public static int[] parallelMap(final int[] array, final IntMapper mapper) {
+        if (array == null) return null;
+        final int[] results = new int[array.length];
+        parallelForRange(0, array.length, new RangeConsumer() {
+            @Override
+            public void accept(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    results[i] = mapper.map(array[i]);
+                }
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Reduce the list in the work-stealing pool and wait for it.
+     * <p>The reducer must be associative and the identity must be its identity value.</p>
+     *
+     * @param list     The list.
+     * @param identity The identity value.
+     * @param reducer  The reducer.
+     * @param <T>      The type of item.
+     * @return the reduced value
+     */
+    public static <T> T parallelReduce(final List<T> list, final T identity, final Reducer<T> reducer) {
+        if (list == null || list.isEmpty()) return identity;
+        final List<T> items = toRandomAccess(list);
+        int threshold = getChunkSize(items.size());
+        return getWorkStealingPool().invoke(new ReduceTask<>(0, items.size(), threshold, new RangeReducer<T>() {
+            @Override
+            public T reduceRange(int from, int to) {
+                T result = identity;
+                for (int i = from; i < to; i++) {
+                    result = reducer.reduce(result, items.get(i));
+                }
+                return result;
+            }
+
+            @Override
+            public T combine(T left, T right) {
+                return reducer.reduce(left, right);
+            }
+        }));
+    }
+
+    /**
+     * Reduce the array in the work-stealing pool and wait for it.
+     * <p>The reducer must be associative and the identity must be its identity value.</p>
+     *
+     * @param array    The array.
+     * @param identity The identity value.
+     * @param reducer  The reducer.
+     * @return the reduced value
+     */
+    public static long parallelReduce(final long[] array, final long identity, final LongReducer reducer) {
+        if (array == null || array.length == 0) return identity;
+        int threshold = getChunkSize(array.length);
+        return getWorkStealingPool().invoke(new ReduceTask<>(0, array.length, threshold, new RangeReducer<Long>() {
+            @Override
+            public Long reduceRange(int from, int to) {
+                long result = identity;
+                for (int i = from; i < to; i++) {
+                    result = reducer.reduce(result, array[i]);
+                }
+                return result;
+            }
+
+            @Override
+            public Long combine(Long left, Long right) {
+                return reducer.reduce(left, right);
+            }
+        }));
+    }
+
+    private static int getChunkSize(final int size) {
+        // 4 chunks per core leaves room for stealing when chunks are uneven
+        int chunks = CPU_COUNT * 4;
+        return Math.max(1, (size + chunks - 1) / chunks);
+    }
+
+    private static <T> List<T> toRandomAccess(final List<T> list) {
+        if (list instanceof RandomAccess) return list;
+        return new ArrayList<>(list);
+    }
+
+    /**
+     * Run the callable in the given pool and return its stage.
+     * <p>Stages chain without hopping to main thread, only the listener
+     * of {@link Stage#whenCompleteOnUi(Stage.OnCompleteListener)} runs in it.</p>
+     *
+     * @param pool     The pool.
+     * @param callable The callable.
+     * @param <T>      The type of the result.
+     * @return the stage
+     */
+    public static <T> Stage<T> supplyAsync(final Executor pool, final Callable<T> callable) {
+        Stage<T> stage = new Stage<>();
+        stage.runIn(pool, callable);
+        return stage;
+    }
+
+    /**
+     * Return a stage which completes when all of the given stages complete,
+     * or fails as soon as one of them fails.
+     *
+     * @param stages The stages.
+     * @return the stage
+     */
+    public static Stage<Void> allOf(final Stage<?>... stages) {
+        final Stage<Void> next = new Stage<>(stages);
+        if (stages.length == 0) {
+            next.complete(null);
+            return next;
+        }
+        final AtomicInteger remaining = new AtomicInteger(stages.length);
+        for (final Stage<?> stage : stages) {
+            stage.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    Throwable t = stage.getFailure();
+                    if (t != null) {
+                        next.propagate(t);
+                    } else if (remaining.decrementAndGet() == 0) {
+                        next.complete(null);
+                    }
+                }
+            });
+        }
+        return next;
+    }
+
+    /**
+     * Return a stage which completes with the result of the first completed stage.
+     *
+     * @param stages The stages.
+     * @return the stage
+     */
+    public static Stage<Object> anyOf(final Stage<?>... stages) {
+        final Stage<Object> next = new Stage<>(stages);
+        for (final Stage<?> stage : stages) {
+            stage.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    Throwable t = stage.getFailure();
+                    if (t != null) {
+                        next.propagate(t);
+                    } else {
+                        next.complete(stage.getValue());
+                    }
+                }
+            });
+        }
+        return next;
+    }
+
+    /**
+     * Set whether to record the metrics of ThreadUtils's pools.
+     * <p>It costs one volatile read per task when disabled.</p>
+     *
+     * @param enabled True to enable, false otherwise.
+     */
+    public static void setMetricsEnabled(final boolean enabled) {
+        sMetricsEnabled = enabled;
+    }
+
+    /**
+     * Return whether the metrics of ThreadUtils's pools is recording.
+     *
+     * @return {@code true}: yes<br>{@code false}: no
+     */
+    public static boolean isMetricsEnabled() {
+        return sMetricsEnabled;
+    }
+
+    /**
+     * Return the snapshot of the stats of all created pools of ThreadUtils.
+     *
+     * @return the stats of pools
+     */
+    public static List<PoolStats> snapshotPoolStats() {
+        List<PoolStats> stats = new ArrayList<>();
+        for (int i = 0; i < TYPE_POOLS.length(); i++) {
+            ThreadPoolExecutor4Util pool = TYPE_POOLS.get(i);
+            if (pool != null) {
+                stats.add(pool.snapshot());
+            }
+        }
+        for (ThreadPoolExecutor4Util pool : FIXED_POOLS.values()) {
+            stats.add(pool.snapshot());
+        }
+        return stats;
+    }
+
+    /**
+     * Set the listener of the stats of pools which will be called in cached pool periodically.
+     * <p>Metrics will be enabled if the listener isn't null.</p>
+     *
+     * @param listener The listener, null to remove.
+     * @param period   The period between successive calls.
+     * @param unit     The time unit of the period parameter.
+     */
+    public static synchronized void setOnPoolStatsListener(final OnPoolStatsListener listener,
+                                                           final long period,
+                                                           final TimeUnit unit) {
+        if (sPoolStatsTimeout != null) {
+            sPoolStatsTimeout.cancel();
+            sPoolStatsTimeout = null;
+        }
+        if (listener == null) return;
+        setMetricsEnabled(true);
+        final Runnable callback = new Runnable() {
+            @Override
+            public void run() {
+                listener.onPoolStats(snapshotPoolStats());
+            }
+        };
+        sPoolStatsTimeout = TIMER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                getPoolByTypeAndPriority(TYPE_CACHED).execute(callback);
+            }
+        }, unit.toNanos(period), unit.toNanos(period));
+    }
+
     private static <T> void execute(final ExecutorService pool, final Task<T> task) {
         execute(pool, task, 0, 0, null);
     }
@@ -940,34 +1450,29 @@ public final class ThreadUtils {
 
     private static <T> void execute(final ExecutorService pool, final Task<T> task,
                                     long delay, final long period, final TimeUnit unit) {
-        synchronized (TASK_POOL_MAP) {
-            if (TASK_POOL_MAP.get(task) != null) {
-                Log.e("ThreadUtils", "Task can only be executed once.");
-                return;
-            }
-            TASK_POOL_MAP.put(task, pool);
+        if (TASK_POOL_MAP.putIfAbsent(task, pool) != null) {
+            Log.e("ThreadUtils", "Task can only be executed once.");
+            return;
         }
         if (period == 0) {
             if (delay == 0) {
                 pool.execute(task);
             } else {
-                TimerTask timerTask = new TimerTask() {
+                task.setScheduleTimeout(TIMER.schedule(new Runnable() {
                     @Override
                     public void run() {
                         pool.execute(task);
                     }
-                };
-                TIMER.schedule(timerTask, unit.toMillis(delay));
+                }, unit.toNanos(delay), 0));
             }
         } else {
             task.setSchedule(true);
-            TimerTask timerTask = new TimerTask() {
+            task.setScheduleTimeout(TIMER.schedule(new Runnable() {
                 @Override
                 public void run() {
                     pool.execute(task);
                 }
-            };
-            TIMER.scheduleAtFixedRate(timerTask, unit.toMillis(delay), unit.toMillis(period));
+            }, unit.toNanos(delay), unit.toNanos(period)));
         }
     }
 
@@ -975,58 +1480,108 @@ public final class ThreadUtils {
         return getPoolByTypeAndPriority(type, Thread.NORM_PRIORITY);
     }
 
-    private static ExecutorService getPoolByTypeAndPriority(final int type, final int priority) {
-        synchronized (TYPE_PRIORITY_POOLS) {
-            ExecutorService pool;
-            Map<Integer, ExecutorService> priorityPools = TYPE_PRIORITY_POOLS.get(type);
-            if (priorityPools == null) {
-                priorityPools = new ConcurrentHashMap<>();
-                pool = ThreadPoolExecutor4Util.createPool(type, priority);
-                priorityPools.put(priority, pool);
-                TYPE_PRIORITY_POOLS.put(type, priorityPools);
-            } else {
-                pool = priorityPools.get(priority);
-                if (pool == null) {
-                    pool = ThreadPoolExecutor4Util.createPool(type, priority);
-                    priorityPools.put(priority, pool);
-                }
-            }
-            return pool;
+    private static ExecutorService getPoolByTypeAndPriority(final int type, int priority) {
+        priority = Math.max(Thread.MIN_PRIORITY, Math.min(priority, Thread.MAX_PRIORITY));
+        int typeIndex = getTypeIndex(type);
+        if (typeIndex < 0) {
+            Long key = ((long) type << 32) | priority;
+            PriorityPool4Util pool = FIXED_PRIORITY_POOLS.get(key);
+            if (pool != null) return pool;
+            pool = new PriorityPool4Util(getFixedPoolBySize(type), priority);
+            PriorityPool4Util prev = FIXED_PRIORITY_POOLS.putIfAbsent(key, pool);
+            return prev == null ? pool : prev;
+        }
+        int index = typeIndex * PRIORITY_COUNT + priority - Thread.MIN_PRIORITY;
+        PriorityPool4Util pool = TYPE_PRIORITY_POOLS.get(index);
+        if (pool != null) return pool;
+        pool = new PriorityPool4Util(getPoolByTypeIndex(type, typeIndex), priority);
+        if (TYPE_PRIORITY_POOLS.compareAndSet(index, null, pool)) return pool;
+        return TYPE_PRIORITY_POOLS.get(index);
+    }
+
+    private static ThreadPoolExecutor4Util getPoolByTypeIndex(final int type, final int typeIndex) {
+        ThreadPoolExecutor4Util pool = TYPE_POOLS.get(typeIndex);
+        if (pool != null) return pool;
+        // the loser of the race shuts down its pool, no thread has been started in it yet
+        pool = ThreadPoolExecutor4Util.createPool(type);
+        if (TYPE_POOLS.compareAndSet(typeIndex, null, pool)) return pool;
+        // shutdown also stops the timer of its adaptive controller
+        pool.shutdown();
+        return TYPE_POOLS.get(typeIndex);
+    }
+
+    private static ThreadPoolExecutor4Util getFixedPoolBySize(final int size) {
+        ThreadPoolExecutor4Util pool = FIXED_POOLS.get(size);
+        if (pool != null) return pool;
+        pool = ThreadPoolExecutor4Util.createPool(size);
+        ThreadPoolExecutor4Util prev = FIXED_POOLS.putIfAbsent(size, pool);
+        if (prev == null) return pool;
+        pool.shutdown();
+        return prev;
+    }
+
+    private static int getTypeIndex(final int type) {
+        switch (type) {
+            case TYPE_SINGLE:
+                return 0;
+            case TYPE_CACHED:
+                return 1;
+            case TYPE_IO:
+                return 2;
+            case TYPE_CPU:
+                return 3;
+            case TYPE_ADAPTIVE_IO:
+                return 4;
+            default:
+                return -1;
         }
     }
 
     static final class ThreadPoolExecutor4Util extends ThreadPoolExecutor {
 
-        private static ExecutorService createPool(final int type, final int priority) {
+        private static ThreadPoolExecutor4Util createPool(final int type) {
+            // the priority of thread is set per task, see PriorityRunnable
+            final int priority = Thread.NORM_PRIORITY;
             switch (type) {
                 case TYPE_SINGLE:
                     return new ThreadPoolExecutor4Util(1, 1,
                             0L, TimeUnit.MILLISECONDS,
-                            new LinkedBlockingQueue4Util(),
+                            new PriorityBlockingQueue4Util(),
                             new UtilsThreadFactory("single", priority)
                     );
                 case TYPE_CACHED:
                     return new ThreadPoolExecutor4Util(0, 128,
                             60L, TimeUnit.SECONDS,
-                            new LinkedBlockingQueue4Util(true),
+                            new PriorityBlockingQueue4Util(true),
                             new UtilsThreadFactory("cached", priority)
                     );
                 case TYPE_IO:
                     return new ThreadPoolExecutor4Util(2 * CPU_COUNT + 1, 2 * CPU_COUNT + 1,
                             30, TimeUnit.SECONDS,
-                            new LinkedBlockingQueue4Util(),
+                            new PriorityBlockingQueue4Util(),
                             new UtilsThreadFactory("io", priority)
                     );
                 case TYPE_CPU:
                     return new ThreadPoolExecutor4Util(CPU_COUNT + 1, 2 * CPU_COUNT + 1,
                             30, TimeUnit.SECONDS,
-                            new LinkedBlockingQueue4Util(true),
+                            new PriorityBlockingQueue4Util(true),
                             new UtilsThreadFactory("cpu", priority)
                     );
+                case TYPE_ADAPTIVE_IO:
+                    int size = Math.max(sAdaptiveIoMinSize, Math.min(2 * CPU_COUNT + 1, sAdaptiveIoMaxSize));
+                    ThreadPoolExecutor4Util pool = new ThreadPoolExecutor4Util(size, size,
+                            30, TimeUnit.SECONDS,
+                            new PriorityBlockingQueue4Util(),
+                            new UtilsThreadFactory("adaptive-io", priority)
+                    );
+                    AdaptiveController controller = new AdaptiveController(pool.mThreadFactory.prefix);
+                    pool.mAdaptiveController = controller;
+                    controller.start(pool);
+                    return pool;
                 default:
                     return new ThreadPoolExecutor4Util(type, type,
                             0L, TimeUnit.MILLISECONDS,
-                            new LinkedBlockingQueue4Util(),
+                            new PriorityBlockingQueue4Util(),
                             new UtilsThreadFactory("fixed(" + type + ")", priority)
                     );
             }
@@ -1034,12 +1589,26 @@ public final class ThreadUtils {
 
         private final AtomicInteger mSubmittedCount = new AtomicInteger();
 
-        private LinkedBlockingQueue4Util mWorkQueue;
+        private PriorityBlockingQueue4Util mWorkQueue;
+
+        private final AtomicLong mSequence = new AtomicLong();
+
+        private final UtilsThreadFactory mThreadFactory;
+
+        private volatile AdaptiveController mAdaptiveController;
+
+        private final AtomicLong mSubmitted = new AtomicLong();
+        private final AtomicLong mCompleted = new AtomicLong();
+        private final AtomicLong mFailed = new AtomicLong();
+        private final AtomicLong mCancelled = new AtomicLong();
+        private final AtomicLong mRejected = new AtomicLong();
+        private final LatencyHistogram mWaitLatency = new LatencyHistogram();
+        private final LatencyHistogram mRunLatency = new LatencyHistogram();
 
         ThreadPoolExecutor4Util(int corePoolSize, int maximumPoolSize,
                                 long keepAliveTime, TimeUnit unit,
-                                LinkedBlockingQueue4Util workQueue,
-                                ThreadFactory threadFactory) {
+                                PriorityBlockingQueue4Util workQueue,
+                                UtilsThreadFactory threadFactory) {
             super(corePoolSize, maximumPoolSize,
                     keepAliveTime, unit,
                     workQueue,
@@ -1047,6 +1616,62 @@ public final class ThreadUtils {
             );
             workQueue.mPool = this;
             mWorkQueue = workQueue;
+            mThreadFactory = threadFactory;
+        }
+
+        @Override
+        public void shutdown() {
+            super.shutdown();
+            stopAdaptiveController();
+        }
+
+        @NonNull
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> runnables = super.shutdownNow();
+            stopAdaptiveController();
+            return runnables;
+        }
+
+        @Override
+        protected void terminated() {
+            stopAdaptiveController();
+            super.terminated();
+        }
+
+        private void stopAdaptiveController() {
+            AdaptiveController controller = mAdaptiveController;
+            if (controller != null) {
+                controller.stop();
+            }
+        }
+
+        private PoolStats snapshot() {
+            return new PoolStats(mThreadFactory.prefix, mThreadFactory.priority,
+                    getQueue().size(), getActiveCount(), getPoolSize(),
+                    mSubmitted.get(), mCompleted.get(), mFailed.get(),
+                    mCancelled.get(), mRejected.get(),
+                    mWaitLatency.snapshot(), mRunLatency.snapshot()
+            );
+        }
+
+        @Override
+        protected void beforeExecute(Thread t, Runnable r) {
+            AdaptiveController controller = mAdaptiveController;
+            if (controller != null) {
+                controller.beforeTask();
+            }
+            if (r instanceof PriorityRunnable) {
+                PriorityRunnable prioritized = (PriorityRunnable) r;
+                if (t.getPriority() != prioritized.mPriority) {
+                    t.setPriority(prioritized.mPriority);
+                }
+                if (prioritized.mMetered) {
+                    prioritized.mStartNanos = System.nanoTime();
+                    mWaitLatency.record(prioritized.mStartNanos - prioritized.mSubmitNanos);
+                }
+            }
+            super.beforeExecute(t, r);
         }
 
         private int getSubmittedCount() {
@@ -1056,12 +1681,60 @@ public final class ThreadUtils {
         @Override
         protected void afterExecute(Runnable r, Throwable t) {
             mSubmittedCount.decrementAndGet();
+            AdaptiveController controller = mAdaptiveController;
+            if (controller != null) {
+                controller.afterTask();
+            }
+            if (r instanceof PriorityRunnable) {
+                PriorityRunnable prioritized = (PriorityRunnable) r;
+                if (prioritized.mMetered) {
+                    mRunLatency.record(System.nanoTime() - prioritized.mStartNanos);
+                    recordResult(prioritized.mCommand, t);
+                }
+                Thread thread = Thread.currentThread();
+                if (thread.getPriority() != mThreadFactory.priority) {
+                    thread.setPriority(mThreadFactory.priority);
+                }
+            }
             super.afterExecute(r, t);
         }
 
+        private void recordResult(Runnable command, Throwable t) {
+            if (t != null) {
+                mFailed.incrementAndGet();
+                return;
+            }
+            if (command instanceof Task) {
+                int state = ((Task) command).state.get();
+                if (state == Task.EXCEPTIONAL) {
+                    mFailed.incrementAndGet();
+                    return;
+                }
+                if (state >= Task.CANCELLED) {
+                    mCancelled.incrementAndGet();
+                    return;
+                }
+            }
+            mCompleted.incrementAndGet();
+        }
+
         @Override
         public void execute(@NonNull Runnable command) {
-            if (this.isShutdown()) return;
+            execute(command, mThreadFactory.priority);
+        }
+
+        void execute(@NonNull Runnable command, final int priority) {
+            boolean metered = sMetricsEnabled;
+            if (this.isShutdown()) {
+                if (metered) {
+                    mRejected.incrementAndGet();
+                }
+                return;
+            }
+            if (metered) {
+                mSubmitted.incrementAndGet();
+            }
+            command = new PriorityRunnable(command, priority, mSequence.getAndIncrement(), metered);
             mSubmittedCount.incrementAndGet();
             try {
                 super.execute(command);
@@ -1070,28 +1743,308 @@ public final class ThreadUtils {
                 mWorkQueue.offer(command);
             } catch (Throwable t) {
                 mSubmittedCount.decrementAndGet();
+                if (metered) {
+                    mRejected.incrementAndGet();
+                }
             }
         }
     }
 
-    private static final class LinkedBlockingQueue4Util extends LinkedBlockingQueue<Runnable> {
+    /**
+     * Resize the pool by hill climbing.
+     * <p>The blocking ratio of tasks gives the target size which keeps all cores busy,
+     * and a growth which doesn't raise the throughput is taken back.</p>
+     */
+    static final class AdaptiveController {
 
-        private volatile ThreadPoolExecutor4Util mPool;
+        private static final long INTERVAL_MILLIS = 1000;
+        private static final int MAX_DECISION_COUNT = 32;
+        private static final double MIN_GAIN = 1.05;
 
-        private int mCapacity = Integer.MAX_VALUE;
+        private static final ThreadLocal<long[]> START_TIMES = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[2];
+            }
+        };
+
+        private final String mName;
+        private final AtomicLong mCompleted = new AtomicLong();
+        private final AtomicLong mWallNanos = new AtomicLong();
+        private final AtomicLong mCpuNanos = new AtomicLong();
+        private final PoolResizeDecision[] mDecisions = new PoolResizeDecision[MAX_DECISION_COUNT];
+
+        // only touched in tick and decide
+        private int mDecisionCount;
+        private long mLastTickNanos = System.nanoTime();
+        private double mLastThroughput;
+        private int mLastDelta;
+
+        private volatile HashedWheelTimer4Util.Timeout mTimeout;
+
+        AdaptiveController(String name) {
+            mName = name;
+        }
+
+        void start(final ThreadPoolExecutor4Util pool) {
+            final Runnable tick = new Runnable() {
+                @Override
+                public void run() {
+                    tick(pool);
+                }
+            };
+            mTimeout = TIMER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (pool.isShutdown()) {
+                        stop();
+                        return;
+                    }
+                    getPoolByTypeAndPriority(TYPE_CACHED).execute(tick);
+                }
+            }, TimeUnit.MILLISECONDS.toNanos(INTERVAL_MILLIS), TimeUnit.MILLISECONDS.toNanos(INTERVAL_MILLIS));
+        }
+
+        void stop() {
+            HashedWheelTimer4Util.Timeout timeout = mTimeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        void beforeTask() {
+            long[] start = START_TIMES.get();
+            start[0] = System.nanoTime();
+            start[1] = sCpuTimeSource.currentThreadCpuTimeNanos();
+        }
+
+        void afterTask() {
+            long[] start = START_TIMES.get();
+            long wall = System.nanoTime() - start[0];
+            long cpu = start[1] < 0 ? -1 : sCpuTimeSource.currentThreadCpuTimeNanos() - start[1];
+            mCompleted.incrementAndGet();
+            if (cpu >= 0) {
+                mWallNanos.addAndGet(wall);
+                mCpuNanos.addAndGet(Math.min(cpu, wall));
+            }
+        }
+
+        private synchronized void tick(final ThreadPoolExecutor4Util pool) {
+            if (pool.isShutdown()) {
+                stop();
+                return;
+            }
+            long now = System.nanoTime();
+            long elapsed = Math.max(now - mLastTickNanos, 1);
+            mLastTickNanos = now;
+            long completed = mCompleted.getAndSet(0);
+            long wall = mWallNanos.getAndSet(0);
+            long cpu = mCpuNanos.getAndSet(0);
+            double throughput = completed * 1e9 / elapsed;
+            double blockingRatio = wall == 0 ? 0 : 1 - (double) cpu / wall;
+            int current = pool.getCorePoolSize();
+            final PoolResizeDecision decision = decide(current, pool.getQueue().size(), pool.getActiveCount(),
+                    throughput, blockingRatio, sAdaptiveIoMinSize, sAdaptiveIoMaxSize);
+            int next = decision.getNewSize();
+            if (next > current) {
+                pool.setMaximumPoolSize(next);
+                pool.setCorePoolSize(next);
+            } else if (next < current) {
+                pool.setCorePoolSize(next);
+                pool.setMaximumPoolSize(next);
+            }
+            if (next == current && completed == 0) return;
+            mDecisions[mDecisionCount++ % MAX_DECISION_COUNT] = decision;
+            OnPoolResizeListener listener = sOnPoolResizeListener;
+            if (listener != null) {
+                listener.onPoolResize(decision);
+            }
+        }
+
+        /**
+         * Choose the next size from the stats of the last interval and the previous decision.
+         */
+        synchronized PoolResizeDecision decide(final int current, final int queueSize, final int activeCount,
+                                               final double throughput, final double blockingRatio,
+                                               final int min, final int max) {
+            int step = Math.max(1, CPU_COUNT / 2);
+            int next;
+            String reason;
+            if (queueSize == 0 && activeCount < current) {
+                next = current - 1;
+                reason = "idle";
+            } else if (mLastDelta > 0 && throughput < mLastThroughput * MIN_GAIN) {
+                next = current - step;
+                reason = "growth didn't raise throughput";
+            } else {
+                int target = (int) Math.ceil(CPU_COUNT / Math.max(1 - blockingRatio, 0.05));
+                if (target > current) {
+                    next = current + step;
+                    reason = "blocking ratio wants " + target;
+                } else if (target < current) {
+                    next = current - step;
+                    reason = "blocking ratio wants " + target;
+                } else {
+                    next = current;
+                    reason = "steady";
+                }
+            }
+            next = Math.max(min, Math.min(next, max));
+            mLastDelta = next - current;
+            mLastThroughput = throughput;
+            return new PoolResizeDecision(System.currentTimeMillis(), mName, current, next,
+                    throughput, blockingRatio, queueSize, reason);
+        }
+
+        synchronized void copyDecisions(final List<PoolResizeDecision> out) {
+            int count = Math.min(mDecisionCount, MAX_DECISION_COUNT);
+            for (int i = mDecisionCount - count; i < mDecisionCount; i++) {
+                out.add(mDecisions[i % MAX_DECISION_COUNT]);
+            }
+        }
+    }
+
+    /**
+     * The queued form of a command, ordered by priority with aging and then FIFO.
+     * <p>The key is the submit time moved earlier by {@link #AGING_NANOS} per priority level,
+     * so a task overtakes the lower ones submitted at most that long before it,
+     * and a waiting task can not be starved.</p>
+     */
+    private static final class PriorityRunnable implements Runnable, Comparable<PriorityRunnable> {
+
+        private static final long AGING_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+        private final Runnable mCommand;
+        private final int mPriority;
+        private final long mSequence;
+        private final boolean mMetered;
+        private final long mSubmitNanos = System.nanoTime();
+        private final long mKey;
+        private long mStartNanos;
+
+        PriorityRunnable(Runnable command, int priority, long sequence, boolean metered) {
+            mCommand = command;
+            mPriority = priority;
+            mSequence = sequence;
+            mMetered = metered;
+            mKey = mSubmitNanos - (priority - Thread.NORM_PRIORITY) * AGING_NANOS;
+        }
+
+        @Override
+        public void run() {
+            mCommand.run();
+        }
+
+        @Override
+        public int compareTo(@NonNull PriorityRunnable o) {
+            // compare by difference, nanoTime may overflow
+            long diff = mKey - o.mKey;
+            if (diff != 0) return diff < 0 ? -1 : 1;
+            return mSequence < o.mSequence ? -1 : (mSequence == o.mSequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * The view of a pool which submits commands with the given priority.
+     */
+    private static final class PriorityPool4Util extends AbstractExecutorService {
+
+        private final ThreadPoolExecutor4Util mPool;
+        private final int mPriority;
+
+        PriorityPool4Util(ThreadPoolExecutor4Util pool, int priority) {
+            mPool = pool;
+            mPriority = priority;
+        }
 
-        LinkedBlockingQueue4Util() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mPool.execute(command, mPriority);
+        }
+
+        @Override
+        public void shutdown() {
+            mPool.shutdown();
+        }
+
+        @NonNull
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> runnables = mPool.shutdownNow();
+            List<Runnable> commands = new ArrayList<>(runnables.size());
+            for (Runnable runnable : runnables) {
+                commands.add(runnable instanceof PriorityRunnable ? ((PriorityRunnable) runnable).mCommand : runnable);
+            }
+            return commands;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return mPool.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return mPool.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+            return mPool.awaitTermination(timeout, unit);
+        }
+    }
+
+    /**
+     * A lock-free histogram of latency, the upper bound of bucket i is 2^i microseconds.
+     */
+    private static final class LatencyHistogram {
+
+        private static final int BUCKET_COUNT = 32;
+
+        private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mSumMicros = new AtomicLong();
+        private final AtomicLong mMaxMicros = new AtomicLong();
+
+        void record(final long nanos) {
+            long micros = Math.max(nanos, 0) / 1000;
+            int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            mBuckets.incrementAndGet(Math.min(bucket, BUCKET_COUNT - 1));
+            mCount.incrementAndGet();
+            mSumMicros.addAndGet(micros);
+            long max;
+            while (micros > (max = mMaxMicros.get())) {
+                if (mMaxMicros.compareAndSet(max, micros)) break;
+            }
+        }
+
+        LatencyStats snapshot() {
+            long[] buckets = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] = mBuckets.get(i);
+            }
+            return new LatencyStats(mCount.get(), mSumMicros.get(), mMaxMicros.get(), buckets);
+        }
+    }
+
+    private static final class PriorityBlockingQueue4Util extends PriorityBlockingQueue<Runnable> {
+
+        private volatile ThreadPoolExecutor4Util mPool;
+
+        private int mCapacity = Integer.MAX_VALUE;
+
+        PriorityBlockingQueue4Util() {
             super();
         }
 
-        LinkedBlockingQueue4Util(boolean isAddSubThreadFirstThenAddQueue) {
+        PriorityBlockingQueue4Util(boolean isAddSubThreadFirstThenAddQueue) {
             super();
             if (isAddSubThreadFirstThenAddQueue) {
                 mCapacity = 0;
             }
         }
 
-        LinkedBlockingQueue4Util(int capacity) {
+        PriorityBlockingQueue4Util(int capacity) {
             super();
             mCapacity = capacity;
         }
@@ -1111,6 +2064,7 @@ public final class ThreadUtils {
             implements ThreadFactory {
         private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
         private static final long serialVersionUID = -9209200509960368598L;
+        private final String prefix;
         private final String namePrefix;
         private final int priority;
         private final boolean isDaemon;
@@ -1120,6 +2074,7 @@ public final class ThreadUtils {
         }
 
         UtilsThreadFactory(String prefix, int priority, boolean isDaemon) {
+            this.prefix = prefix;
             namePrefix = prefix + "-pool-" +
                     POOL_NUMBER.getAndIncrement() +
                     "-thread-";
@@ -1151,6 +2106,240 @@ public final class ThreadUtils {
         }
     }
 
+    /**
+     * A hashed timing wheel which replaces {@link java.util.Timer} for delayed and fix rate tasks.
+     * <p>Schedule and cancel are O(1), expired actions are only handed off to their pool, so one
+     * slow task can not hold up the others. Fix rate deadlines are computed from the first
+     * deadline, so the period does not drift. Tick duration is 10 ms.</p>
+     */
+    static final class HashedWheelTimer4Util implements Runnable {
+
+        private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+        private static final int WHEEL_SIZE = 512;
+        private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+        private static final int MAX_TRANSFER_COUNT = 100000;
+
+        private final Bucket[] mWheel = new Bucket[WHEEL_SIZE];
+        private final Queue<Timeout> mPending = new ConcurrentLinkedQueue<>();
+        private final Queue<Timeout> mCancelled = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean mStarted = new AtomicBoolean();
+        private final long mOrigin = System.nanoTime();
+        private final Thread mWorker;
+
+        private volatile boolean mIdle;
+        // only touched by the worker thread
+        private long mTick;
+        private int mCount;
+
+        HashedWheelTimer4Util() {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                mWheel[i] = new Bucket();
+            }
+            mWorker = new UtilsThreadFactory("timer", Thread.NORM_PRIORITY, true).newThread(this);
+        }
+
+        /**
+         * Schedule the action.
+         *
+         * @param action      The action to run on the timer thread, it must be fast.
+         * @param delayNanos  The delay in nanoseconds.
+         * @param periodNanos The period in nanoseconds, 0 for one-shot.
+         * @return the timeout which can be cancelled
+         */
+        Timeout schedule(final Runnable action, final long delayNanos, final long periodNanos) {
+            if (mStarted.compareAndSet(false, true)) {
+                mWorker.start();
+            }
+            long deadline = System.nanoTime() - mOrigin + Math.max(delayNanos, 0);
+            if (deadline < 0) {
+                // overflow
+                deadline = Long.MAX_VALUE;
+            }
+            Timeout timeout = new Timeout(this, action, deadline, Math.max(periodNanos, 0));
+            mPending.offer(timeout);
+            if (mIdle) {
+                LockSupport.unpark(mWorker);
+            }
+            return timeout;
+        }
+
+        @Override
+        public void run() {
+            for (; ; ) {
+                waitForNextTick();
+                processCancelled();
+                transferPending();
+                expire(mWheel[(int) (mTick & WHEEL_MASK)]);
+                mTick++;
+            }
+        }
+
+        private void waitForNextTick() {
+            for (; ; ) {
+                if (mCount == 0 && mPending.isEmpty()) {
+                    mIdle = true;
+                    if (mPending.isEmpty()) {
+                        LockSupport.park(this);
+                    }
+                    mIdle = false;
+                    // nothing is in the wheel, so skip the ticks passed while parking
+                    mTick = Math.max(mTick, (System.nanoTime() - mOrigin) / TICK_NANOS);
+                    continue;
+                }
+                long now = System.nanoTime() - mOrigin;
+                long target = (mTick + 1) * TICK_NANOS;
+                if (now >= target) return;
+                LockSupport.parkNanos(this, target - now);
+            }
+        }
+
+        private void processCancelled() {
+            for (; ; ) {
+                Timeout timeout = mCancelled.poll();
+                if (timeout == null) return;
+                if (timeout.mBucket != null) {
+                    timeout.mBucket.remove(timeout);
+                    mCount--;
+                }
+            }
+        }
+
+        private void transferPending() {
+            for (int i = 0; i < MAX_TRANSFER_COUNT; i++) {
+                Timeout timeout = mPending.poll();
+                if (timeout == null) return;
+                if (timeout.isCancelled()) continue;
+                place(timeout, mTick);
+            }
+        }
+
+        private void place(final Timeout timeout, final long minTick) {
+            long calculated = timeout.mDeadline / TICK_NANOS;
+            timeout.mRemainingRounds = Math.max(calculated - minTick, 0) / WHEEL_SIZE;
+            long ticks = Math.max(calculated, minTick);
+            mWheel[(int) (ticks & WHEEL_MASK)].add(timeout);
+            mCount++;
+        }
+
+        private void expire(final Bucket bucket) {
+            Timeout rescheduled = null;
+            Timeout timeout = bucket.mHead;
+            while (timeout != null) {
+                Timeout next = timeout.mNext;
+                if (timeout.isCancelled()) {
+                    bucket.remove(timeout);
+                    mCount--;
+                } else if (timeout.mRemainingRounds <= 0) {
+                    bucket.remove(timeout);
+                    mCount--;
+                    if (timeout.expire() && timeout.mPeriod > 0) {
+                        // keep them aside, or a small period would be placed back into this bucket
+                        timeout.mDeadline += timeout.mPeriod;
+                        timeout.mNext = rescheduled;
+                        rescheduled = timeout;
+                    }
+                } else {
+                    timeout.mRemainingRounds--;
+                }
+                timeout = next;
+            }
+            while (rescheduled != null) {
+                Timeout next = rescheduled.mNext;
+                rescheduled.mNext = null;
+                if (!rescheduled.isCancelled()) {
+                    place(rescheduled, mTick + 1);
+                }
+                rescheduled = next;
+            }
+        }
+
+        static final class Timeout {
+
+            private static final int ST_INIT = 0;
+            private static final int ST_CANCELLED = 1;
+            private static final int ST_EXPIRED = 2;
+
+            private final AtomicInteger mState = new AtomicInteger(ST_INIT);
+            private final HashedWheelTimer4Util mTimer;
+            private final Runnable mAction;
+            private final long mPeriod;
+
+            // only touched by the worker thread after it was published
+            private long mDeadline;
+            private long mRemainingRounds;
+            private Bucket mBucket;
+            private Timeout mPrev;
+            private Timeout mNext;
+
+            Timeout(HashedWheelTimer4Util timer, Runnable action, long deadline, long period) {
+                mTimer = timer;
+                mAction = action;
+                mDeadline = deadline;
+                mPeriod = period;
+            }
+
+            boolean cancel() {
+                if (!mState.compareAndSet(ST_INIT, ST_CANCELLED)) return false;
+                mTimer.mCancelled.offer(this);
+                return true;
+            }
+
+            boolean isCancelled() {
+                return mState.get() == ST_CANCELLED;
+            }
+
+            private boolean expire() {
+                if (mPeriod == 0) {
+                    if (!mState.compareAndSet(ST_INIT, ST_EXPIRED)) return false;
+                } else if (mState.get() != ST_INIT) {
+                    return false;
+                }
+                try {
+                    mAction.run();
+                } catch (Throwable t) {
+                    Log.e("ThreadUtils", "Timer action threw uncaught throwable", t);
+                }
+                return true;
+            }
+        }
+
+        private static final class Bucket {
+
+            private Timeout mHead;
+            private Timeout mTail;
+
+            void add(final Timeout timeout) {
+                timeout.mBucket = this;
+                if (mHead == null) {
+                    mHead = mTail = timeout;
+                } else {
+                    mTail.mNext = timeout;
+                    timeout.mPrev = mTail;
+                    mTail = timeout;
+                }
+            }
+
+            void remove(final Timeout timeout) {
+                Timeout next = timeout.mNext;
+                if (timeout.mPrev != null) {
+                    timeout.mPrev.mNext = next;
+                }
+                if (next != null) {
+                    next.mPrev = timeout.mPrev;
+                }
+                if (timeout == mHead) {
+                    mHead = next;
+                }
+                if (timeout == mTail) {
+                    mTail = timeout.mPrev;
+                }
+                timeout.mPrev = null;
+                timeout.mNext = null;
+                timeout.mBucket = null;
+            }
+        }
+    }
+
     public abstract static class SimpleTask<T> extends Task<T> {
 
         @Override
@@ -1180,7 +2369,8 @@ public final class ThreadUtils {
         private volatile boolean isSchedule;
         private volatile Thread runner;
 
-        private Timer mTimer;
+        private volatile HashedWheelTimer4Util.Timeout mScheduleTimeout;
+        private volatile HashedWheelTimer4Util.Timeout mTimeout;
         private long mTimeoutMillis;
         private OnTimeoutListener mTimeoutListener;
 
@@ -1210,17 +2400,23 @@ public final class ThreadUtils {
                 if (!state.compareAndSet(NEW, RUNNING)) return;
                 runner = Thread.currentThread();
                 if (mTimeoutListener != null) {
-                    mTimer = new Timer();
-                    mTimer.schedule(new TimerTask() {
+                    mTimeout = TIMER.schedule(new Runnable() {
                         @Override
                         public void run() {
-                            if (!isDone() && mTimeoutListener != null) {
-                                timeout();
-                                mTimeoutListener.onTimeout();
-                                onDone();
-                            }
+                            // leave the timer thread at once, the listener may be slow
+                            getPoolByTypeAndPriority(TYPE_CACHED).execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    final OnTimeoutListener listener = mTimeoutListener;
+                                    if (!isDone() && listener != null) {
+                                        timeout();
+                                        listener.onTimeout();
+                                        onDone();
+                                    }
+                                }
+                            });
                         }
-                    }, mTimeoutMillis);
+                    }, TimeUnit.MILLISECONDS.toNanos(mTimeoutMillis), 0);
                 }
             }
             try {
@@ -1266,6 +2462,7 @@ public final class ThreadUtils {
                 if (state.get() > RUNNING) return;
                 state.set(CANCELLED);
             }
+            cancelTimeouts();
             if (mayInterruptIfRunning) {
                 if (runner != null) {
                     runner.interrupt();
@@ -1318,8 +2515,34 @@ public final class ThreadUtils {
             this.isSchedule = isSchedule;
         }
 
+        private void setScheduleTimeout(final HashedWheelTimer4Util.Timeout timeout) {
+            mScheduleTimeout = timeout;
+            // the task may have been cancelled before the timeout was published
+            if (isDone()) {
+                timeout.cancel();
+            }
+        }
+
+        private void cancelTimeouts() {
+            HashedWheelTimer4Util.Timeout timeout = mScheduleTimeout;
+            if (timeout != null) {
+                timeout.cancel();
+                mScheduleTimeout = null;
+            }
+            timeout = mTimeout;
+            if (timeout != null) {
+                timeout.cancel();
+                mTimeout = null;
+            }
+        }
+
         private Executor getDeliver() {
             if (deliver == null) {
+                if (!POOL_DELIVERS.isEmpty()) {
+                    ExecutorService pool = TASK_POOL_MAP.get(this);
+                    Executor poolDeliver = pool == null ? null : POOL_DELIVERS.get(getDeliverKey(pool));
+                    if (poolDeliver != null) return poolDeliver;
+                }
                 return getGlobalDeliver();
             }
             return deliver;
@@ -1328,11 +2551,8 @@ public final class ThreadUtils {
         @CallSuper
         protected void onDone() {
             TASK_POOL_MAP.remove(this);
-            if (mTimer != null) {
-                mTimer.cancel();
-                mTimer = null;
-                mTimeoutListener = null;
-            }
+            cancelTimeouts();
+            mTimeoutListener = null;
         }
 
         public interface OnTimeoutListener {
@@ -1340,6 +2560,790 @@ public final class ThreadUtils {
         }
     }
 
+    /**
+     * The stats of a pool of ThreadUtils.
+     * <p>Counters and latency are only recorded while metrics is enabled.</p>
+     */
+    public static final class PoolStats {
+
+        private final String name;
+        private final int priority;
+        private final int queueSize;
+        private final int activeCount;
+        private final int poolSize;
+        private final long submittedCount;
+        private final long completedCount;
+        private final long failedCount;
+        private final long cancelledCount;
+        private final long rejectedCount;
+        private final LatencyStats waitLatency;
+        private final LatencyStats runLatency;
+
+        PoolStats(String name, int priority, int queueSize, int activeCount, int poolSize,
+                  long submittedCount, long completedCount, long failedCount,
+                  long cancelledCount, long rejectedCount,
+                  LatencyStats waitLatency, LatencyStats runLatency) {
+            this.name = name;
+            this.priority = priority;
+            this.queueSize = queueSize;
+            this.activeCount = activeCount;
+            this.poolSize = poolSize;
+            this.submittedCount = submittedCount;
+            this.completedCount = completedCount;
+            this.failedCount = failedCount;
+            this.cancelledCount = cancelledCount;
+            this.rejectedCount = rejectedCount;
+            this.waitLatency = waitLatency;
+            this.runLatency = runLatency;
+        }
+
+        /**
+         * Return the name of pool, such as single, cached, io, cpu or fixed(n).
+         */
+        public String getName() {
+            return name;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public long getSubmittedCount() {
+            return submittedCount;
+        }
+
+        public long getCompletedCount() {
+            return completedCount;
+        }
+
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        public long getCancelledCount() {
+            return cancelledCount;
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        /**
+         * Return the latency from submitted to started.
+         */
+        public LatencyStats getWaitLatency() {
+            return waitLatency;
+        }
+
+        /**
+         * Return the latency from started to finished.
+         */
+        public LatencyStats getRunLatency() {
+            return runLatency;
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + priority + ")" +
+                    ": queue=" + queueSize +
+                    ", active=" + activeCount +
+                    ", pool=" + poolSize +
+                    ", submitted=" + submittedCount +
+                    ", completed=" + completedCount +
+                    ", failed=" + failedCount +
+                    ", cancelled=" + cancelledCount +
+                    ", rejected=" + rejectedCount +
+                    ", wait=" + waitLatency +
+                    ", run=" + runLatency;
+        }
+    }
+
+    /**
+     * The latency stats in microseconds, the upper bound of bucket i is 2^i microseconds.
+     */
+    public static final class LatencyStats {
+
+        private final long count;
+        private final long sumMicros;
+        private final long maxMicros;
+        private final long[] buckets;
+
+        LatencyStats(long count, long sumMicros, long maxMicros, long[] buckets) {
+            this.count = count;
+            this.sumMicros = sumMicros;
+            this.maxMicros = maxMicros;
+            this.buckets = buckets;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanMicros() {
+            return count == 0 ? 0 : sumMicros / count;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        /**
+         * Return the upper bound of the given percentile.
+         *
+         * @param percentile The percentile, such as 0.99.
+         * @return the upper bound in microseconds
+         */
+        public long getPercentileMicros(final double percentile) {
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0) return 0;
+            long target = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return Math.min(1L << i, maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count +
+                    ", mean=" + getMeanMicros() + "us" +
+                    ", p50=" + getPercentileMicros(0.5) + "us" +
+                    ", p99=" + getPercentileMicros(0.99) + "us" +
+                    ", max=" + maxMicros + "us}";
+        }
+    }
+
+    /**
+     * A stage of async computation which can be chained.
+     * <p>Cancelling a stage cancels its upstream stages and fails its downstream stages.</p>
+     */
+    public static final class Stage<T> {
+
+        private static final Object NULL = new Object();
+
+        private static final Executor DIRECT = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                command.run();
+            }
+        };
+
+        private final AtomicReference<Object> mResult = new AtomicReference<>();
+        private final ConcurrentLinkedQueue<Runnable> mListeners = new ConcurrentLinkedQueue<>();
+        private final Stage<?>[] mSources;
+
+        private Thread mRunner;
+        // whether cancel() interrupted mRunner, guarded by this
+        private boolean mRunnerInterrupted;
+        private volatile HashedWheelTimer4Util.Timeout mTimeout;
+
+        Stage(Stage<?>... sources) {
+            mSources = sources;
+        }
+
+        /**
+         * Apply the function in the given pool after this stage succeeds.
+         *
+         * @param pool     The pool.
+         * @param function The function.
+         * @param <R>      The type of the result.
+         * @return the next stage
+         */
+        public <R> Stage<R> thenApplyOn(final Executor pool, final StageFunction<T, R> function) {
+            final Stage<R> next = new Stage<>(this);
+            addListener(new Runnable() {
+                @Override
+                public void run() {
+                    Throwable t = getFailure();
+                    if (t != null) {
+                        next.propagate(t);
+                        return;
+                    }
+                    final T value = getValue();
+                    next.runIn(pool, new Callable<R>() {
+                        @Override
+                        public R call() throws Exception {
+                            return function.apply(value);
+                        }
+                    });
+                }
+            });
+            return next;
+        }
+
+        /**
+         * Apply the function in the thread which completes this stage.
+         * <p>The function should be fast.</p>
+         *
+         * @param function The function.
+         * @param <R>      The type of the result.
+         * @return the next stage
+         */
+        public <R> Stage<R> thenApply(final StageFunction<T, R> function) {
+            return thenApplyOn(DIRECT, function);
+        }
+
+        /**
+         * Combine the results of this stage and the other in the thread which completes the latter.
+         *
+         * @param other    The other stage.
+         * @param combiner The combiner.
+         * @param <U>      The type of the other's result.
+         * @param <R>      The type of the result.
+         * @return the next stage
+         */
+        public <U, R> Stage<R> thenCombine(final Stage<U> other, final StageCombiner<T, U, R> combiner) {
+            final Stage<R> next = new Stage<>(this, other);
+            final AtomicInteger remaining = new AtomicInteger(2);
+            Runnable listener = new Runnable() {
+                @Override
+                public void run() {
+                    Throwable t = getFailure();
+                    if (t == null) {
+                        t = other.getFailure();
+                    }
+                    if (t != null) {
+                        next.propagate(t);
+                        return;
+                    }
+                    if (remaining.decrementAndGet() != 0) return;
+                    next.runIn(DIRECT, new Callable<R>() {
+                        @Override
+                        public R call() throws Exception {
+                            return combiner.combine(getValue(), other.getValue());
+                        }
+                    });
+                }
+            };
+            addListener(listener);
+            other.addListener(listener);
+            return next;
+        }
+
+        /**
+         * Cancel this stage and its upstream stages with a {@link TimeoutException}
+         * if it doesn't complete in time.
+         *
+         * @param timeout The timeout.
+         * @param unit    The time unit of the timeout parameter.
+         * @return this stage
+         */
+        public Stage<T> timeout(final long timeout, final TimeUnit unit) {
+            HashedWheelTimer4Util.Timeout old = mTimeout;
+            if (old != null) {
+                old.cancel();
+            }
+            final HashedWheelTimer4Util.Timeout handle = TIMER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // listeners may run inline, so leave the timer thread
+                    getPoolByTypeAndPriority(TYPE_CACHED).execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            cancel(new TimeoutException("Stage timed out after " + timeout + " " + unit + "."));
+                        }
+                    });
+                }
+            }, unit.toNanos(timeout), 0);
+            mTimeout = handle;
+            if (isDone()) {
+                handle.cancel();
+            }
+            return this;
+        }
+
+        /**
+         * Call the listener in the given executor when this stage completes.
+         *
+         * @param executor The executor.
+         * @param listener The listener.
+         */
+        public void whenComplete(final Executor executor, final OnCompleteListener<T> listener) {
+            addListener(new Runnable() {
+                @Override
+                public void run() {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            Throwable t = getFailure();
+                            if (t != null) {
+                                listener.onFail(t);
+                            } else {
+                                listener.onSuccess(getValue());
+                            }
+                        }
+                    });
+                }
+            });
+        }
+
+        /**
+         * Call the listener in the deliver of ThreadUtils, which is main thread by default,
+         * when this stage completes.
+         *
+         * @param listener The listener.
+         */
+        public void whenCompleteOnUi(final OnCompleteListener<T> listener) {
+            whenComplete(getGlobalDeliver(), listener);
+        }
+
+        /**
+         * Cancel this stage, its upstream stages and its downstream stages.
+         *
+         * @return {@code true}: success<br>{@code false}: it has completed
+         */
+        public boolean cancel() {
+            return cancel(new CancellationException("Stage was cancelled."));
+        }
+
+        public boolean isDone() {
+            return mResult.get() != null;
+        }
+
+        public boolean isCancelled() {
+            return getFailure() instanceof CancellationException;
+        }
+
+        /**
+         * Wait for the result, don't call it in main thread.
+         *
+         * @return the result
+         * @throws InterruptedException  if the current thread was interrupted
+         * @throws ExecutionException    if the stage failed
+         * @throws CancellationException if the stage was cancelled
+         */
+        public T get() throws InterruptedException, ExecutionException {
+            if (!isDone()) {
+                final CountDownLatch latch = new CountDownLatch(1);
+                addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        latch.countDown();
+                    }
+                });
+                latch.await();
+            }
+            Throwable t = getFailure();
+            if (t instanceof CancellationException) throw (CancellationException) t;
+            if (t != null) throw new ExecutionException(t);
+            return getValue();
+        }
+
+        boolean complete(final T value) {
+            if (!mResult.compareAndSet(null, value == null ? NULL : value)) return false;
+            onCompleted();
+            return true;
+        }
+
+        boolean fail(final Throwable t) {
+            if (!mResult.compareAndSet(null, new Failure(t))) return false;
+            onCompleted();
+            return true;
+        }
+
+        private boolean cancel(final Throwable reason) {
+            if (!fail(reason)) return false;
+            synchronized (this) {
+                if (mRunner != null) {
+                    mRunnerInterrupted = true;
+                    mRunner.interrupt();
+                }
+            }
+            if (mSources.length == 0) return true;
+            Throwable upstreamReason = reason;
+            if (!(reason instanceof CancellationException)) {
+                upstreamReason = new CancellationException(reason.getMessage());
+                upstreamReason.initCause(reason);
+            }
+            for (Stage<?> source : mSources) {
+                source.cancel(upstreamReason);
+            }
+            return true;
+        }
+
+        private void propagate(final Throwable t) {
+            if (t instanceof CancellationException) {
+                // reach the other sources of this stage too
+                cancel(t);
+            } else {
+                fail(t);
+            }
+        }
+
+        private void runIn(final Executor pool, final Callable<T> callable) {
+            final Thread caller = Thread.currentThread();
+            final AtomicBoolean submitting = new AtomicBoolean(true);
+            try {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isDone()) return;
+                        // a callable run inline by the executor is on the caller's thread,
+                        // maybe the main thread, which cancel() must never interrupt
+                        if (submitting.get() && Thread.currentThread() == caller) {
+                            try {
+                                complete(callable.call());
+                            } catch (Throwable t) {
+                                fail(t);
+                            }
+                            return;
+                        }
+                        synchronized (Stage.this) {
+                            mRunner = Thread.currentThread();
+                        }
+                        try {
+                            complete(callable.call());
+                        } catch (Throwable t) {
+                            fail(t);
+                        } finally {
+                            synchronized (Stage.this) {
+                                mRunner = null;
+                                // drop only the interrupt of our own late cancel,
+                                // one from shutdownNow must reach the pool worker
+                                if (mRunnerInterrupted) {
+                                    mRunnerInterrupted = false;
+                                    Thread.interrupted();
+                                }
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                fail(e);
+            } finally {
+                submitting.set(false);
+            }
+        }
+
+        private void addListener(final Runnable listener) {
+            mListeners.offer(listener);
+            if (isDone()) {
+                drainListeners();
+            }
+        }
+
+        private void onCompleted() {
+            HashedWheelTimer4Util.Timeout timeout = mTimeout;
+            if (timeout != null) {
+                timeout.cancel();
+                mTimeout = null;
+            }
+            drainListeners();
+        }
+
+        private void drainListeners() {
+            Runnable listener;
+            while ((listener = mListeners.poll()) != null) {
+                try {
+                    listener.run();
+                } catch (Throwable t) {
+                    Log.e("ThreadUtils", "Stage listener threw uncaught throwable", t);
+                }
+            }
+        }
+
+        private Throwable getFailure() {
+            Object result = mResult.get();
+            return result instanceof Failure ? ((Failure) result).mThrowable : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T getValue() {
+            Object result = mResult.get();
+            return result == NULL ? null : (T) result;
+        }
+
+        private static final class Failure {
+
+            private final Throwable mThrowable;
+
+            Failure(Throwable throwable) {
+                mThrowable = throwable;
+            }
+        }
+
+        public interface StageFunction<T, R> {
+            R apply(T t) throws Exception;
+        }
+
+        public interface StageCombiner<T, U, R> {
+            R combine(T t, U u) throws Exception;
+        }
+
+        public interface OnCompleteListener<T> {
+            void onSuccess(T result);
+
+            void onFail(Throwable t);
+        }
+    }
+
+    private static final class FrameDeliver implements Executor, Choreographer.FrameCallback {
+
+        private static final FrameDeliver INSTANCE = new FrameDeliver();
+
+        private final ConcurrentLinkedQueue<Runnable> mQueue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean mScheduled = new AtomicBoolean();
+        private final Runnable mPostFrameCallback = new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(FrameDeliver.this);
+            }
+        };
+
+        private volatile long mBudgetNanos = TimeUnit.MILLISECONDS.toNanos(4);
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mQueue.offer(command);
+            scheduleIfNeeded();
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            long deadline = System.nanoTime() + mBudgetNanos;
+            Runnable command;
+            while ((command = mQueue.poll()) != null) {
+                try {
+                    command.run();
+                } catch (Throwable t) {
+                    Log.e("ThreadUtils", "Deliver threw uncaught throwable", t);
+                }
+                if (System.nanoTime() >= deadline) break;
+            }
+            if (!mQueue.isEmpty()) {
+                // carry the leftover over to the next frame
+                Choreographer.getInstance().postFrameCallback(this);
+                return;
+            }
+            mScheduled.set(false);
+            if (!mQueue.isEmpty()) {
+                scheduleIfNeeded();
+            }
+        }
+
+        private void scheduleIfNeeded() {
+            if (!mScheduled.compareAndSet(false, true)) return;
+            if (isMainThread()) {
+                mPostFrameCallback.run();
+            } else {
+                HANDLER.post(mPostFrameCallback);
+            }
+        }
+    }
+
+    private static final class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 8021583961465457113L;
+
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final RangeConsumer consumer;
+
+        RangeAction(int from, int to, int threshold, RangeConsumer consumer) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                consumer.accept(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, mid, threshold, consumer),
+                    new RangeAction(mid, to, threshold, consumer));
+        }
+    }
+
+    private static final class ReduceTask<T> extends RecursiveTask<T> {
+
+        private static final long serialVersionUID = -3307425185427203493L;
+
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final RangeReducer<T> reducer;
+
+        ReduceTask(int from, int to, int threshold, RangeReducer<T> reducer) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.reducer = reducer;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= threshold) {
+                return reducer.reduceRange(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ReduceTask<T> left = new ReduceTask<>(from, mid, threshold, reducer);
+            ReduceTask<T> right = new ReduceTask<>(mid, to, threshold, reducer);
+            left.fork();
+            T rightResult = right.compute();
+            return reducer.combine(left.join(), rightResult);
+        }
+    }
+
+    private interface RangeReducer<T> {
+        T reduceRange(int from, int to);
+
+        T combine(T left, T right);
+    }
+
+    private static final class StealThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("steal-pool-thread-" + mCount.getAndIncrement());
+            return t;
+        }
+    }
+
+    public interface RangeConsumer {
+        void accept(int from, int to);
+    }
+
+    public interface Function<T, R> {
+        R apply(T t);
+    }
+
+    public interface Reducer<T> {
+        T reduce(T left, T right);
+    }
+
+    public interface IntMapper {
+        int map(int value);
+    }
+
+    public interface LongReducer {
+        long reduce(long left, long right);
+    }
+
+    interface CpuTimeSource {
+
+        CpuTimeSource DEBUG = new CpuTimeSource() {
+            @Override
+            public long currentThreadCpuTimeNanos() {
+                return Debug.threadCpuTimeNanos();
+            }
+        };
+
+        long currentThreadCpuTimeNanos();
+    }
+
+    /**
+     * A resize decision of an adaptive IO thread pool.
+     */
+    public static final class PoolResizeDecision {
+
+        private final long timeMillis;
+        private final String name;
+        private final int oldSize;
+        private final int newSize;
+        private final double throughput;
+        private final double blockingRatio;
+        private final int queueSize;
+        private final String reason;
+
+        PoolResizeDecision(long timeMillis, String name, int oldSize, int newSize,
+                           double throughput, double blockingRatio, int queueSize, String reason) {
+            this.timeMillis = timeMillis;
+            this.name = name;
+            this.oldSize = oldSize;
+            this.newSize = newSize;
+            this.throughput = throughput;
+            this.blockingRatio = blockingRatio;
+            this.queueSize = queueSize;
+            this.reason = reason;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getOldSize() {
+            return oldSize;
+        }
+
+        public int getNewSize() {
+            return newSize;
+        }
+
+        /**
+         * Return the completed tasks per second in the last interval.
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        /**
+         * Return the ratio of time which tasks spent off cpu in the last interval.
+         */
+        public double getBlockingRatio() {
+            return blockingRatio;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + oldSize + " -> " + newSize +
+                    ", throughput=" + String.format(Locale.US, "%.1f", throughput) +
+                    ", blocking=" + String.format(Locale.US, "%.2f", blockingRatio) +
+                    ", queue=" + queueSize +
+                    ", reason=" + reason;
+        }
+    }
+
+    public interface OnPoolResizeListener {
+        void onPoolResize(PoolResizeDecision decision);
+    }
+
+    public interface OnPoolStatsListener {
+        void onPoolStats(List<PoolStats> stats);
+    }
+
     public static class SyncValue<T> {
 
         private CountDownLatch mLatch = new CountDownLatch(1);
@@ -7,12 +7,18 @@ import com.albert.okutils.constant.TimeConstants;
 import com.albert.okutils.entity.DateCompare;
 
 import java.text.DateFormat;
+import java.text.DecimalFormatSymbols;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
@@ -61,17 +67,184 @@ public class TimeUtils {
         throw new UnsupportedOperationException("u can't instantiate me...");
     }
 
-    private static final ThreadLocal<SimpleDateFormat> SDF_THREAD_LOCAL = new ThreadLocal<>();
+    /**
+     * 每个线程每种 Locale 缓存的格式数量
+     */
+    private static final int MAX_FORMAT_CACHE = 16;
+
+    private static final ThreadLocal<FormatCache> SDF_THREAD_LOCAL = new ThreadLocal<FormatCache>() {
+        @Override
+        protected FormatCache initialValue() {
+            return new FormatCache();
+        }
+    };
+
+    /**
+     * 缓存失效的代数，由 {@link #clearFormatCache()} 递增
+     */
+    private static volatile int sCacheGeneration;
+
+    /**
+     * 默认时区和 Locale 的检查间隔，{@link TimeZone#getDefault()} 每次都会复制时区，不在每次调用时检查
+     */
+    private static final long DEFAULTS_CHECK_MILLIS = 1000;
+
+    private static volatile long sDefaultsCheckedAt = System.currentTimeMillis();
+
+    private static volatile TimeZone sZone = TimeZone.getDefault();
+
+    private static volatile Locale sLocale = Locale.getDefault();
+
+    private static volatile FastDateFormatter sFastFormatter;
+
+    private static volatile DayBoundary sDayBoundary;
+
+    /**
+     * 友好型时间差的分类
+     */
+    public static final int SPAN_FUTURE = -1;
+    public static final int SPAN_JUST_NOW = 0;
+    public static final int SPAN_SECONDS = 1;
+    public static final int SPAN_MINUTES = 2;
+    public static final int SPAN_TODAY = 3;
+    public static final int SPAN_YESTERDAY = 4;
+    public static final int SPAN_DATE = 5;
+
+    private static final String[] SECONDS_AGO = new String[60];
+    private static final String[] MINUTES_AGO = new String[60];
+
+    private static final String[] FIT_UNITS = {"天", "小时", "分钟", "秒", "毫秒"};
+    private static final String[] FIT_ZERO = {"0天", "0小时", "0分钟", "0秒", "0毫秒"};
+    private static final int[] FIT_UNIT_LEN = {86400000, 3600000, 60000, 1000, 1};
 
     private static SimpleDateFormat getDefaultFormat() {
-        SimpleDateFormat simpleDateFormat = SDF_THREAD_LOCAL.get();
+        return getSafeDateFormat(TIME_FORMATE1);
+    }
+
+    /**
+     * 获取当前线程缓存的 SimpleDateFormat，同一 pattern 只创建一次
+     * <p>返回的实例只能在当前线程使用，且不要修改其时区等属性。默认时区变化后一秒内会重新创建。</p>
+     *
+     * @param pattern The pattern of date format.
+     * @return the {@link SimpleDateFormat} of default locale
+     */
+    public static SimpleDateFormat getSafeDateFormat(@NonNull final String pattern) {
+        return getSafeDateFormat(pattern, Locale.getDefault());
+    }
+
+    /**
+     * 获取当前线程缓存的 SimpleDateFormat，按 pattern 和 Locale 缓存，每种 Locale 最多缓存 16 个
+     *
+     * @param pattern The pattern of date format.
+     * @param locale  The locale.
+     * @return the {@link SimpleDateFormat}
+     */
+    public static SimpleDateFormat getSafeDateFormat(@NonNull final String pattern, @NonNull final Locale locale) {
+        FormatCache localeMap = SDF_THREAD_LOCAL.get();
+        // SimpleDateFormat 在创建时固定了时区，默认时区变化后整体失效
+        checkDefaults(System.currentTimeMillis());
+        if (localeMap.mGeneration != sCacheGeneration) {
+            localeMap.clear();
+            localeMap.mGeneration = sCacheGeneration;
+        }
+        Map<String, SimpleDateFormat> sdfMap = localeMap.get(locale);
+        if (sdfMap == null) {
+            sdfMap = new LinkedHashMap<String, SimpleDateFormat>(MAX_FORMAT_CACHE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SimpleDateFormat> eldest) {
+                    return size() > MAX_FORMAT_CACHE;
+                }
+            };
+            localeMap.put(locale, sdfMap);
+        }
+        SimpleDateFormat simpleDateFormat = sdfMap.get(pattern);
         if (simpleDateFormat == null) {
-            simpleDateFormat = new SimpleDateFormat(TIME_FORMATE1, Locale.getDefault());
-            SDF_THREAD_LOCAL.set(simpleDateFormat);
+            simpleDateFormat = new SimpleDateFormat(pattern, locale);
+            sdfMap.put(pattern, simpleDateFormat);
         }
         return simpleDateFormat;
     }
 
+    /**
+     * 清除缓存的时间格式和今天的日期边界，并重新读取默认时区和 Locale
+     * <p>默认时区或 Locale 变化后，缓存的 SimpleDateFormat、快速格式化和日期边界在一秒内会自动重新创建；
+     * 需要立即生效时（如收到 {@code Intent.ACTION_TIMEZONE_CHANGED}）调用此方法。</p>
+     */
+    public static void clearFormatCache() {
+        sZone = TimeZone.getDefault();
+        sLocale = Locale.getDefault();
+        sDefaultsCheckedAt = System.currentTimeMillis();
+        sCacheGeneration++;
+        sFastFormatter = null;
+        sDayBoundary = null;
+    }
+
+    /**
+     * 距上次检查超过 {@link #DEFAULTS_CHECK_MILLIS} 时比较默认时区和 Locale，变化时清除缓存
+     */
+    private static void checkDefaults(final long now) {
+        long checkedAt = sDefaultsCheckedAt;
+        // the clock may be set back
+        if (now >= checkedAt && now - checkedAt < DEFAULTS_CHECK_MILLIS) return;
+        sDefaultsCheckedAt = now;
+        if (!TimeZone.getDefault().getID().equals(sZone.getID()) || !Locale.getDefault().equals(sLocale)) {
+            clearFormatCache();
+        }
+    }
+
+    /**
+     * {@link #TIME_FORMATE1}、{@link #TIME_FORMATE6}、{@link #TIME_FORMATE14} 走快速格式化，其余使用缓存的 SimpleDateFormat
+     */
+    private static String format(final long millis, final String pattern) {
+        int type = FastDateFormatter.typeOf(pattern);
+        if (type != -1) {
+            String result = getFastFormatter().format(millis, type);
+            if (result != null) return result;
+        }
+        return getSafeDateFormat(pattern).format(new Date(millis));
+    }
+
+    private static FastDateFormatter getFastFormatter() {
+        return getFastFormatter(System.currentTimeMillis());
+    }
+
+    private static FastDateFormatter getFastFormatter(final long now) {
+        checkDefaults(now);
+        FastDateFormatter formatter = sFastFormatter;
+        TimeZone zone = sZone;
+        Locale locale = sLocale;
+        // a formatter created with the old defaults may be published after clearFormatCache()
+        if (formatter == null || formatter.mTimeZone != zone || formatter.mLocale != locale) {
+            formatter = new FastDateFormatter(locale, zone);
+            sFastFormatter = formatter;
+        }
+        return formatter;
+    }
+
+    /**
+     * 固定宽度的格式（如 TIME_FORMATE 中的格式）直接解析数字，
+     * 字段不合法或无法确定结果时返回 {@link FastDateParser#UNKNOWN}，由 SimpleDateFormat 处理
+     */
+    static long parseFast(final String time, final String pattern) {
+        FastDateParser parser = FastDateParser.get(pattern);
+        if (parser == null) return FastDateParser.UNKNOWN;
+        return parser.parse(time, getFastFormatter().mTimeZone);
+    }
+
+    /**
+     * 将 ISO-8601 时间字符串转为时间戳
+     * <p>支持 {@code yyyy-MM-dd}、{@code yyyy-MM-ddTHH:mm[:ss[.SSS]]}，
+     * 可带 {@code Z}、{@code ±HH:mm}、{@code ±HHmm} 或 {@code ±HH} 时区，无时区时按本地时间。</p>
+     *
+     * @param time The ISO-8601 time string.
+     * @return the milliseconds, -1 if it is not a valid ISO-8601 time
+     */
+    public static long iso8601String2Millis(final CharSequence time) {
+        if (time == null) return -1;
+        long millis = FastDateParser.parseIso8601(time, getFastFormatter().mTimeZone);
+        return millis == FastDateParser.UNKNOWN ? -1 : millis;
+    }
+
     /**
      * 将时间戳转为时间字符串
      * Milliseconds to the formatted time string.
@@ -81,7 +254,7 @@ public class TimeUtils {
      * @return the formatted time string
      */
     public static String millis2String(final long millis) {
-        return millis2String(millis, getDefaultFormat());
+        return format(millis, TIME_FORMATE1);
     }
 
     /**
@@ -107,11 +280,7 @@ public class TimeUtils {
         if (millis == 0) {
             return "";
         }
-        if (!NullUtil.notEmpty(format)) {
-            return getDefaultFormat().format(new Date(millis));
-        } else {
-            return new SimpleDateFormat(format, Locale.getDefault()).format(new Date(millis));
-        }
+        return format(millis, NullUtil.notEmpty(format) ? format : TIME_FORMATE1);
     }
 
     /**
@@ -124,6 +293,8 @@ public class TimeUtils {
      */
     public static long string2Millis(final String time) {
         if (NullUtil.notEmpty(time)) {
+            long millis = parseFast(time, TIME_FORMATE1);
+            if (millis != FastDateParser.UNKNOWN) return millis;
             return string2Millis(time, getDefaultFormat());
         }
         return 0;
@@ -160,10 +331,12 @@ public class TimeUtils {
         if (!NullUtil.notEmpty(time)) {
             return -1;
         }
+        long millis = parseFast(time, NullUtil.notEmpty(format) ? format : TIME_FORMATE1);
+        if (millis != FastDateParser.UNKNOWN) return millis;
         try {
             SimpleDateFormat sdf;
             if (NullUtil.notEmpty(format)) {
-                sdf = new SimpleDateFormat(format, Locale.getDefault());
+                sdf = getSafeDateFormat(format);
             } else {
                 sdf = getDefaultFormat();
             }
@@ -184,6 +357,10 @@ public class TimeUtils {
      * @return the date
      */
     public static Date string2Date(final String time) {
+        if (time != null) {
+            long millis = parseFast(time, TIME_FORMATE1);
+            if (millis != FastDateParser.UNKNOWN) return new Date(millis);
+        }
         return string2Date(time, getDefaultFormat());
     }
 
@@ -215,10 +392,12 @@ public class TimeUtils {
         if (!NullUtil.notEmpty(time)) {
             return null;
         }
+        long millis = parseFast(time, NullUtil.notEmpty(format) ? format : TIME_FORMATE1);
+        if (millis != FastDateParser.UNKNOWN) return new Date(millis);
         try {
             SimpleDateFormat sdf;
             if (NullUtil.notEmpty(format)) {
-                sdf = new SimpleDateFormat(format, Locale.getDefault());
+                sdf = getSafeDateFormat(format);
             } else {
                 sdf = getDefaultFormat();
             }
@@ -239,7 +418,7 @@ public class TimeUtils {
      * @return the formatted time string
      */
     public static String date2String(final Date date) {
-        return date2String(date, getDefaultFormat());
+        return format(date.getTime(), TIME_FORMATE1);
     }
 
     /**
@@ -265,11 +444,7 @@ public class TimeUtils {
         if (!NullUtil.notEmpty(date)) {
             return "";
         }
-        if (NullUtil.notEmpty(format)) {
-            return new SimpleDateFormat(format, Locale.getDefault()).format(date);
-        } else {
-            return getDefaultFormat().format(date);
-        }
+        return format(date.getTime(), NullUtil.notEmpty(format) ? format : TIME_FORMATE1);
     }
 
     /**
@@ -305,7 +480,7 @@ public class TimeUtils {
     public static String formate2formate(String date, String format) {
         try {
             Date date1 = getDefaultFormat().parse(date);
-            SimpleDateFormat sDateFormat = new SimpleDateFormat(format, Locale.getDefault());
+            SimpleDateFormat sDateFormat = getSafeDateFormat(format);
             return sDateFormat.format(date1);
         } catch (Exception e) {
             e.printStackTrace();
@@ -681,7 +856,7 @@ public class TimeUtils {
      * @return the current formatted time string
      */
     public static String getNowString() {
-        return millis2String(System.currentTimeMillis(), getDefaultFormat());
+        return format(System.currentTimeMillis(), TIME_FORMATE1);
     }
 
     /**
@@ -882,6 +1057,25 @@ public class TimeUtils {
         return getFitTimeSpan(millis, System.currentTimeMillis(), precision);
     }
 
+    /**
+     * 批量获取合适型与 now 的时间差，所有条目使用同一个 now
+     *
+     * @param millis    The milliseconds.
+     * @param now       The milliseconds of now.
+     * @param precision The precision of time span, same as {@link #getFitTimeSpanByNow(long, int)}.
+     * @return the fit time spans, or null if precision &lt;= 0
+     */
+    public static String[] getFitTimeSpans(@NonNull final long[] millis, final long now, final int precision) {
+        if (precision <= 0) return null;
+        int p = Math.min(precision, 5);
+        String[] out = new String[millis.length];
+        StringBuilder sb = new StringBuilder(16);
+        for (int i = 0, len = millis.length; i < len; i++) {
+            out[i] = appendFitTimeSpan(sb, millis[i] - now, p);
+        }
+        return out;
+    }
+
     /**
      * 获取友好型与当前时间的差
      * Return the friendly time span by now.
@@ -963,25 +1157,146 @@ public class TimeUtils {
      */
     public static String getFriendlyTimeSpanByNow(final long millis) {
         long now = System.currentTimeMillis();
+        return friendlyTimeSpan(millis, now, getDayBoundary(now));
+    }
+
+    /**
+     * 批量获取友好型与 now 的时间差，所有条目使用同一个 now
+     * Return the friendly time spans of the milliseconds by the given now.
+     *
+     * @param millis The milliseconds.
+     * @param now    The milliseconds of now.
+     * @return the friendly time spans, same as {@link #getFriendlyTimeSpanByNow(long)}
+     */
+    public static String[] getFriendlyTimeSpans(@NonNull final long[] millis, final long now) {
+        return getFriendlyTimeSpans(millis, now, new String[millis.length]);
+    }
+
+    /**
+     * 批量获取友好型与 now 的时间差，结果写入 out
+     *
+     * @param millis The milliseconds.
+     * @param now    The milliseconds of now.
+     * @param out    The array to hold the spans, its length must be at least millis.length.
+     * @return out
+     */
+    public static String[] getFriendlyTimeSpans(@NonNull final long[] millis, final long now,
+                                                @NonNull final String[] out) {
+        DayBoundary boundary = getDayBoundary(now);
+        for (int i = 0, len = millis.length; i < len; i++) {
+            out[i] = friendlyTimeSpan(millis[i], now, boundary);
+        }
+        return out;
+    }
+
+    /**
+     * 批量获取友好型时间差的分类
+     *
+     * @param millis The milliseconds.
+     * @param now    The milliseconds of now.
+     * @param out    The array to hold the buckets, its length must be at least millis.length.
+     * @return out, one of {@link #SPAN_FUTURE}, {@link #SPAN_JUST_NOW}, {@link #SPAN_SECONDS},
+     * {@link #SPAN_MINUTES}, {@link #SPAN_TODAY}, {@link #SPAN_YESTERDAY}, {@link #SPAN_DATE}
+     */
+    public static int[] getFriendlyTimeSpanBuckets(@NonNull final long[] millis, final long now,
+                                                   @NonNull final int[] out) {
+        DayBoundary boundary = getDayBoundary(now);
+        for (int i = 0, len = millis.length; i < len; i++) {
+            out[i] = friendlyBucket(millis[i], now, boundary);
+        }
+        return out;
+    }
+
+    /**
+     * 获取友好型时间差从 now 到 next 之间会变化的条目
+     * <p>列表定时刷新时只需重新绑定这些条目。</p>
+     *
+     * @param millis The milliseconds.
+     * @param now    The milliseconds of now, the spans are rendered at.
+     * @param next   The milliseconds of next refresh.
+     * @return the indexes of the items whose span will change
+     */
+    public static int[] getFriendlyTimeSpanChanges(@NonNull final long[] millis, final long now, final long next) {
+        DayBoundary boundary = getDayBoundary(now);
+        int[] rows = new int[millis.length];
+        int count = 0;
+        for (int i = 0, len = millis.length; i < len; i++) {
+            if (nextFriendlyChange(millis[i], now, boundary) <= next) {
+                rows[count++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private static int friendlyBucket(final long millis, final long now, final DayBoundary boundary) {
         long span = now - millis;
-        if (span < 0)
-            // U can read http://www.apihome.cn/api/java/Formatter.html to understand it.
-            return String.format("%tc", millis);
-        if (span < 1000) {
-            return "刚刚";
-        } else if (span < TimeConstants.MIN) {
-            return String.format(Locale.getDefault(), "%d秒前", span / TimeConstants.SEC);
-        } else if (span < TimeConstants.HOUR) {
-            return String.format(Locale.getDefault(), "%d分钟前", span / TimeConstants.MIN);
-        }
-        // 获取当天 00:00
-        long wee = getWeeOfToday();
-        if (millis >= wee) {
-            return String.format("今天%tR", millis);
-        } else if (millis >= wee - TimeConstants.DAY) {
-            return String.format("昨天%tR", millis);
-        } else {
-            return String.format("%tF", millis);
+        if (span < 0) return SPAN_FUTURE;
+        if (span < 1000) return SPAN_JUST_NOW;
+        if (span < TimeConstants.MIN) return SPAN_SECONDS;
+        if (span < TimeConstants.HOUR) return SPAN_MINUTES;
+        if (millis >= boundary.mToday) return SPAN_TODAY;
+        if (millis >= boundary.mYesterday) return SPAN_YESTERDAY;
+        return SPAN_DATE;
+    }
+
+    private static String friendlyTimeSpan(final long millis, final long now, final DayBoundary boundary) {
+        long span = now - millis;
+        switch (friendlyBucket(millis, now, boundary)) {
+            case SPAN_FUTURE:
+                // U can read http://www.apihome.cn/api/java/Formatter.html to understand it.
+                return String.format("%tc", millis);
+            case SPAN_JUST_NOW:
+                return "刚刚";
+            case SPAN_SECONDS:
+                return spanTemplate(SECONDS_AGO, (int) (span / TimeConstants.SEC), "%d秒前");
+            case SPAN_MINUTES:
+                return spanTemplate(MINUTES_AGO, (int) (span / TimeConstants.MIN), "%d分钟前");
+            case SPAN_TODAY: {
+                String time = getFastFormatter().format(millis, FastDateFormatter.HOUR_MINUTE);
+                return time != null ? "今天" + time : String.format("今天%tR", millis);
+            }
+            case SPAN_YESTERDAY: {
+                String time = getFastFormatter().format(millis, FastDateFormatter.HOUR_MINUTE);
+                return time != null ? "昨天" + time : String.format("昨天%tR", millis);
+            }
+            default: {
+                String date = getFastFormatter().format(millis, FastDateFormatter.DATE);
+                return date != null ? date : String.format("%tF", millis);
+            }
+        }
+    }
+
+    private static String spanTemplate(final String[] cache, final int value, final String format) {
+        if (!getFastFormatter().mAsciiDigits) {
+            return String.format(Locale.getDefault(), format, value);
+        }
+        String text = cache[value];
+        if (text == null) {
+            text = String.format(Locale.getDefault(), format, value);
+            cache[value] = text;
+        }
+        return text;
+    }
+
+    /**
+     * @return 友好型时间差下一次变化的时间，不再变化时返回 Long.MAX_VALUE
+     */
+    private static long nextFriendlyChange(final long millis, final long now, final DayBoundary boundary) {
+        long span = now - millis;
+        switch (friendlyBucket(millis, now, boundary)) {
+            case SPAN_FUTURE:
+                return millis;
+            case SPAN_JUST_NOW:
+                return millis + TimeConstants.SEC;
+            case SPAN_SECONDS:
+                return millis + (span / TimeConstants.SEC + 1) * TimeConstants.SEC;
+            case SPAN_MINUTES:
+                return millis + (span / TimeConstants.MIN + 1) * TimeConstants.MIN;
+            case SPAN_TODAY:
+            case SPAN_YESTERDAY:
+                return boundary.mTomorrow;
+            default:
+                return Long.MAX_VALUE;
         }
     }
 
@@ -991,12 +1306,58 @@ public class TimeUtils {
      * @return
      */
     private static long getWeeOfToday() {
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        return cal.getTimeInMillis();
+        return getDayBoundary().mToday;
+    }
+
+    /**
+     * 获取缓存的今天的日期边界，过了零点或默认时区变化后重新计算
+     */
+    private static DayBoundary getDayBoundary() {
+        long now = System.currentTimeMillis();
+        DayBoundary boundary = sDayBoundary;
+        TimeZone zone = getFastFormatter(now).mTimeZone;
+        if (boundary == null || now < boundary.mToday || now >= boundary.mTomorrow || boundary.mZone != zone) {
+            boundary = new DayBoundary(now, zone);
+            sDayBoundary = boundary;
+        }
+        return boundary;
+    }
+
+    /**
+     * 获取 now 所在日期的边界，now 不在今天时只计算不缓存
+     */
+    private static DayBoundary getDayBoundary(final long now) {
+        DayBoundary boundary = getDayBoundary();
+        if (now >= boundary.mToday && now < boundary.mTomorrow) {
+            return boundary;
+        }
+        return new DayBoundary(now, boundary.mZone);
+    }
+
+    /**
+     * 批量获取时间戳相对今天的天数，按本地日期计算
+     * Return the day offset of each milliseconds from today.
+     *
+     * @param millis The milliseconds.
+     * @return the day offsets, 0 for today, -1 for yesterday, 1 for tomorrow and so on
+     */
+    public static int[] getDayOffsets(@NonNull final long[] millis) {
+        return getDayOffsets(millis, new int[millis.length]);
+    }
+
+    /**
+     * 批量获取时间戳相对今天的天数，结果写入 out
+     *
+     * @param millis The milliseconds.
+     * @param out    The array to hold the day offsets, its length must be at least millis.length.
+     * @return out
+     */
+    public static int[] getDayOffsets(@NonNull final long[] millis, @NonNull final int[] out) {
+        DayBoundary boundary = getDayBoundary();
+        for (int i = 0, len = millis.length; i < len; i++) {
+            out[i] = boundary.dayOffset(millis[i]);
+        }
+        return out;
     }
 
     /**
@@ -1600,8 +1961,8 @@ public class TimeUtils {
      * @return {@code true}: yes<br>{@code false}: no
      */
     public static boolean isToday(final long millis) {
-        long wee = getWeeOfToday();
-        return millis >= wee && millis < wee + TimeConstants.DAY;
+        DayBoundary boundary = getDayBoundary();
+        return millis >= boundary.mToday && millis < boundary.mTomorrow;
     }
 
     public static boolean isYesterDay(final String time) {
@@ -1623,9 +1984,9 @@ public class TimeUtils {
      * @return
      */
     public static boolean isYesterDay(final long millis) {
-        long wee = getWeeOfToday();// 今天0点
+        DayBoundary boundary = getDayBoundary();
         // 昨天0点 到 今天0点之间
-        return millis >= wee - TimeConstants.DAY && millis <= wee;
+        return millis >= boundary.mYesterday && millis < boundary.mToday;
     }
 
     /**
@@ -1788,7 +2149,7 @@ public class TimeUtils {
      * @return the day of week in Chinese
      */
     public static String getChineseWeek(final Date date) {
-        return new SimpleDateFormat("E", Locale.CHINA).format(date);
+        return getSafeDateFormat("E", Locale.CHINA).format(date);
     }
 
     /**
@@ -1834,7 +2195,7 @@ public class TimeUtils {
      * @return the day of week in US
      */
     public static String getUSWeek(final Date date) {
-        return new SimpleDateFormat("EEEE", Locale.US).format(date);
+        return getSafeDateFormat("EEEE", Locale.US).format(date);
     }
 
     /**
@@ -2108,20 +2469,21 @@ public class TimeUtils {
 
      static String millis2FitTimeSpan(long millis, int precision) {
         if (precision <= 0) return null;
-        precision = Math.min(precision, 5);
-        String[] units = {"天", "小时", "分钟", "秒", "毫秒"};
-        if (millis == 0) return 0 + units[precision - 1];
-        StringBuilder sb = new StringBuilder();
+        return appendFitTimeSpan(new StringBuilder(), millis, Math.min(precision, 5));
+    }
+
+    private static String appendFitTimeSpan(final StringBuilder sb, long millis, final int precision) {
+        if (millis == 0) return FIT_ZERO[precision - 1];
+        sb.setLength(0);
         if (millis < 0) {
             sb.append("-");
             millis = -millis;
         }
-        int[] unitLen = {86400000, 3600000, 60000, 1000, 1};
         for (int i = 0; i < precision; i++) {
-            if (millis >= unitLen[i]) {
-                long mode = millis / unitLen[i];
-                millis -= mode * unitLen[i];
-                sb.append(mode).append(units[i]);
+            if (millis >= FIT_UNIT_LEN[i]) {
+                long mode = millis / FIT_UNIT_LEN[i];
+                millis -= mode * FIT_UNIT_LEN[i];
+                sb.append(mode).append(FIT_UNITS[i]);
             }
         }
         return sb.toString();
@@ -2227,8 +2589,16 @@ public class TimeUtils {
      * @return
      */
     public static long getZeroClockTimestamp(long time) {
-        long zeroTimestamp = time - (time + TimeZone.getDefault().getRawOffset()) % (24 * 60 * 60 * 1000);
-        return zeroTimestamp;
+        DayBoundary boundary = getDayBoundary();
+        if (time >= boundary.mToday && time < boundary.mTomorrow) return boundary.mToday;
+        if (time >= boundary.mYesterday && time < boundary.mToday) return boundary.mYesterday;
+        Calendar cal = Calendar.getInstance(boundary.mZone);
+        cal.setTimeInMillis(time);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
     }
 
     /**
@@ -2240,11 +2610,12 @@ public class TimeUtils {
      */
     public static boolean isSameDay(long millis1, long millis2) {
         long interval = millis1 - millis2;
-        return interval < 86400000 && interval > -86400000 && millis2Days(millis1) == millis2Days(millis2);
-    }
-
-    private static long millis2Days(long millis) {
-        return (((long) TimeZone.getDefault().getOffset(millis)) + millis) / 86400000;
+        if (interval >= 86400000 || interval <= -86400000) return false;
+        DayBoundary boundary = getDayBoundary();
+        if (millis1 >= boundary.mToday && millis1 < boundary.mTomorrow) {
+            return millis2 >= boundary.mToday && millis2 < boundary.mTomorrow;
+        }
+        return boundary.localDay(millis1) == boundary.localDay(millis2);
     }
 
     /**
@@ -2323,4 +2694,422 @@ public class TimeUtils {
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(longConsumer);
     }
+
+    private static final class FormatCache extends HashMap<Locale, Map<String, SimpleDateFormat>> {
+        int mGeneration = sCacheGeneration;
+    }
+
+    /**
+     * 常用格式的快速格式化，由时间戳和时区偏移直接计算各字段
+     * <p>缓存最近一秒、一分钟和一天的结果，同一秒内重复格式化直接返回缓存的字符串。
+     * 超出 1900 到 9999 年或本地化数字不是 ASCII 时返回 null，由 SimpleDateFormat 处理。</p>
+     */
+    private static final class FastDateFormatter {
+
+        static final int DATE_TIME = 0;   // yyyy-MM-dd HH:mm:ss
+        static final int DATE = 1;        // yyyy-MM-dd
+        static final int HOUR_MINUTE = 2; // HH:mm
+
+        private static final long MIN_DAY = -25567;  // 1900-01-01
+        private static final long MAX_DAY = 2932896; // 9999-12-31
+
+        final Locale mLocale;
+        private final TimeZone mTimeZone;
+        private final boolean mAsciiDigits;
+
+        private volatile Cached mLastSecond;
+        private volatile Cached mLastMinute;
+        private volatile Cached mLastDay;
+
+        FastDateFormatter(Locale locale, TimeZone zone) {
+            mLocale = locale;
+            mTimeZone = zone;
+            mAsciiDigits = DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';
+        }
+
+        static int typeOf(final String pattern) {
+            if (TIME_FORMATE1.equals(pattern)) return DATE_TIME;
+            if (TIME_FORMATE6.equals(pattern)) return DATE;
+            if (TIME_FORMATE14.equals(pattern)) return HOUR_MINUTE;
+            return -1;
+        }
+
+        String format(final long millis, final int type) {
+            if (!mAsciiDigits) return null;
+            long local = millis + mTimeZone.getOffset(millis);
+            long day = floorDiv(local, TimeConstants.DAY);
+            if (day < MIN_DAY || day > MAX_DAY) return null;
+            switch (type) {
+                case DATE_TIME: {
+                    // the zone offset only changes at whole seconds
+                    long second = floorDiv(millis, TimeConstants.SEC);
+                    Cached last = mLastSecond;
+                    if (last != null && last.key == second) return last.text;
+                    char[] chars = new char[19];
+                    System.arraycopy(getDay(day).chars, 0, chars, 0, 10);
+                    chars[10] = ' ';
+                    int secOfDay = (int) ((local - day * TimeConstants.DAY) / TimeConstants.SEC);
+                    putTime(chars, 11, secOfDay / 3600, secOfDay / 60 % 60);
+                    chars[16] = ':';
+                    put2(chars, 17, secOfDay % 60);
+                    String text = new String(chars);
+                    mLastSecond = new Cached(second, text, null);
+                    return text;
+                }
+                case DATE:
+                    return getDay(day).text;
+                case HOUR_MINUTE: {
+                    long minute = floorDiv(local, TimeConstants.MIN);
+                    Cached last = mLastMinute;
+                    if (last != null && last.key == minute) return last.text;
+                    int minOfDay = (int) (minute - day * (TimeConstants.DAY / TimeConstants.MIN));
+                    char[] chars = new char[5];
+                    putTime(chars, 0, minOfDay / 60, minOfDay % 60);
+                    String text = new String(chars);
+                    mLastMinute = new Cached(minute, text, null);
+                    return text;
+                }
+                default:
+                    return null;
+            }
+        }
+
+        private Cached getDay(final long day) {
+            Cached last = mLastDay;
+            if (last != null && last.key == day) return last;
+            // civil from days, see http://howardhinnant.github.io/date_algorithms.html
+            long z = day + 719468;
+            long era = (z >= 0 ? z : z - 146096) / 146097;
+            long doe = z - era * 146097;
+            long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+            long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+            long mp = (5 * doy + 2) / 153;
+            int d = (int) (doy - (153 * mp + 2) / 5 + 1);
+            int m = (int) (mp < 10 ? mp + 3 : mp - 9);
+            int y = (int) (yoe + era * 400 + (m <= 2 ? 1 : 0));
+            char[] chars = new char[10];
+            put2(chars, 0, y / 100);
+            put2(chars, 2, y % 100);
+            chars[4] = '-';
+            put2(chars, 5, m);
+            chars[7] = '-';
+            put2(chars, 8, d);
+            Cached cached = new Cached(day, new String(chars), chars);
+            mLastDay = cached;
+            return cached;
+        }
+
+        private static void putTime(final char[] chars, final int offset, final int hour, final int minute) {
+            put2(chars, offset, hour);
+            chars[offset + 2] = ':';
+            put2(chars, offset + 3, minute);
+        }
+
+        private static void put2(final char[] chars, final int offset, final int value) {
+            chars[offset] = (char) ('0' + value / 10);
+            chars[offset + 1] = (char) ('0' + value % 10);
+        }
+
+        private static long floorDiv(final long x, final long y) {
+            long q = x / y;
+            return (x % y != 0 && (x < 0)) ? q - 1 : q;
+        }
+
+        private static final class Cached {
+            final long key;
+            final String text;
+            // never modified once published
+            final char[] chars;
+
+            Cached(long key, String text, char[] chars) {
+                this.key = key;
+                this.text = text;
+                this.chars = chars;
+            }
+        }
+    }
+
+    /**
+     * 只含 yyyy、yy、MM、dd、HH、mm、ss 字段和非字母分隔符的格式的解析器
+     * <p>只接受非宽松 SimpleDateFormat 也会接受且结果相同的输入：字段宽度固定、取值合法、
+     * 年份在 1900 到 9999 之间、附近没有时区跳变，其余情况返回 {@link #UNKNOWN}。</p>
+     */
+    private static final class FastDateParser {
+
+        static final long UNKNOWN = Long.MIN_VALUE;
+
+        private static final int MAX_CACHE = 64;
+        private static final Object UNSUPPORTED = new Object();
+        private static final ConcurrentHashMap<String, Object> PARSERS = new ConcurrentHashMap<>();
+
+        private static final int YEAR = 0, YEAR2 = 1, MONTH = 2, DAY = 3, HOUR = 4, MINUTE = 5, SECOND = 6;
+
+        private static volatile int sCenturyStartYear;
+        private static volatile long sCenturyStartUntil;
+
+        private final String mPattern;
+        // field type for each position, -1 for literal
+        private final byte[] mFields;
+
+        private FastDateParser(String pattern, byte[] fields) {
+            mPattern = pattern;
+            mFields = fields;
+        }
+
+        static FastDateParser get(final String pattern) {
+            Object parser = PARSERS.get(pattern);
+            if (parser == null) {
+                parser = compile(pattern);
+                if (PARSERS.size() < MAX_CACHE) {
+                    PARSERS.put(pattern, parser);
+                }
+            }
+            return parser == UNSUPPORTED ? null : (FastDateParser) parser;
+        }
+
+        private static Object compile(final String pattern) {
+            int len = pattern.length();
+            byte[] fields = new byte[len];
+            for (int i = 0; i < len; ) {
+                char c = pattern.charAt(i);
+                if (c == '\'') return UNSUPPORTED;
+                if (!isLetter(c)) {
+                    fields[i++] = -1;
+                    continue;
+                }
+                int end = i;
+                while (end < len && pattern.charAt(end) == c) end++;
+                int count = end - i;
+                byte field;
+                if (c == 'y' && count == 4) field = YEAR;
+                else if (c == 'y' && count == 2) field = YEAR2;
+                else if (c == 'M' && count == 2) field = MONTH;
+                else if (c == 'd' && count == 2) field = DAY;
+                else if (c == 'H' && count == 2) field = HOUR;
+                else if (c == 'm' && count == 2) field = MINUTE;
+                else if (c == 's' && count == 2) field = SECOND;
+                else return UNSUPPORTED;
+                if (end < len && isLetter(pattern.charAt(end))) {
+                    // adjacent numeric fields are parsed differently by SimpleDateFormat
+                    return UNSUPPORTED;
+                }
+                for (; i < end; i++) fields[i] = field;
+            }
+            return new FastDateParser(pattern, fields);
+        }
+
+        private static boolean isLetter(final char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+
+        long parse(final CharSequence time, final TimeZone zone) {
+            final int len = mFields.length;
+            if (time.length() != len) return UNKNOWN;
+            int year = 1970, month = 1, day = 1, hour = 0, minute = 0, second = 0;
+            boolean twoDigitYear = false;
+            for (int i = 0; i < len; ) {
+                byte field = mFields[i];
+                if (field < 0) {
+                    if (time.charAt(i) != mPattern.charAt(i)) return UNKNOWN;
+                    i++;
+                    continue;
+                }
+                int value = 0;
+                for (; i < len && mFields[i] == field; i++) {
+                    char c = time.charAt(i);
+                    if (c < '0' || c > '9') return UNKNOWN;
+                    value = value * 10 + (c - '0');
+                }
+                switch (field) {
+                    case YEAR:
+                        year = value;
+                        break;
+                    case YEAR2:
+                        year = value;
+                        twoDigitYear = true;
+                        break;
+                    case MONTH:
+                        month = value;
+                        break;
+                    case DAY:
+                        day = value;
+                        break;
+                    case HOUR:
+                        hour = value;
+                        break;
+                    case MINUTE:
+                        minute = value;
+                        break;
+                    default:
+                        second = value;
+                        break;
+                }
+            }
+            if (twoDigitYear) {
+                // SimpleDateFormat maps yy into the 100 years starting 80 years ago
+                int start = getCenturyStartYear();
+                year += start / 100 * 100;
+                if (year < start) year += 100;
+                if (year == start) return UNKNOWN;
+            }
+            return toMillis(year, month, day, hour, minute, second, 0, zone);
+        }
+
+        static long parseIso8601(final CharSequence s, final TimeZone zone) {
+            final int len = s.length();
+            if (len < 10 || s.charAt(4) != '-' || s.charAt(7) != '-') return UNKNOWN;
+            int year = digits(s, 0, 4), month = digits(s, 5, 2), day = digits(s, 8, 2);
+            if (year < 0 || month < 0 || day < 0) return UNKNOWN;
+            if (len == 10) return toMillis(year, month, day, 0, 0, 0, 0, zone);
+            if (len < 16 || (s.charAt(10) != 'T' && s.charAt(10) != 't') || s.charAt(13) != ':') {
+                return UNKNOWN;
+            }
+            int hour = digits(s, 11, 2), minute = digits(s, 14, 2), second = 0, millis = 0;
+            if (hour < 0 || minute < 0) return UNKNOWN;
+            int i = 16;
+            if (i < len && s.charAt(i) == ':') {
+                second = digits(s, i + 1, 2);
+                if (second < 0) return UNKNOWN;
+                i += 3;
+                if (i < len && (s.charAt(i) == '.' || s.charAt(i) == ',')) {
+                    int start = ++i;
+                    for (; i < len && s.charAt(i) >= '0' && s.charAt(i) <= '9'; i++) {
+                        if (i - start < 3) millis = millis * 10 + (s.charAt(i) - '0');
+                    }
+                    int count = i - start;
+                    if (count == 0 || count > 9) return UNKNOWN;
+                    for (; count < 3; count++) millis *= 10;
+                }
+            }
+            if (i == len) return toMillis(year, month, day, hour, minute, second, millis, zone);
+            char c = s.charAt(i);
+            int offset;
+            if ((c == 'Z' || c == 'z') && i + 1 == len) {
+                offset = 0;
+            } else if (c == '+' || c == '-') {
+                int oh = digits(s, i + 1, 2), om = 0;
+                int rest = len - i - 3;
+                if (rest == 3 && s.charAt(i + 3) == ':') {
+                    om = digits(s, i + 4, 2);
+                } else if (rest == 2) {
+                    om = digits(s, i + 3, 2);
+                } else if (rest != 0) {
+                    return UNKNOWN;
+                }
+                if (oh < 0 || om < 0 || oh > 18 || om > 59) return UNKNOWN;
+                offset = (oh * 60 + om) * TimeConstants.MIN;
+                if (c == '-') offset = -offset;
+            } else {
+                return UNKNOWN;
+            }
+            if (!isValid(year, month, day, hour, minute, second)) return UNKNOWN;
+            return daysFromCivil(year, month, day) * TimeConstants.DAY
+                    + ((hour * 60L + minute) * 60 + second) * TimeConstants.SEC + millis - offset;
+        }
+
+        private static int digits(final CharSequence s, final int start, final int count) {
+            if (start + count > s.length()) return -1;
+            int value = 0;
+            for (int i = start; i < start + count; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') return -1;
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+
+        private static boolean isValid(int year, int month, int day, int hour, int minute, int second) {
+            if (year < 1900 || year > 9999 || month < 1 || month > 12 || day < 1) return false;
+            if (hour > 23 || minute > 59 || second > 59) return false;
+            int days;
+            if (month == 2) {
+                days = isLeapYear(year) ? 29 : 28;
+            } else {
+                days = month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+            }
+            return day <= days;
+        }
+
+        private static long toMillis(int year, int month, int day, int hour, int minute, int second,
+                                     int millis, final TimeZone zone) {
+            if (!isValid(year, month, day, hour, minute, second)) return UNKNOWN;
+            long local = daysFromCivil(year, month, day) * TimeConstants.DAY
+                    + ((hour * 60L + minute) * 60 + second) * TimeConstants.SEC + millis;
+            int offset = zone.getOffset(local - zone.getRawOffset());
+            long utc = local - offset;
+            // gaps and overlaps are resolved by Calendar's own rules
+            if (zone.getOffset(utc) != offset
+                    || zone.getOffset(utc - TimeConstants.DAY) != offset
+                    || zone.getOffset(utc + TimeConstants.DAY) != offset) {
+                return UNKNOWN;
+            }
+            return utc;
+        }
+
+        private static long daysFromCivil(int year, final int month, final int day) {
+            // see http://howardhinnant.github.io/date_algorithms.html
+            year -= month <= 2 ? 1 : 0;
+            long era = (year >= 0 ? year : year - 399) / 400;
+            long yoe = year - era * 400;
+            long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+            long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+            return era * 146097 + doe - 719468;
+        }
+
+        private static int getCenturyStartYear() {
+            long now = System.currentTimeMillis();
+            if (now >= sCenturyStartUntil) {
+                Calendar calendar = Calendar.getInstance();
+                int year = calendar.get(Calendar.YEAR);
+                calendar.clear();
+                calendar.set(year + 1, Calendar.JANUARY, 1);
+                sCenturyStartYear = year - 80;
+                sCenturyStartUntil = calendar.getTimeInMillis();
+            }
+            return sCenturyStartYear;
+        }
+    }
+
+    /**
+     * 今天、昨天、明天零点的时间戳，判断日期只需比较 long
+     */
+    private static final class DayBoundary {
+        final TimeZone mZone;
+        final long mYesterday;
+        final long mToday;
+        final long mTomorrow;
+        // the local day number of today since 1970-01-01
+        private final long mTodayIndex;
+
+        DayBoundary(final long now, final TimeZone zone) {
+            mZone = zone;
+            Calendar cal = Calendar.getInstance(zone);
+            cal.setTimeInMillis(now);
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+            cal.set(Calendar.MINUTE, 0);
+            cal.set(Calendar.SECOND, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+            mToday = cal.getTimeInMillis();
+            cal.add(Calendar.DAY_OF_MONTH, -1);
+            mYesterday = cal.getTimeInMillis();
+            cal.add(Calendar.DAY_OF_MONTH, 2);
+            mTomorrow = cal.getTimeInMillis();
+            mTodayIndex = localDay(mToday);
+        }
+
+        long localDay(final long millis) {
+            long local = millis + mZone.getOffset(millis);
+            long day = local / TimeConstants.DAY;
+            return local % TimeConstants.DAY < 0 ? day - 1 : day;
+        }
+
+        int dayOffset(final long millis) {
+            if (millis >= mToday) {
+                if (millis < mTomorrow) return 0;
+            } else if (millis >= mYesterday) {
+                return -1;
+            }
+            return (int) (localDay(millis) - mTodayIndex);
+        }
+    }
 }
@@ -240,6 +240,10 @@ class UtilsBridge {
         return FileUtils.getFileByPath(filePath);
     }
 
+    static byte[][] getFileDigests(final File file, final String... algorithms) {
+        return FileUtils.getFileDigests(file, algorithms);
+    }
+
     static boolean deleteAllInDir(final File dir) {
         return FileUtils.deleteAllInDir(dir);
     }
@@ -370,6 +374,10 @@ class UtilsBridge {
         return JsonUtils.formatJson(json);
     }
 
+    static String formatJson(String json, int maxLength) {
+        return JsonUtils.formatJson(json, 4, maxLength);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // KeyboardUtils
     ///////////////////////////////////////////////////////////////////////////
@@ -89,6 +89,7 @@ public class FileIOUtils {
                                           final InputStream is,
                                           final boolean append) {
         if (!createOrExistsFile(file) || is == null) return false;
+        long oldLength = FileUtils.getIndexedLength(file);
         OutputStream os = null;
         try {
             os = new BufferedOutputStream(new FileOutputStream(file, append));
@@ -114,6 +115,7 @@ public class FileIOUtils {
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            FileUtils.notifyFileChanged(file, oldLength);
         }
     }
 
@@ -169,6 +171,7 @@ public class FileIOUtils {
                                                      final byte[] bytes,
                                                      final boolean append) {
         if (bytes == null || !createOrExistsFile(file)) return false;
+        long oldLength = FileUtils.getIndexedLength(file);
         BufferedOutputStream bos = null;
         try {
             bos = new BufferedOutputStream(new FileOutputStream(file, append));
@@ -185,6 +188,7 @@ public class FileIOUtils {
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            FileUtils.notifyFileChanged(file, oldLength);
         }
     }
 
@@ -250,6 +254,7 @@ public class FileIOUtils {
                                                       final boolean append,
                                                       final boolean isForce) {
         if (bytes == null) return false;
+        long oldLength = FileUtils.getIndexedLength(file);
         FileChannel fc = null;
         try {
             fc = new FileOutputStream(file, append).getChannel();
@@ -268,6 +273,7 @@ public class FileIOUtils {
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            FileUtils.notifyFileChanged(file, oldLength);
         }
     }
 
@@ -333,6 +339,7 @@ public class FileIOUtils {
                                                   final boolean append,
                                                   final boolean isForce) {
         if (bytes == null || !createOrExistsFile(file)) return false;
+        long oldLength = FileUtils.getIndexedLength(file);
         FileChannel fc = null;
         try {
             fc = new FileOutputStream(file, append).getChannel();
@@ -351,6 +358,7 @@ public class FileIOUtils {
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            FileUtils.notifyFileChanged(file, oldLength);
         }
     }
 
@@ -407,6 +415,7 @@ public class FileIOUtils {
                                               final boolean append) {
         if (file == null || content == null) return false;
         if (!createOrExistsFile(file)) return false;
+        long oldLength = FileUtils.getIndexedLength(file);
         BufferedWriter bw = null;
         try {
             bw = new BufferedWriter(new FileWriter(file, append));
@@ -423,6 +432,7 @@ public class FileIOUtils {
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            FileUtils.notifyFileChanged(file, oldLength);
         }
     }
 
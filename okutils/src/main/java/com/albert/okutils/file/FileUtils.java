@@ -7,27 +7,44 @@ import android.text.TextUtils;
 
 import androidx.annotation.Nullable;
 
+import com.albert.okutils.ThreadUtils;
 import com.albert.okutils.Utils;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.security.DigestInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
@@ -114,8 +131,18 @@ public class FileUtils {
         if (newName.equals(file.getName())) return true;
         File newFile = new File(file.getParent() + File.separator + newName);
         // the new name of file exists then return false
-        return !newFile.exists()
-                && file.renameTo(newFile);
+        if (newFile.exists()) return false;
+        boolean isDir = file.isDirectory();
+        long oldLength = isDir ? -1 : getIndexedLength(file);
+        if (!file.renameTo(newFile)) return false;
+        if (isDir) {
+            notifyDirChanged(file);
+            notifyDirChanged(newFile);
+        } else {
+            notifyFileChanged(file, oldLength);
+            notifyFileChanged(newFile, 0);
+        }
+        return true;
     }
 
     /**
@@ -235,7 +262,7 @@ public class FileUtils {
     public static boolean createFileByDeleteOldFile(final File file) {
         if (file == null) return false;
         // file exists and unsuccessfully delete then return false
-        if (file.exists() && !file.delete()) return false;
+        if (file.exists() && !deleteFile(file)) return false;
         if (!createOrExistsDir(file.getParentFile())) return false;
         try {
             return file.createNewFile();
@@ -301,6 +328,24 @@ public class FileUtils {
         return copyOrMoveDir(srcDir, destDir, listener, false);
     }
 
+    /**
+     * 复制目录，并回调进度
+     * Copy the directory.
+     *
+     * @param srcDir           The source directory.
+     * @param destDir          The destination directory.
+     * @param listener         The replace listener.
+     * @param progressListener The progress listener.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean copyDir(final File srcDir,
+                                  final File destDir,
+                                  final OnReplaceListener listener,
+                                  final OnCopyProgressListener progressListener) {
+        return copyOrMoveDir(srcDir, destDir, listener,
+                CopyProgress.forDir(srcDir, progressListener), false);
+    }
+
     /**
      * 复制文件
      * Copy the file.
@@ -357,6 +402,24 @@ public class FileUtils {
         return copyOrMoveFile(srcFile, destFile, listener, false);
     }
 
+    /**
+     * 复制文件，并回调进度
+     * Copy the file.
+     *
+     * @param srcFile          The source file.
+     * @param destFile         The destination file.
+     * @param listener         The replace listener.
+     * @param progressListener The progress listener.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean copyFile(final File srcFile,
+                                   final File destFile,
+                                   final OnReplaceListener listener,
+                                   final OnCopyProgressListener progressListener) {
+        return copyOrMoveFile(srcFile, destFile, listener,
+                CopyProgress.forFile(srcFile, progressListener), false);
+    }
+
     /**
      * 拷贝文件
      *
@@ -439,6 +502,24 @@ public class FileUtils {
         return copyOrMoveDir(srcDir, destDir, listener, true);
     }
 
+    /**
+     * 移动目录，并回调进度
+     * <p>同一文件系统内直接重命名，不复制数据。</p>
+     *
+     * @param srcDir           The source directory.
+     * @param destDir          The destination directory.
+     * @param listener         The replace listener.
+     * @param progressListener The progress listener.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean moveDir(final File srcDir,
+                                  final File destDir,
+                                  final OnReplaceListener listener,
+                                  final OnCopyProgressListener progressListener) {
+        return copyOrMoveDir(srcDir, destDir, listener,
+                CopyProgress.forDir(srcDir, progressListener), true);
+    }
+
     /**
      * 移动文件
      * Move the file.
@@ -495,6 +576,24 @@ public class FileUtils {
         return copyOrMoveFile(srcFile, destFile, listener, true);
     }
 
+    /**
+     * 移动文件，并回调进度
+     * <p>同一文件系统内直接重命名，不复制数据。</p>
+     *
+     * @param srcFile          The source file.
+     * @param destFile         The destination file.
+     * @param listener         The replace listener.
+     * @param progressListener The progress listener.
+     * @return {@code true}: success<br>{@code false}: fail
+     */
+    public static boolean moveFile(final File srcFile,
+                                   final File destFile,
+                                   final OnReplaceListener listener,
+                                   final OnCopyProgressListener progressListener) {
+        return copyOrMoveFile(srcFile, destFile, listener,
+                CopyProgress.forFile(srcFile, progressListener), true);
+    }
+
     private static boolean copyOrMoveDir(final File srcDir,
                                          final File destDir,
                                          final boolean isMove) {
@@ -510,6 +609,14 @@ public class FileUtils {
                                          final File destDir,
                                          final OnReplaceListener listener,
                                          final boolean isMove) {
+        return copyOrMoveDir(srcDir, destDir, listener, null, isMove);
+    }
+
+    private static boolean copyOrMoveDir(final File srcDir,
+                                         final File destDir,
+                                         final OnReplaceListener listener,
+                                         final CopyProgress progress,
+                                         final boolean isMove) {
         if (srcDir == null || destDir == null) return false;
         // destDir's path locate in srcDir's path then return false
         String srcPath = srcDir.getPath() + File.separator;
@@ -525,16 +632,27 @@ public class FileUtils {
                 return true;
             }
         }
+        // same file system then just rename it, destDir is empty now
+        if (isMove && (!destDir.exists() || destDir.delete())
+                && createOrExistsDir(destDir.getParentFile())
+                && srcDir.renameTo(destDir)) {
+            if (progress != null) progress.update(progress.mTotal);
+            notifyDirChanged(srcDir);
+            notifyDirChanged(destDir);
+            return true;
+        }
         if (!createOrExistsDir(destDir)) return false;
         File[] files = srcDir.listFiles();
+        if (files == null) return false;
         for (File file : files) {
             File oneDestFile = new File(destPath + file.getName());
             if (file.isFile()) {
-                if (!copyOrMoveFile(file, oneDestFile, listener, isMove)) return false;
+                if (!copyOrMoveFile(file, oneDestFile, listener, progress, isMove)) return false;
             } else if (file.isDirectory()) {
-                if (!copyOrMoveDir(file, oneDestFile, listener, isMove)) return false;
+                if (!copyOrMoveDir(file, oneDestFile, listener, progress, isMove)) return false;
             }
         }
+        notifyDirChanged(destDir);
         return !isMove || deleteDir(srcDir);
     }
 
@@ -553,6 +671,14 @@ public class FileUtils {
                                           final File destFile,
                                           final OnReplaceListener listener,
                                           final boolean isMove) {
+        return copyOrMoveFile(srcFile, destFile, listener, null, isMove);
+    }
+
+    private static boolean copyOrMoveFile(final File srcFile,
+                                          final File destFile,
+                                          final OnReplaceListener listener,
+                                          final CopyProgress progress,
+                                          final boolean isMove) {
         if (srcFile == null || destFile == null) return false;
         // srcFile equals destFile then return false
         if (srcFile.equals(destFile)) return false;
@@ -560,7 +686,7 @@ public class FileUtils {
         if (!srcFile.exists() || !srcFile.isFile()) return false;
         if (destFile.exists()) {
             if (listener == null || listener.onReplace()) {// require delete the old file
-                if (!destFile.delete()) {// unsuccessfully delete then return false
+                if (!deleteFile(destFile)) {// unsuccessfully delete then return false
                     return false;
                 }
             } else {
@@ -568,12 +694,82 @@ public class FileUtils {
             }
         }
         if (!createOrExistsDir(destFile.getParentFile())) return false;
+        long destLength = getIndexedLength(destFile);
+        if (isMove) {
+            long length = progress == null ? 0 : srcFile.length();
+            long srcLength = getIndexedLength(srcFile);
+            // same file system then just rename it
+            if (srcFile.renameTo(destFile)) {
+                if (progress != null) progress.update(length);
+                notifyFileChanged(srcFile, srcLength);
+                notifyFileChanged(destFile, destLength);
+                return true;
+            }
+        }
+        boolean copied = copyFileByChannel(srcFile, destFile, progress);
+        notifyFileChanged(destFile, destLength);
+        return copied && !(isMove && !deleteFile(srcFile));
+    }
+
+    /**
+     * 文件间复制每次 transferTo 的最大字节数，分块以便回调进度
+     */
+    private static final long TRANSFER_CHUNK = 8 * 1024 * 1024;
+    private static final int  DIRECT_BUFFER_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> DIRECT_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+    };
+
+    /**
+     * 通过 FileChannel.transferTo 复制，数据不经过 Java 堆；
+     * 不支持 transferTo 时使用 direct buffer 读写。
+     */
+    private static boolean copyFileByChannel(final File srcFile,
+                                             final File destFile,
+                                             final CopyProgress progress) {
+        FileInputStream fis = null;
+        FileOutputStream fos = null;
+        boolean success = false;
         try {
-            return writeFileFromIS(destFile, new FileInputStream(srcFile))
-                    && !(isMove && !deleteFile(srcFile));
-        } catch (FileNotFoundException e) {
+            fis = new FileInputStream(srcFile);
+            fos = new FileOutputStream(destFile);
+            FileChannel in = fis.getChannel();
+            FileChannel out = fos.getChannel();
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long count = in.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), out);
+                if (count <= 0) break;
+                position += count;
+                if (progress != null) progress.update(count);
+            }
+            if (position < size) {
+                in.position(position);
+                ByteBuffer buffer = DIRECT_BUFFER.get();
+                buffer.clear();
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                    if (progress != null) progress.update(count);
+                }
+            }
+            success = true;
+            return true;
+        } catch (IOException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            close(fis);
+            close(fos);
+            if (!success) destFile.delete();
         }
     }
 
@@ -601,17 +797,19 @@ public class FileUtils {
         if (!dir.exists()) return true;
         // dir isn't a directory then return false
         if (!dir.isDirectory()) return false;
-        File[] files = dir.listFiles();
-        if (files != null && files.length != 0) {
-            for (File file : files) {
-                if (file.isFile()) {
-                    if (!file.delete()) return false;
-                } else if (file.isDirectory()) {
-                    if (!deleteDir(file)) return false;
-                }
+        boolean deleted = walkDir(dir, new SimpleFileVisitor() {
+            @Override
+            public boolean onVisitFile(File file) {
+                return file.delete();
             }
-        }
-        return dir.delete();
+
+            @Override
+            public boolean onPostVisitDir(File dir) {
+                return dir.delete();
+            }
+        }) && dir.delete();
+        notifyDirChanged(dir);
+        return deleted;
     }
 
     /**
@@ -633,7 +831,12 @@ public class FileUtils {
      * @return {@code true}: success<br>{@code false}: fail
      */
     public static boolean deleteFile(final File file) {
-        return file != null && (!file.exists() || file.isFile() && file.delete());
+        if (file == null) return false;
+        if (!file.exists()) return true;
+        long oldLength = getIndexedLength(file);
+        if (!file.isFile() || !file.delete()) return false;
+        notifyFileChanged(file, oldLength);
+        return true;
     }
 
     /**
@@ -722,7 +925,7 @@ public class FileUtils {
             for (File file : files) {
                 if (filter.accept(file)) {
                     if (file.isFile()) {
-                        if (!file.delete()) return false;
+                        if (!deleteFile(file)) return false;
                     } else if (file.isDirectory()) {
                         if (!deleteDir(file)) return false;
                     }
@@ -815,6 +1018,8 @@ public class FileUtils {
     /**
      * 获取目录下所有过滤的文件
      * Return the files that satisfy the filter in directory.
+     * <p>Subdirectories are traversed in pre-order on the calling thread,
+     * so the filter is called one file at a time and needn't be thread safe.</p>
      *
      * @param dirPath     The path of directory.
      * @param filter      The filter.
@@ -830,6 +1035,8 @@ public class FileUtils {
     /**
      * 获取目录下所有过滤的文件
      * Return the files that satisfy the filter in directory.
+     * <p>Subdirectories are traversed in pre-order on the calling thread,
+     * so the filter is called one file at a time and needn't be thread safe.</p>
      *
      * @param dir         The directory.
      * @param filter      The filter.
@@ -841,19 +1048,165 @@ public class FileUtils {
                                                       final boolean isRecursive) {
         if (!isDir(dir)) return null;
         List<File> list = new ArrayList<>();
-        File[] files = dir.listFiles();
-        if (files != null && files.length != 0) {
+        Iterator<File> iterator = iterateFilesInDir(dir, isRecursive);
+        while (iterator.hasNext()) {
+            File file = iterator.next();
+            if (filter.accept(file)) {
+                list.add(file);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 并行遍历目录
+     * Walk the directory on a bounded fork/join pool.
+     * <p>The root itself isn't visited. Subdirectories are walked in parallel,
+     * so the visitor must be thread safe and the visiting order isn't fixed.
+     * Any callback returning false cancels the whole walk.
+     * Use {@link #iterateFilesInDir(File, boolean)} for an ordered walk on the calling thread.</p>
+     *
+     * @param dir     The directory.
+     * @param visitor The visitor.
+     * @return {@code true}: walked all<br>{@code false}: cancelled or dir isn't a directory
+     */
+    public static boolean walkDir(final File dir, final OnFileVisitor visitor) {
+        if (!isDir(dir) || visitor == null) return false;
+        WalkTask task = new WalkTask(dir, visitor, new AtomicBoolean());
+        if (WalkPool.PARALLELISM > 1) {
+            WalkPool.POOL.invoke(task);
+        } else {
+            // single core then walk on the current thread
+            task.compute();
+        }
+        return !task.mCancelled.get();
+    }
+
+    /**
+     * 逐个获取目录下的文件，不一次性创建列表
+     * Return the iterator of files in directory, files are listed lazily.
+     * <p>Stop iterating to cancel.</p>
+     *
+     * @param dir         The directory.
+     * @param isRecursive True to traverse subdirectories, false otherwise.
+     * @return the iterator of files in directory
+     */
+    public static Iterator<File> iterateFilesInDir(final File dir, final boolean isRecursive) {
+        return new FileIterator(isDir(dir) ? dir : null, isRecursive);
+    }
+
+    private static final class WalkPool {
+        private static final int          PARALLELISM =
+                Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        private static final ForkJoinPool POOL        = new ForkJoinPool(PARALLELISM);
+    }
+
+    private static final class WalkTask extends RecursiveAction {
+
+        private final File          mDir;
+        private final OnFileVisitor mVisitor;
+        private final AtomicBoolean mCancelled;
+
+        WalkTask(final File dir, final OnFileVisitor visitor, final AtomicBoolean cancelled) {
+            mDir = dir;
+            mVisitor = visitor;
+            mCancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            File[] files = mDir.listFiles();
+            if (files == null || files.length == 0) return;
+            List<WalkTask> subTasks = null;
             for (File file : files) {
-                if (filter.accept(file)) {
-                    list.add(file);
+                if (mCancelled.get()) break;
+                if (file.isDirectory()) {
+                    if (!mVisitor.onPreVisitDir(file)) {
+                        mCancelled.set(true);
+                        break;
+                    }
+                    WalkTask task = new WalkTask(file, mVisitor, mCancelled);
+                    if (!inForkJoinPool()) {
+                        task.compute();
+                        if (!mCancelled.get() && !mVisitor.onPostVisitDir(file)) {
+                            mCancelled.set(true);
+                            break;
+                        }
+                        continue;
+                    }
+                    task.fork();
+                    if (subTasks == null) subTasks = new ArrayList<>();
+                    subTasks.add(task);
+                } else if (!mVisitor.onVisitFile(file)) {
+                    mCancelled.set(true);
+                    break;
                 }
-                if (isRecursive && file.isDirectory()) {
-                    //noinspection ConstantConditions
-                    list.addAll(listFilesInDirWithFilter(file, filter, true));
+            }
+            if (subTasks == null) return;
+            // always join the forked tasks, so nothing is visited after walkDir returns
+            for (WalkTask task : subTasks) {
+                task.join();
+                if (!mCancelled.get() && !mVisitor.onPostVisitDir(task.mDir)) {
+                    mCancelled.set(true);
                 }
             }
         }
-        return list;
+    }
+
+    private static final class FileIterator implements Iterator<File> {
+
+        private final boolean             mIsRecursive;
+        private final ArrayDeque<File[]>  mStack = new ArrayDeque<>();
+        private final ArrayDeque<Integer> mIndexes = new ArrayDeque<>();
+        private       File                mNext;
+
+        FileIterator(final File dir, final boolean isRecursive) {
+            mIsRecursive = isRecursive;
+            if (dir != null) push(dir);
+            mNext = advance();
+        }
+
+        private void push(final File dir) {
+            File[] files = dir.listFiles();
+            if (files != null && files.length != 0) {
+                mStack.push(files);
+                mIndexes.push(0);
+            }
+        }
+
+        private File advance() {
+            while (!mStack.isEmpty()) {
+                File[] files = mStack.peek();
+                int index = mIndexes.pop();
+                if (index >= files.length) {
+                    mStack.pop();
+                    continue;
+                }
+                mIndexes.push(index + 1);
+                File file = files[index];
+                if (mIsRecursive && file.isDirectory()) push(file);
+                return file;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mNext != null;
+        }
+
+        @Override
+        public File next() {
+            if (mNext == null) throw new NoSuchElementException();
+            File file = mNext;
+            mNext = advance();
+            return file;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 
     /**
@@ -1109,18 +1462,378 @@ public class FileUtils {
      */
     public static long getDirLength(final File dir) {
         if (!isDir(dir)) return -1;
-        long len = 0;
-        File[] files = dir.listFiles();
-        if (files != null && files.length != 0) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    len += getDirLength(file);
-                } else {
-                    len += file.length();
+        DirSizeIndex index = DirSizeIndex.find(dir);
+        if (index != null) {
+            long length = index.getLength(dir);
+            if (length >= 0) return length;
+        }
+        final AtomicLong len = new AtomicLong();
+        walkDir(dir, new SimpleFileVisitor() {
+            @Override
+            public boolean onVisitFile(File file) {
+                len.addAndGet(file.length());
+                return true;
+            }
+        });
+        return len.get();
+    }
+
+    /**
+     * 开启目录大小索引
+     * Enable the persisted size index of directory, the index is stored in no backup files dir.
+     * <p>Then {@link #getDirLength(File)} of the directory and its subdirectories returns
+     * the indexed length, which is updated on writes through {@link FileIOUtils} and
+     * {@link FileUtils}, and rechecked by the last modified time of directories.</p>
+     * <p>Appending to a file without the utils doesn't change the directory's
+     * last modified time, so it can't be found by the recheck.</p>
+     *
+     * @param root The root directory.
+     */
+    public static void enableDirSizeIndex(final File root) {
+        if (root == null) return;
+        File store = new File(Utils.getApp().getNoBackupFilesDir(), "dir_size_index");
+        enableDirSizeIndex(root, new File(store,
+                Integer.toHexString(root.getAbsolutePath().hashCode()) + ".idx"));
+    }
+
+    /**
+     * 开启目录大小索引
+     * Enable the persisted size index of directory.
+     *
+     * @param root      The root directory.
+     * @param indexFile The file to store the index, shouldn't be in root.
+     */
+    public static void enableDirSizeIndex(final File root, final File indexFile) {
+        if (root == null || indexFile == null) return;
+        DirSizeIndex.add(new DirSizeIndex(root, indexFile));
+    }
+
+    /**
+     * 关闭目录大小索引
+     * Disable the size index of directory.
+     *
+     * @param root The root directory.
+     */
+    public static void disableDirSizeIndex(final File root) {
+        if (root == null) return;
+        DirSizeIndex.remove(root);
+    }
+
+    /**
+     * 设置目录大小索引重新校验的间隔
+     * Set the interval of rechecking the directories' last modified time.
+     * <p>Default interval equals 3000 milliseconds.</p>
+     *
+     * @param millis The interval in milliseconds.
+     */
+    public static void setDirSizeIndexRecheckInterval(final long millis) {
+        DirSizeIndex.sRecheckInterval = millis;
+    }
+
+    /**
+     * 文件修改前调用，文件不在索引目录内时返回 -1
+     */
+    static long getIndexedLength(final File file) {
+        if (file == null || DirSizeIndex.find(file) == null) return -1;
+        return file.length();
+    }
+
+    /**
+     * 文件修改后调用
+     *
+     * @param oldLength The result of {@link #getIndexedLength(File)} before changed.
+     */
+    static void notifyFileChanged(final File file, final long oldLength) {
+        if (oldLength < 0) return;
+        DirSizeIndex index = DirSizeIndex.find(file);
+        if (index != null) index.onFileChanged(file, oldLength);
+    }
+
+    /**
+     * 目录增删后调用
+     */
+    static void notifyDirChanged(final File dir) {
+        if (dir == null) return;
+        DirSizeIndex index = DirSizeIndex.find(dir);
+        if (index != null) index.onDirChanged(dir);
+    }
+
+    private static final class DirSizeIndex {
+
+        private static final int  VERSION     = 1;
+        // a change in the same time granularity of last modified can't be found
+        private static final long RACY_MILLIS = 2000;
+
+        private static volatile DirSizeIndex[] sIndexes        = new DirSizeIndex[0];
+        private static volatile long           sRecheckInterval = 3000;
+
+        private final File          mRoot;
+        private final String        mRootPath;
+        private final File          mIndexFile;
+        private final AtomicBoolean mSavePending = new AtomicBoolean();
+        private       Node          mRootNode;
+        private       long          mCheckedAt;
+
+        DirSizeIndex(final File root, final File indexFile) {
+            mRoot = root.getAbsoluteFile();
+            mRootPath = mRoot.getPath();
+            mIndexFile = indexFile;
+        }
+
+        static synchronized void add(final DirSizeIndex index) {
+            DirSizeIndex[] indexes = sIndexes;
+            for (DirSizeIndex old : indexes) {
+                if (old.mRootPath.equals(index.mRootPath)) return;
+            }
+            index.load();
+            DirSizeIndex[] newIndexes = Arrays.copyOf(indexes, indexes.length + 1);
+            newIndexes[indexes.length] = index;
+            sIndexes = newIndexes;
+        }
+
+        static synchronized void remove(final File root) {
+            String path = root.getAbsolutePath();
+            List<DirSizeIndex> list = new ArrayList<>(Arrays.asList(sIndexes));
+            for (int i = list.size() - 1; i >= 0; i--) {
+                if (list.get(i).mRootPath.equals(path)) list.remove(i);
+            }
+            sIndexes = list.toArray(new DirSizeIndex[0]);
+        }
+
+        static DirSizeIndex find(final File file) {
+            DirSizeIndex[] indexes = sIndexes;
+            if (indexes.length == 0) return null;
+            String path = file.getAbsolutePath();
+            for (DirSizeIndex index : indexes) {
+                if (path.startsWith(index.mRootPath)
+                        && (path.length() == index.mRootPath.length()
+                        || path.charAt(index.mRootPath.length()) == File.separatorChar)) {
+                    return index;
                 }
             }
+            return null;
+        }
+
+        synchronized long getLength(final File dir) {
+            long now = System.currentTimeMillis();
+            if (mCheckedAt == 0 || now - mCheckedAt >= sRecheckInterval) {
+                if (recheck(mRoot, mRootNode)) scheduleSave();
+                mCheckedAt = now;
+            }
+            Node node = findNode(dir);
+            return node == null ? -1 : node.mTotal;
+        }
+
+        synchronized void onFileChanged(final File file, final long oldLength) {
+            Node parent = findNode(file.getParentFile());
+            if (parent == null) {
+                // the parent directory has just been created by the write
+                onDirChanged(file.getParentFile());
+                return;
+            }
+            long delta = file.length() - oldLength;
+            if (delta == 0) return;
+            parent.mFilesLength += delta;
+            for (Node node = parent; node != null; node = node.mParent) {
+                node.mTotal += delta;
+            }
+            scheduleSave();
+        }
+
+        synchronized void onDirChanged(final File dir) {
+            Node node = findNode(dir);
+            if (node == null) {
+                // find the nearest indexed ancestor
+                for (File parent = dir.getParentFile(); parent != null && node == null; parent = parent.getParentFile()) {
+                    node = findNode(parent);
+                }
+                if (node == null) return;
+                node.mModified = -1;
+            } else if (node.mParent == null) {
+                mRootNode = new Node(null);
+            } else {
+                // forget the subtree, it is scanned again in next recheck
+                node.mParent.mChildren.remove(dir.getName());
+                node.mParent.mModified = -1;
+            }
+            mCheckedAt = 0;
+        }
+
+        private Node findNode(final File dir) {
+            if (dir == null) return null;
+            String path = dir.getAbsolutePath();
+            if (!path.startsWith(mRootPath)) return null;
+            Node node = mRootNode;
+            int start = mRootPath.length() + 1;
+            while (node != null && start < path.length()) {
+                int end = path.indexOf(File.separatorChar, start);
+                if (end == -1) end = path.length();
+                node = node.mChildren == null ? null : node.mChildren.get(path.substring(start, end));
+                start = end + 1;
+            }
+            return node;
+        }
+
+        /**
+         * 校验 dir 及其子目录的修改时间，有变化时重新扫描该目录
+         *
+         * @return true if any directory is scanned
+         */
+        private static boolean recheck(final File dir, final Node node) {
+            boolean changed = false;
+            long modified = dir.lastModified();
+            if (modified == 0 || modified != node.mModified) {
+                rescan(dir, node, modified);
+                changed = true;
+            }
+            long total = node.mFilesLength;
+            if (node.mChildren != null) {
+                for (Map.Entry<String, Node> entry : node.mChildren.entrySet()) {
+                    Node child = entry.getValue();
+                    changed |= recheck(new File(dir, entry.getKey()), child);
+                    total += child.mTotal;
+                }
+            }
+            node.mTotal = total;
+            return changed;
+        }
+
+        private static void rescan(final File dir, final Node node, final long modified) {
+            File[] files = dir.listFiles();
+            Map<String, Node> oldChildren = node.mChildren;
+            Map<String, Node> children = null;
+            long filesLength = 0;
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isDirectory()) {
+                        String name = file.getName();
+                        Node child = oldChildren == null ? null : oldChildren.get(name);
+                        if (children == null) children = new HashMap<>();
+                        children.put(name, child != null ? child : new Node(node));
+                    } else {
+                        filesLength += file.length();
+                    }
+                }
+            }
+            node.mFilesLength = filesLength;
+            node.mChildren = children;
+            node.mModified = System.currentTimeMillis() - modified < RACY_MILLIS ? -1 : modified;
+        }
+
+        private void scheduleSave() {
+            if (!mSavePending.compareAndSet(false, true)) return;
+            SaveExecutor.EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mSavePending.set(false);
+                    save();
+                }
+            });
+        }
+
+        /**
+         * 保存索引的低优先级线程，首次保存时才创建，不占用 ThreadUtils 的共享线程池
+         */
+        private static final class SaveExecutor {
+
+            private static final ExecutorService EXECUTOR =
+                    Executors.newSingleThreadExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "dir-size-index");
+                            thread.setDaemon(true);
+                            thread.setPriority(Thread.MIN_PRIORITY);
+                            return thread;
+                        }
+                    });
+        }
+
+        private void save() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(VERSION);
+                out.writeUTF(mRootPath);
+                synchronized (this) {
+                    writeNode(out, mRootNode);
+                }
+                out.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            File tmp = new File(mIndexFile.getPath() + ".tmp");
+            if (!createOrExistsDir(mIndexFile.getParentFile())) return;
+            FileOutputStream fos = null;
+            try {
+                fos = new FileOutputStream(tmp);
+                bytes.writeTo(fos);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            } finally {
+                close(fos);
+            }
+            if (!tmp.renameTo(mIndexFile)) tmp.delete();
+        }
+
+        private void load() {
+            mRootNode = new Node(null);
+            if (!mIndexFile.isFile()) return;
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(mIndexFile)));
+                if (in.readInt() != VERSION || !mRootPath.equals(in.readUTF())) return;
+                Node root = new Node(null);
+                readNode(in, root);
+                mRootNode = root;
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                close(in);
+            }
+        }
+
+        private static void writeNode(final DataOutputStream out, final Node node) throws IOException {
+            out.writeLong(node.mModified);
+            out.writeLong(node.mFilesLength);
+            int size = node.mChildren == null ? 0 : node.mChildren.size();
+            out.writeInt(size);
+            if (size == 0) return;
+            for (Map.Entry<String, Node> entry : node.mChildren.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeNode(out, entry.getValue());
+            }
+        }
+
+        private static void readNode(final DataInputStream in, final Node node) throws IOException {
+            node.mModified = in.readLong();
+            node.mFilesLength = in.readLong();
+            long total = node.mFilesLength;
+            int size = in.readInt();
+            if (size > 0) {
+                node.mChildren = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    Node child = new Node(node);
+                    node.mChildren.put(in.readUTF(), child);
+                    readNode(in, child);
+                    total += child.mTotal;
+                }
+            }
+            node.mTotal = total;
+        }
+
+        private static final class Node {
+            final Node        mParent;
+            long              mModified = -1;
+            long              mFilesLength;
+            long              mTotal;
+            Map<String, Node> mChildren;
+
+            Node(final Node parent) {
+                mParent = parent;
+            }
         }
-        return len;
     }
 
     /**
@@ -1202,30 +1915,138 @@ public class FileUtils {
      * @return the md5 of file
      */
     public static byte[] getFileMD5(final File file) {
-        if (file == null) return null;
-        DigestInputStream dis = null;
+        byte[][] digests = getFileDigests(file, "MD5");
+        return digests == null ? null : digests[0];
+    }
+
+    /**
+     * 读取一次文件，同时计算多个摘要
+     * Return the digests of file, the file is read only once.
+     *
+     * @param file       The file.
+     * @param algorithms The name of algorithms, such as "MD5", "SHA-1", "SHA-256".
+     * @return the digests in the order of algorithms, or null if failed
+     */
+    public static byte[][] getFileDigests(final File file, final String... algorithms) {
+        return digestFile(file, null, null, algorithms);
+    }
+
+    /**
+     * 在 IO 线程计算文件摘要，在主线程回调进度和结果
+     * Compute the digests of file in background.
+     *
+     * @param file       The file.
+     * @param listener   The listener.
+     * @param algorithms The name of algorithms, such as "MD5", "SHA-1", "SHA-256".
+     * @return the task, which can be cancelled
+     */
+    public static ThreadUtils.Task<byte[][]> getFileDigestsAsync(final File file,
+                                                               final OnDigestListener listener,
+                                                               final String... algorithms) {
+        ThreadUtils.SimpleTask<byte[][]> task = new ThreadUtils.SimpleTask<byte[][]>() {
+            @Override
+            public byte[][] doInBackground() {
+                return digestFile(file, this, listener, algorithms);
+            }
+
+            @Override
+            public void onSuccess(byte[][] result) {
+                if (listener != null) listener.onSuccess(result);
+            }
+        };
+        ThreadUtils.executeByIo(task);
+        return task;
+    }
+
+    /**
+     * 映射读取的最大文件大小，更大的文件用直接缓冲区顺序读取，避免在 32 位进程中占用大段虚拟地址空间
+     */
+    private static final long DIGEST_MAP_SIZE   = 64 * 1024 * 1024;
+    /**
+     * 每次交给 MessageDigest 的字节数，也是检查取消的间隔
+     */
+    private static final int  DIGEST_CHUNK_SIZE = 256 * 1024;
+    private static final long DIGEST_PROGRESS   = 8 * 1024 * 1024;
+
+    private static byte[][] digestFile(final File file,
+                                       final ThreadUtils.Task<?> task,
+                                       final OnDigestListener listener,
+                                       final String... algorithms) {
+        if (file == null || algorithms == null || algorithms.length == 0) return null;
+        MessageDigest[] mds = new MessageDigest[algorithms.length];
         try {
-            FileInputStream fis = new FileInputStream(file);
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            dis = new DigestInputStream(fis, md);
-            byte[] buffer = new byte[1024 * 256];
-            while (true) {
-                if (!(dis.read(buffer) > 0)) break;
+            for (int i = 0; i < algorithms.length; i++) {
+                mds[i] = MessageDigest.getInstance(algorithms[i]);
             }
-            md = dis.getMessageDigest();
-            return md.digest();
-        } catch (NoSuchAlgorithmException | IOException e) {
+        } catch (NoSuchAlgorithmException e) {
             e.printStackTrace();
-        } finally {
-            try {
-                if (dis != null) {
-                    dis.close();
+            return null;
+        }
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(file);
+            FileChannel fc = fis.getChannel();
+            final long total = fc.size();
+            long read = 0;
+            long reported = 0;
+            if (total > 0 && total <= DIGEST_MAP_SIZE) {
+                // 每个 MessageDigest 拿到的是映射区域的视图，数据不复制到 Java 堆
+                MappedByteBuffer mbb = fc.map(FileChannel.MapMode.READ_ONLY, 0, total);
+                while (read < total) {
+                    if (task != null && task.isCanceled()) return null;
+                    int len = (int) Math.min(DIGEST_CHUNK_SIZE, total - read);
+                    mbb.limit((int) read + len);
+                    mbb.position((int) read);
+                    for (MessageDigest md : mds) {
+                        md.update(mbb.duplicate());
+                    }
+                    read += len;
+                    if (listener != null && read - reported >= DIGEST_PROGRESS) {
+                        reported = read;
+                        postDigestProgress(listener, read, total);
+                    }
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
+            } else {
+                // large files, and special files whose size is 0, are read until the end
+                ByteBuffer bb = DIRECT_BUFFER.get();
+                bb.clear();
+                int len;
+                while ((len = fc.read(bb)) != -1) {
+                    if (task != null && task.isCanceled()) return null;
+                    bb.flip();
+                    for (MessageDigest md : mds) {
+                        md.update(bb.duplicate());
+                    }
+                    bb.clear();
+                    read += len;
+                    if (listener != null && read - reported >= DIGEST_PROGRESS) {
+                        reported = read;
+                        postDigestProgress(listener, read, total);
+                    }
+                }
+            }
+            // total is 0 for special files, so report the bytes actually read
+            if (listener != null) postDigestProgress(listener, read, read);
+            byte[][] digests = new byte[mds.length][];
+            for (int i = 0; i < mds.length; i++) {
+                digests[i] = mds[i].digest();
             }
+            return digests;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            close(fis);
         }
-        return null;
+    }
+
+    private static void postDigestProgress(final OnDigestListener listener, final long read, final long total) {
+        ThreadUtils.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                listener.onProgress(read, total);
+            }
+        });
     }
 
     /**
@@ -1345,6 +2166,102 @@ public class FileUtils {
         boolean onReplace();
     }
 
+    public interface OnFileVisitor {
+        /**
+         * 进入子目录前回调
+         *
+         * @return false to cancel the walk
+         */
+        boolean onPreVisitDir(File dir);
+
+        /**
+         * 访问文件
+         *
+         * @return false to cancel the walk
+         */
+        boolean onVisitFile(File file);
+
+        /**
+         * 子目录下所有文件访问完成后回调
+         *
+         * @return false to cancel the walk
+         */
+        boolean onPostVisitDir(File dir);
+    }
+
+    public abstract static class SimpleFileVisitor implements OnFileVisitor {
+        @Override
+        public boolean onPreVisitDir(File dir) {
+            return true;
+        }
+
+        @Override
+        public boolean onVisitFile(File file) {
+            return true;
+        }
+
+        @Override
+        public boolean onPostVisitDir(File dir) {
+            return true;
+        }
+    }
+
+    public interface OnDigestListener {
+        /**
+         * 主线程回调
+         *
+         * @param read  已读取的字节数
+         * @param total 文件总字节数，/proc 下等大小未知的文件为 0，最后一次回调时为实际读取的字节数
+         */
+        void onProgress(long read, long total);
+
+        /**
+         * 主线程回调
+         *
+         * @param digests 摘要，失败时为 null
+         */
+        void onSuccess(byte[][] digests);
+    }
+
+    public interface OnCopyProgressListener {
+        /**
+         * @param copied         已复制的字节数
+         * @param total          总字节数
+         * @param bytesPerSecond 平均速度（字节/秒）
+         */
+        void onProgress(long copied, long total, long bytesPerSecond);
+    }
+
+    private static final class CopyProgress {
+
+        private final OnCopyProgressListener mListener;
+        private final long                   mTotal;
+        private final long                   mStartNanos;
+        private       long                   mCopied;
+
+        private CopyProgress(final OnCopyProgressListener listener, final long total) {
+            mListener = listener;
+            mTotal = total;
+            mStartNanos = System.nanoTime();
+        }
+
+        static CopyProgress forFile(final File file, final OnCopyProgressListener listener) {
+            if (listener == null || file == null) return null;
+            return new CopyProgress(listener, file.length());
+        }
+
+        static CopyProgress forDir(final File dir, final OnCopyProgressListener listener) {
+            if (listener == null || dir == null) return null;
+            return new CopyProgress(listener, getDirLength(dir));
+        }
+
+        void update(final long count) {
+            mCopied += count;
+            long elapsed = Math.max(System.nanoTime() - mStartNanos, 1);
+            mListener.onProgress(mCopied, mTotal, (long) (mCopied * 1e9 / elapsed));
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // other utils methods
     ///////////////////////////////////////////////////////////////////////////
@@ -1388,36 +2305,6 @@ public class FileUtils {
         return true;
     }
 
-    private static boolean writeFileFromIS(final File file,
-                                           final InputStream is) {
-        OutputStream os = null;
-        try {
-            os = new BufferedOutputStream(new FileOutputStream(file));
-            byte data[] = new byte[8192];
-            int len;
-            while ((len = is.read(data, 0, 8192)) != -1) {
-                os.write(data, 0, len);
-            }
-            return true;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
-        } finally {
-            try {
-                is.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            try {
-                if (os != null) {
-                    os.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-    }
-
     @SuppressWarnings("ConstantConditions")
     public static void close(@Nullable Closeable c) {
         // java.lang.IncompatibleClassChangeError: interface not implemented
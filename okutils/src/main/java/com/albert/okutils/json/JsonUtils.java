@@ -22,6 +22,14 @@ public final class JsonUtils {
     private static final byte TYPE_JSON_OBJECT = 0x05;
     private static final byte TYPE_JSON_ARRAY = 0x06;
 
+    // the next token formatJson accepts
+    private static final int EXPECT_VALUE = 0;
+    private static final int EXPECT_KEY = 1;
+    private static final int EXPECT_COLON = 2;
+    private static final int EXPECT_COMMA_OR_CLOSE = 3;
+
+    private static final String LINE_SEP = System.getProperty("line.separator");
+
     private JsonUtils() {
         throw new UnsupportedOperationException("u can't instantiate me...");
     }
@@ -215,20 +223,168 @@ public final class JsonUtils {
     }
 
     public static String formatJson(final String json, final int indentSpaces) {
-        try {
-            for (int i = 0, len = json.length(); i < len; i++) {
-                char c = json.charAt(i);
-                if (c == '{') {
-                    return new JSONObject(json).toString(indentSpaces);
-                } else if (c == '[') {
-                    return new JSONArray(json).toString(indentSpaces);
-                } else if (!Character.isWhitespace(c)) {
-                    return json;
-                }
+        return formatJson(json, indentSpaces, 0);
+    }
+
+    /**
+     * 单遍扫描格式化 json，不构建 JSONObject/JSONArray
+     *
+     * @param json         json 字符串
+     * @param indentSpaces 缩进空格数
+     * @param maxLength    输出的最大字符数，超出后截断，小于等于 0 时不限制
+     * @return 格式化后的 json，不是合法的 json 对象或数组时返回原字符串
+     */
+    public static String formatJson(final String json, final int indentSpaces, final int maxLength) {
+        if (json == null) return null;
+        int len = json.length();
+        int i = 0;
+        while (i < len && Character.isWhitespace(json.charAt(i))) i++;
+        if (i == len || (json.charAt(i) != '{' && json.charAt(i) != '[')) return json;
+        int limit = maxLength > 0 ? maxLength : Integer.MAX_VALUE;
+        StringBuilder sb = new StringBuilder(Math.min(len + (len >> 1), limit) + 64);
+        // the expected closing brackets of the open containers
+        char[] stack = new char[16];
+        int depth = 0;
+        int expect = EXPECT_VALUE;
+        // after the limit the rest is only validated
+        boolean truncated = false;
+        for (; i < len; i++) {
+            if (!truncated && sb.length() >= limit) {
+                sb.setLength(limit);
+                truncated = true;
+            }
+            char c = json.charAt(i);
+            switch (c) {
+                case '"':
+                    if (expect != EXPECT_VALUE && expect != EXPECT_KEY) return json;
+                    int end = i + 1;
+                    while (end < len && json.charAt(end) != '"') {
+                        end += json.charAt(end) == '\\' ? 2 : 1;
+                    }
+                    if (end >= len) return json;
+                    if (!truncated) sb.append(json, i, end + 1);
+                    i = end;
+                    expect = expect == EXPECT_KEY ? EXPECT_COLON : EXPECT_COMMA_OR_CLOSE;
+                    break;
+                case '{':
+                case '[':
+                    if (expect != EXPECT_VALUE) return json;
+                    char close = c == '{' ? '}' : ']';
+                    int next = i + 1;
+                    while (next < len && Character.isWhitespace(json.charAt(next))) next++;
+                    if (next < len && json.charAt(next) == close) {
+                        if (!truncated) sb.append(c).append(close);
+                        i = next;
+                        if (depth == 0) return finishRoot(json, i, sb, truncated, limit);
+                        expect = EXPECT_COMMA_OR_CLOSE;
+                        break;
+                    }
+                    if (depth == stack.length) {
+                        char[] grown = new char[depth << 1];
+                        System.arraycopy(stack, 0, grown, 0, depth);
+                        stack = grown;
+                    }
+                    stack[depth++] = close;
+                    if (!truncated) {
+                        sb.append(c);
+                        appendNewLine(sb, depth, indentSpaces);
+                    }
+                    expect = c == '{' ? EXPECT_KEY : EXPECT_VALUE;
+                    break;
+                case '}':
+                case ']':
+                    if (expect != EXPECT_COMMA_OR_CLOSE || depth == 0 || stack[--depth] != c) return json;
+                    if (!truncated) {
+                        appendNewLine(sb, depth, indentSpaces);
+                        sb.append(c);
+                    }
+                    if (depth == 0) return finishRoot(json, i, sb, truncated, limit);
+                    break;
+                case ',':
+                    if (expect != EXPECT_COMMA_OR_CLOSE || depth == 0) return json;
+                    if (!truncated) {
+                        sb.append(c);
+                        appendNewLine(sb, depth, indentSpaces);
+                    }
+                    expect = stack[depth - 1] == '}' ? EXPECT_KEY : EXPECT_VALUE;
+                    break;
+                case ':':
+                    if (expect != EXPECT_COLON) return json;
+                    if (!truncated) sb.append(": ");
+                    expect = EXPECT_VALUE;
+                    break;
+                default:
+                    if (Character.isWhitespace(c)) break;
+                    // number, true, false or null
+                    if (expect != EXPECT_VALUE) return json;
+                    int scalarEnd = i + 1;
+                    while (scalarEnd < len && !isScalarEnd(json.charAt(scalarEnd))) scalarEnd++;
+                    if (!isJsonScalar(json, i, scalarEnd)) return json;
+                    if (!truncated) sb.append(json, i, scalarEnd);
+                    i = scalarEnd - 1;
+                    expect = EXPECT_COMMA_OR_CLOSE;
+                    break;
             }
-        } catch (JSONException e) {
-            e.printStackTrace();
         }
+        // unclosed container
         return json;
     }
+
+    private static String finishRoot(final String json, final int rootEnd, final StringBuilder sb,
+                                     final boolean truncated, final int limit) {
+        int len = json.length();
+        // only whitespace may follow the root
+        for (int j = rootEnd + 1; j < len; j++) {
+            if (!Character.isWhitespace(json.charAt(j))) return json;
+        }
+        if (!truncated && sb.length() <= limit) return sb.toString();
+        sb.setLength(limit);
+        return sb.append(LINE_SEP).append("... (truncated, ").append(len).append(" chars in total)").toString();
+    }
+
+    private static boolean isScalarEnd(final char c) {
+        return c == ',' || c == ':' || c == ']' || c == '}' || c == '[' || c == '{' || c == '"'
+                || Character.isWhitespace(c);
+    }
+
+    private static boolean isJsonScalar(final String json, final int start, final int end) {
+        if (json.startsWith("true", start)) return end - start == 4;
+        if (json.startsWith("null", start)) return end - start == 4;
+        if (json.startsWith("false", start)) return end - start == 5;
+        // -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+        int i = start;
+        if (i < end && json.charAt(i) == '-') i++;
+        if (i == end) return false;
+        if (json.charAt(i) == '0') {
+            i++;
+        } else {
+            int digits = i;
+            while (i < end && isDigit(json.charAt(i))) i++;
+            if (i == digits) return false;
+        }
+        if (i < end && json.charAt(i) == '.') {
+            int digits = ++i;
+            while (i < end && isDigit(json.charAt(i))) i++;
+            if (i == digits) return false;
+        }
+        if (i < end && (json.charAt(i) == 'e' || json.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (json.charAt(i) == '+' || json.charAt(i) == '-')) i++;
+            int digits = i;
+            while (i < end && isDigit(json.charAt(i))) i++;
+            if (i == digits) return false;
+        }
+        return i == end;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static void appendNewLine(final StringBuilder sb, final int depth, final int indentSpaces) {
+        sb.append('\n');
+        for (int i = depth * indentSpaces; i > 0; i--) {
+            sb.append(' ');
+        }
+    }
 }
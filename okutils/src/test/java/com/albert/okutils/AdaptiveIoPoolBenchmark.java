@@ -0,0 +1,109 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Mixed blocking and CPU-bound tasks in {@link ThreadUtils#getIoPool()}
+ * and {@link ThreadUtils#getAdaptiveIoPool()}.
+ * <p>Robolectric only provides the main looper; the CPU time of tasks comes from {@link ThreadMXBean},
+ * since {@code Debug.threadCpuTimeNanos()} is 0 off device. Each pool runs for {@link #SECONDS} seconds
+ * with a bounded backlog, and the throughput is taken from the second half, after the adaptive pool
+ * has settled.</p>
+ * <p>Run with {@code -Dokutils.benchmark=true}.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AdaptiveIoPoolBenchmark {
+
+    private static final int SECONDS = 30;
+    private static final int BACKLOG = 64;
+    private static final long BLOCKING_MILLIS = 10;
+    private static final long CPU_MILLIS = 2;
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("okutils.benchmark"));
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isCurrentThreadCpuTimeSupported());
+        threads.setThreadCpuTimeEnabled(true);
+        ThreadUtils.setCpuTimeSource(new ThreadUtils.CpuTimeSource() {
+            @Override
+            public long currentThreadCpuTimeNanos() {
+                return threads.getCurrentThreadCpuTime();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        ThreadUtils.setCpuTimeSource(null);
+    }
+
+    @Test
+    public void mixedWorkload() throws Exception {
+        double fixed = run(ThreadUtils.getIoPool());
+        double adaptive = run(ThreadUtils.getAdaptiveIoPool());
+        System.out.printf("%d ms blocking + %d ms cpu tasks (10:1), %d s each: io pool %.0f tasks/s, "
+                        + "adaptive io pool %.0f tasks/s (%.2fx)%n",
+                BLOCKING_MILLIS, CPU_MILLIS, SECONDS, fixed, adaptive, adaptive / fixed);
+        for (ThreadUtils.PoolResizeDecision decision : ThreadUtils.getAdaptiveIoDecisions()) {
+            System.out.println(decision);
+        }
+    }
+
+    /**
+     * Return the tasks per second completed in the second half of the run.
+     */
+    private static double run(final ExecutorService pool) throws InterruptedException {
+        final Semaphore backlog = new Semaphore(BACKLOG);
+        final AtomicLong completed = new AtomicLong();
+        long start = System.nanoTime();
+        long half = start + TimeUnit.SECONDS.toNanos(SECONDS) / 2;
+        long end = start + TimeUnit.SECONDS.toNanos(SECONDS);
+        long atHalf = -1;
+        for (int i = 0; ; i++) {
+            backlog.acquire();
+            long now = System.nanoTime();
+            if (atHalf < 0 && now >= half) {
+                atHalf = completed.get();
+            }
+            if (now >= end) break;
+            // one CPU-bound task in every eleven
+            final boolean cpu = i % 11 == 10;
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (cpu) {
+                        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CPU_MILLIS);
+                        while (System.nanoTime() < end) {
+                            // burn the CPU
+                        }
+                    } else {
+                        try {
+                            Thread.sleep(BLOCKING_MILLIS);
+                        } catch (InterruptedException ignore) {
+                        }
+                    }
+                    completed.incrementAndGet();
+                    backlog.release();
+                }
+            });
+        }
+        double throughput = (completed.get() - atHalf) / (SECONDS / 2.0);
+        assertTrue(backlog.tryAcquire(BACKLOG - 1, 60, TimeUnit.SECONDS));
+        return throughput;
+    }
+}
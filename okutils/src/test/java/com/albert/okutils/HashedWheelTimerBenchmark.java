@@ -0,0 +1,142 @@
+package com.albert.okutils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares {@link ThreadUtils.HashedWheelTimer4Util} with {@link Timer} at 10k pending timers.
+ * <p>Run with {@code -Dokutils.benchmark=true}.</p>
+ */
+public class HashedWheelTimerBenchmark {
+
+    private static final int PENDING = 10000;
+    private static final int PROBES  = 1000;
+    private static final int ROUNDS  = 5;
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("okutils.benchmark"));
+    }
+
+    @Test
+    public void scheduleCancelAndLateness() throws Exception {
+        ThreadUtils.HashedWheelTimer4Util wheel = new ThreadUtils.HashedWheelTimer4Util();
+        Timer timer = new Timer("benchmark-timer", true);
+        for (int i = 0; i < ROUNDS; i++) {
+            boolean print = i == ROUNDS - 1;
+            runWheel(wheel, print);
+            runTimer(timer, print);
+        }
+        timer.cancel();
+    }
+
+    private static void runWheel(final ThreadUtils.HashedWheelTimer4Util wheel,
+                                 final boolean print) throws InterruptedException {
+        long[] delays = delays();
+        List<ThreadUtils.HashedWheelTimer4Util.Timeout> timeouts = new ArrayList<>(PENDING);
+        long start = System.nanoTime();
+        for (long delay : delays) {
+            timeouts.add(wheel.schedule(NOOP, TimeUnit.MILLISECONDS.toNanos(delay), 0));
+        }
+        long scheduled = System.nanoTime();
+
+        final long[] lateness = new long[PROBES];
+        final CountDownLatch latch = new CountDownLatch(PROBES);
+        for (int i = 0; i < PROBES; i++) {
+            final int index = i;
+            final long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+            wheel.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    lateness[index] = System.nanoTime() - due;
+                    latch.countDown();
+                }
+            }, TimeUnit.MILLISECONDS.toNanos(50), 0);
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        long cancelStart = System.nanoTime();
+        for (ThreadUtils.HashedWheelTimer4Util.Timeout timeout : timeouts) {
+            timeout.cancel();
+        }
+        long cancelled = System.nanoTime();
+        if (print) report("wheel", scheduled - start, cancelled - cancelStart, lateness);
+    }
+
+    private static void runTimer(final Timer timer, final boolean print) throws InterruptedException {
+        long[] delays = delays();
+        List<TimerTask> tasks = new ArrayList<>(PENDING);
+        long start = System.nanoTime();
+        for (long delay : delays) {
+            TimerTask task = new TimerTask() {
+                @Override
+                public void run() {
+                }
+            };
+            timer.schedule(task, delay);
+            tasks.add(task);
+        }
+        long scheduled = System.nanoTime();
+
+        final long[] lateness = new long[PROBES];
+        final CountDownLatch latch = new CountDownLatch(PROBES);
+        for (int i = 0; i < PROBES; i++) {
+            final int index = i;
+            final long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    lateness[index] = System.nanoTime() - due;
+                    latch.countDown();
+                }
+            }, 50);
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        long cancelStart = System.nanoTime();
+        for (TimerTask task : tasks) {
+            task.cancel();
+        }
+        // the cancelled tasks stay in the heap until purged
+        timer.purge();
+        long cancelled = System.nanoTime();
+        if (print) report("Timer", scheduled - start, cancelled - cancelStart, lateness);
+    }
+
+    private static long[] delays() {
+        Random random = new Random(1);
+        long[] delays = new long[PENDING];
+        for (int i = 0; i < PENDING; i++) {
+            delays[i] = 10000 + random.nextInt(50000);
+        }
+        return delays;
+    }
+
+    private static void report(final String name, final long scheduleNanos,
+                               final long cancelNanos, final long[] lateness) {
+        long[] sorted = lateness.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-6s schedule %d: %.1f ns/op, cancel: %.1f ns/op, "
+                        + "lateness p50 %.2f ms, p99 %.2f ms%n",
+                name, PENDING, (double) scheduleNanos / PENDING, (double) cancelNanos / PENDING,
+                sorted[PROBES / 2] / 1e6, sorted[PROBES * 99 / 100] / 1e6);
+    }
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+}
@@ -0,0 +1,81 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLog;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * The cost of a console log call of {@link LogUtils}, with and without caller info.
+ * <p>Run with {@code -Dokutils.benchmark=true}.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LogUtilsBenchmark {
+
+    private static final int CALLS  = 20000;
+    private static final int ROUNDS = 5;
+
+    @Before
+    public void setUp() {
+        Utils.init(RuntimeEnvironment.getApplication());
+        assumeTrue(Boolean.getBoolean("okutils.benchmark"));
+        LogUtils.getConfig()
+                .setConsoleSwitch(true)
+                .setBorderSwitch(false)
+                .setSingleTagSwitch(true);
+    }
+
+    @After
+    public void tearDown() {
+        LogUtils.getConfig().setLogHeadSwitch(true).setHeadFilter(LogUtils.V);
+        ShadowLog.reset();
+    }
+
+    @Test
+    public void logCall() {
+        double stack = 0, caller = 0, noHead = 0, noCaller = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            stack = measureStackCapture();
+
+            LogUtils.getConfig().setLogHeadSwitch(true).setHeadFilter(LogUtils.V);
+            caller = measure();
+
+            // the tag is given, so the caller is not needed
+            LogUtils.getConfig().setLogHeadSwitch(false).setHeadFilter(LogUtils.V);
+            noHead = measure();
+
+            // caller info skipped for D and below
+            LogUtils.getConfig().setLogHeadSwitch(true).setHeadFilter(LogUtils.I);
+            noCaller = measure();
+        }
+        System.out.printf("new Throwable().getStackTrace(): %.2f us%n", stack);
+        System.out.printf("dTag with caller info:           %.2f us%n", caller);
+        System.out.printf("dTag with head switch off:       %.2f us%n", noHead);
+        System.out.printf("dTag below the head filter:      %.2f us (%.1fx)%n", noCaller, caller / noCaller);
+    }
+
+    private static double measure() {
+        ShadowLog.reset();
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            LogUtils.dTag("Benchmark", "message");
+        }
+        return (System.nanoTime() - start) / 1e3 / CALLS;
+    }
+
+    private static double measureStackCapture() {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            sink += new Throwable().getStackTrace().length;
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / CALLS;
+        if (sink == 0) System.out.println();
+        return micros;
+    }
+}
@@ -0,0 +1,106 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLog;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Chunked console output of {@link LogUtils}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LogUtilsConsoleTest {
+
+    private static final String TAG = "ConsoleTest";
+
+    private long mChunkBytes;
+
+    @Before
+    public void setUp() {
+        Utils.init(RuntimeEnvironment.getApplication());
+        LogUtils.getConfig()
+                .setConsoleSwitch(true)
+                .setSingleTagSwitch(true)
+                .setLogHeadSwitch(false)
+                .setOnConsoleOutputListener(new LogUtils.OnConsoleOutputListener() {
+                    @Override
+                    public void onConsoleOutput(int type, String tag, String content) {
+                        // 每段输出在 JVM 上需要一个 String 副本，含非 Latin-1 字符时
+                        // toString() 先尝试压缩为 Latin-1 再按 UTF-16 复制，约 3 字节/字符
+                        mChunkBytes += isLatin1(content) ? content.length() : 3L * content.length();
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        LogUtils.getConfig()
+                .setBorderSwitch(true)
+                .setLogHeadSwitch(true)
+                .setOnConsoleOutputListener(null);
+        ShadowLog.reset();
+    }
+
+    @Test
+    public void utf8LengthMatchesGetBytes() {
+        Charset utf8 = Charset.forName("UTF-8");
+        char[] pool = {'a', '\u00e9', '\u4e2d', '\ud83d', '\ude00', '\n'};
+        Random random = new Random(7);
+        for (int n = 0; n < 1000; n++) {
+            char[] chars = new char[random.nextInt(32)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = pool[random.nextInt(pool.length)];
+            }
+            String s = new String(chars);
+            assertEquals(s, s.getBytes(utf8).length, LogUtils.utf8Length(s));
+        }
+        assertEquals(4, LogUtils.utf8Length("\ud83d\ude00"));
+    }
+
+    @Test
+    public void longMessageAllocatesLittleBeyondChunks() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("line ").append(i).append(" of a long message").append(System.getProperty("line.separator"));
+        }
+        String msg = sb.toString();
+        for (boolean border : new boolean[]{false, true}) {
+            LogUtils.getConfig().setBorderSwitch(border);
+            for (int i = 0; i < 20; i++) {
+                LogUtils.dTag(TAG, msg);
+                ShadowLog.reset();
+            }
+            mChunkBytes = 0;
+            long id = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(id);
+            LogUtils.dTag(TAG, msg);
+            long allocated = threads.getThreadAllocatedBytes(id) - before;
+            ShadowLog.reset();
+            // 除了各段的 String 之外只允许少量固定开销，不能再拼接出整条消息
+            assertTrue("border " + border + ": allocated " + allocated + " bytes for "
+                            + mChunkBytes + " bytes of chunks",
+                    allocated <= mChunkBytes + 16 * 1024);
+        }
+    }
+
+    private static boolean isLatin1(String content) {
+        for (int i = 0, len = content.length(); i < len; i++) {
+            if (content.charAt(i) > 0xFF) return false;
+        }
+        return true;
+    }
+}
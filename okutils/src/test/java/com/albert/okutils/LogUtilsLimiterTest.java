@@ -0,0 +1,72 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLog;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rate limits and suppression summaries of {@link LogUtils}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LogUtilsLimiterTest {
+
+    private static final String TAG = "LimiterTest";
+
+    @Before
+    public void setUp() {
+        Utils.init(RuntimeEnvironment.getApplication());
+        LogUtils.getConfig()
+                .setConsoleSwitch(true)
+                .setBorderSwitch(false)
+                .setSingleTagSwitch(true)
+                .setLogHeadSwitch(false);
+        ShadowLog.reset();
+    }
+
+    @After
+    public void tearDown() {
+        LogUtils.getConfig()
+                .setTagRateLimit(TAG, 0, 1)
+                .setSuppressSummaryInterval(10000)
+                .setLogHeadSwitch(true);
+    }
+
+    @Test
+    public void burstAllowsExactlyBurstMessages() {
+        LogUtils.getConfig().setTagRateLimit(TAG, 0.1, 3);
+        for (int i = 0; i < 10; i++) {
+            LogUtils.dTag(TAG, "message " + i);
+        }
+        assertEquals(3, ShadowLog.getLogsForTag(TAG).size());
+    }
+
+    @Test
+    public void quietTagStillReportsSummary() throws Exception {
+        LogUtils.getConfig()
+                .setSuppressSummaryInterval(200)
+                .setTagRateLimit(TAG, 0.1, 3);
+        for (int i = 0; i < 10; i++) {
+            LogUtils.dTag(TAG, "message " + i);
+        }
+        // no more logs of the tag, the summary is flushed when the interval ends
+        String summary = null;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (summary == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            List<ShadowLog.LogItem> logs = ShadowLog.getLogsForTag(TAG);
+            for (ShadowLog.LogItem item : logs) {
+                if (item.msg.startsWith("suppressed")) summary = item.msg;
+            }
+        }
+        assertTrue("summary: " + summary, summary != null && summary.startsWith("suppressed 7 messages from " + TAG));
+    }
+}
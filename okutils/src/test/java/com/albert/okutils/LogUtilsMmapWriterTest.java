@@ -0,0 +1,108 @@
+package com.albert.okutils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Crash recovery of {@link LogUtils.MmapFileWriter}: a writer dropped without flushing stands for
+ * a killed process, and the next writer over the same buffer file appends what was left.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LogUtilsMmapWriterTest {
+
+    private static final int CAPACITY = 4096;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private String mBuffer;
+    private File mDay1;
+    private File mDay2;
+
+    @Before
+    public void setUp() {
+        Utils.init(RuntimeEnvironment.getApplication());
+        mBuffer = new File(mFolder.getRoot(), ".util_main.mmap").getPath();
+        mDay1 = new File(mFolder.getRoot(), "util_2026-10-17_main.txt");
+        // shorter than the first path, so the end of the old path stays in the header
+        mDay2 = new File(mFolder.getRoot(), "u_18.txt");
+    }
+
+    @Test
+    public void leftoverLinesAreAppendedOnce() throws Exception {
+        LogUtils.MmapFileWriter writer = new LogUtils.MmapFileWriter(mBuffer, CAPACITY);
+        writer.write(mDay1.getPath(), "line 1\n");
+        writer.write(mDay1.getPath(), "line 2\n");
+        assertFalse(mDay1.exists());
+
+        // killed before a flush
+        new LogUtils.MmapFileWriter(mBuffer, CAPACITY);
+        assertEquals("line 1\nline 2\n", read(mDay1));
+
+        // the buffer was emptied by the recovery
+        writer = new LogUtils.MmapFileWriter(mBuffer, CAPACITY);
+        assertEquals("line 1\nline 2\n", read(mDay1));
+        writer.write(mDay1.getPath(), "line 3\n");
+        writer.flush();
+        new LogUtils.MmapFileWriter(mBuffer, CAPACITY);
+        assertEquals("line 1\nline 2\nline 3\n", read(mDay1));
+    }
+
+    @Test
+    public void newTargetFlushesTheOldOne() throws Exception {
+        LogUtils.MmapFileWriter writer = new LogUtils.MmapFileWriter(mBuffer, CAPACITY);
+        writer.write(mDay1.getPath(), "day 1\n");
+        writer.write(mDay2.getPath(), "day 2\n");
+        assertEquals("day 1\n", read(mDay1));
+        assertFalse(mDay2.exists());
+
+        // the recovered lines go to the new day, not to the last one
+        new LogUtils.MmapFileWriter(mBuffer, CAPACITY);
+        assertEquals("day 1\n", read(mDay1));
+        assertEquals("day 2\n", read(mDay2));
+    }
+
+    @Test
+    public void fullBufferIsWrittenOut() throws Exception {
+        LogUtils.MmapFileWriter writer = new LogUtils.MmapFileWriter(mBuffer, 30);
+        // flushed at a third of the capacity
+        writer.write(mDay1.getPath(), "0123456789\n");
+        assertEquals("0123456789\n", read(mDay1));
+        // longer than the buffer, written directly
+        String line = "0123456789012345678901234567890123456789\n";
+        writer.write(mDay1.getPath(), line);
+        assertEquals("0123456789\n" + line, read(mDay1));
+        writer.write(mDay1.getPath(), "tail\n");
+        new LogUtils.MmapFileWriter(mBuffer, 30);
+        assertEquals("0123456789\n" + line + "tail\n", read(mDay1));
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                os.write(buffer, 0, len);
+            }
+            return os.toString("UTF-8");
+        } finally {
+            is.close();
+        }
+    }
+}
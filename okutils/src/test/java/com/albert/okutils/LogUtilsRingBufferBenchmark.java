@@ -0,0 +1,103 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * File logging of {@link LogUtils} through the ring buffer appender and through a Runnable per line.
+ * <p>Lines per second are measured until the last line is written; allocations per line are those
+ * of the logging thread. The file output listener counts the written lines.</p>
+ * <p>Run with {@code -Dokutils.benchmark=true}.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LogUtilsRingBufferBenchmark {
+
+    private static final int LINES  = 50000;
+    private static final int ROUNDS = 3;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final AtomicInteger mWritten = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        Utils.init(RuntimeEnvironment.getApplication());
+        assumeTrue(Boolean.getBoolean("okutils.benchmark"));
+        LogUtils.getConfig()
+                .setConsoleSwitch(false)
+                .setLogHeadSwitch(false)
+                .setDir(mFolder.getRoot())
+                .setRingBufferPolicy(LogUtils.BUFFER_FULL_BLOCK)
+                .setOnFileOutputListener(new LogUtils.OnFileOutputListener() {
+                    @Override
+                    public void onFileOutput(String filePath, String content) {
+                        // skip the file header
+                        if (content.contains("/Benchmark")) mWritten.incrementAndGet();
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        LogUtils.getConfig()
+                .setConsoleSwitch(true)
+                .setLogHeadSwitch(true)
+                .setDir((File) null)
+                .setRingBufferSwitch(false)
+                .setRingBufferPolicy(LogUtils.BUFFER_FULL_DROP)
+                .setOnFileOutputListener(null);
+    }
+
+    @Test
+    public void fileLines() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean threads = bean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) bean : null;
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean print = round == ROUNDS - 1;
+
+            LogUtils.getConfig().setRingBufferSwitch(true);
+            measure(print, "ring buffer appender", threads);
+
+            LogUtils.getConfig().setRingBufferSwitch(false);
+            measure(print, "Runnable per line   ", threads);
+        }
+    }
+
+    private void measure(boolean print, String name, com.sun.management.ThreadMXBean threads)
+            throws InterruptedException {
+        long id = Thread.currentThread().getId();
+        mWritten.set(0);
+        long allocated = threads == null ? 0 : threads.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        for (int i = 0; i < LINES; i++) {
+            LogUtils.file("Benchmark", "message");
+        }
+        long bytes = threads == null ? 0 : threads.getThreadAllocatedBytes(id) - allocated;
+        long deadline = start + TimeUnit.SECONDS.toNanos(120);
+        while (mWritten.get() < LINES && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertTrue(name + " wrote " + mWritten.get(), mWritten.get() >= LINES);
+        if (print) {
+            String heap = threads == null ? "" : String.format(", %d B allocated/line", bytes / LINES);
+            System.out.printf("%s: %.0f lines/s%s%n", name, LINES / seconds, heap);
+        }
+    }
+}
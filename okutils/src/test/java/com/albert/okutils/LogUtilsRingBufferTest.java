@@ -0,0 +1,173 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A full {@link LogUtils.RingFileAppender} under each {@link LogUtils.BufferFullPolicy}.
+ * <p>The appender thread is held in the file output listener of the first line, so the ring
+ * fills up with the next lines.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LogUtilsRingBufferTest {
+
+    private static final String TAG = "RingTest";
+    private static final int CAPACITY = 4;
+    private static final int LINES = 10;
+    private static final String LINE_SEP = System.getProperty("line.separator");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final CountDownLatch mHeld = new CountDownLatch(1);
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    private LogUtils.RingFileAppender mAppender;
+
+    @Before
+    public void setUp() {
+        Utils.init(RuntimeEnvironment.getApplication());
+        LogUtils.getConfig()
+                .setDir(mFolder.getRoot())
+                .setRingBufferFlush(1, 1)
+                .setOnFileOutputListener(new LogUtils.OnFileOutputListener() {
+                    @Override
+                    public void onFileOutput(String filePath, String content) {
+                        if (mHeld.getCount() == 0) return;
+                        mHeld.countDown();
+                        try {
+                            mRelease.await();
+                        } catch (InterruptedException ignore) {
+                        }
+                    }
+                });
+        mAppender = new LogUtils.RingFileAppender(CAPACITY);
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        LogUtils.getConfig()
+                .setDir((File) null)
+                .setRingBufferFlush(1000, 32 * 1024)
+                .setRingBufferPolicy(LogUtils.BUFFER_FULL_DROP)
+                .setOnFileOutputListener(null);
+    }
+
+    @Test
+    public void dropPolicyDropsLinesOfFullRing() throws Exception {
+        LogUtils.getConfig().setRingBufferPolicy(LogUtils.BUFFER_FULL_DROP);
+        fill();
+        // the held line and three more fit
+        assertEquals(LINES - CAPACITY, mAppender.getDroppedCount());
+        mRelease.countDown();
+        String log = awaitLine("line " + (CAPACITY - 1));
+        assertLines(log, CAPACITY);
+        assertFalse(log.contains("lines dropped"));
+    }
+
+    @Test
+    public void reportPolicyWritesDroppedCount() throws Exception {
+        LogUtils.getConfig().setRingBufferPolicy(LogUtils.BUFFER_FULL_REPORT);
+        fill();
+        assertEquals(LINES - CAPACITY, mAppender.getDroppedCount());
+        mRelease.countDown();
+        String log = awaitLine("lines dropped");
+        assertLines(log, CAPACITY);
+        assertTrue(log, log.contains("log buffer is full, " + (LINES - CAPACITY) + " lines dropped"));
+        // reported once
+        assertEquals(log.indexOf("lines dropped"), log.lastIndexOf("lines dropped"));
+    }
+
+    @Test
+    public void blockPolicyWaitsForFreeSlots() throws Exception {
+        LogUtils.getConfig().setRingBufferPolicy(LogUtils.BUFFER_FULL_BLOCK);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                fill();
+            }
+        });
+        producer.start();
+        assertTrue(mHeld.await(5, TimeUnit.SECONDS));
+        producer.join(300);
+        assertTrue("producer should wait for the held appender", producer.isAlive());
+        mRelease.countDown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertEquals(0, mAppender.getDroppedCount());
+        assertLines(awaitLine("line " + (LINES - 1)), LINES);
+    }
+
+    private void fill() {
+        mAppender.append(LogUtils.D, TAG, ": ", "line 0");
+        try {
+            assertTrue(mHeld.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        for (int i = 1; i < LINES; i++) {
+            mAppender.append(LogUtils.D, TAG, ": ", "line " + i);
+        }
+    }
+
+    private static void assertLines(String log, int count) {
+        int from = 0;
+        for (int i = 0; i < LINES; i++) {
+            int index = log.indexOf(TAG + ": line " + i + LINE_SEP);
+            if (i < count) {
+                assertTrue("line " + i + " in order:\n" + log, index >= from);
+                from = index;
+            } else {
+                assertEquals("line " + i + " dropped:\n" + log, -1, index);
+            }
+        }
+    }
+
+    private static String awaitLine(String text) throws Exception {
+        File file = new File(LogUtils.getCurrentLogFilePath());
+        long deadline = System.currentTimeMillis() + 5000;
+        String log = "";
+        while (System.currentTimeMillis() < deadline) {
+            if (file.exists()) {
+                log = read(file);
+                if (log.contains(text)) return log;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("no \"" + text + "\" in " + file + ":\n" + log);
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                os.write(buffer, 0, len);
+            }
+            return os.toString("UTF-8");
+        } finally {
+            is.close();
+        }
+    }
+}
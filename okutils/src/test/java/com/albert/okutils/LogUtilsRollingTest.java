@@ -0,0 +1,160 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rolling, gzip and the directory cap of file logs, kept by the log file index.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LogUtilsRollingTest {
+
+    private static final String TAG = "RollingTest";
+    private static final long MAX_FILE_SIZE = 1000;
+    private static final long MAX_DIR_SIZE = 3000;
+    private static final int LINES = 300;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final AtomicInteger mWritten = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        Utils.init(RuntimeEnvironment.getApplication());
+        LogUtils.getConfig()
+                .setConsoleSwitch(false)
+                .setLogHeadSwitch(false)
+                .setDir(mFolder.getRoot())
+                .setMaxFileSize(MAX_FILE_SIZE)
+                .setMaxDirSize(MAX_DIR_SIZE)
+                .setCompressSwitch(true)
+                .setOnFileOutputListener(new LogUtils.OnFileOutputListener() {
+                    @Override
+                    public void onFileOutput(String filePath, String content) {
+                        if (content.contains(TAG)) mWritten.incrementAndGet();
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        LogUtils.getConfig()
+                .setConsoleSwitch(true)
+                .setLogHeadSwitch(true)
+                .setDir((File) null)
+                .setMaxFileSize(0)
+                .setMaxDirSize(0)
+                .setCompressSwitch(false)
+                .setOnFileOutputListener(null);
+    }
+
+    @Test
+    public void rollsCompressesAndCapsTheDir() throws Exception {
+        Random random = new Random(13);
+        for (int i = 0; i < LINES; i++) {
+            // random hex, so the rolled files don't shrink to nothing
+            LogUtils.file(TAG, "line " + i + " " + Long.toHexString(random.nextLong())
+                    + Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+        }
+        File current = new File(LogUtils.getCurrentLogFilePath());
+        String ext = ".txt";
+        String base = current.getPath().substring(0, current.getPath().length() - ext.length());
+
+        long deadline = System.currentTimeMillis() + 10000;
+        int last = 0;
+        for (; ; ) {
+            // the newest rolled file, compressed, and nothing rolled waits for the compressor
+            last = 0;
+            boolean pending = false;
+            for (int n = 1; ; n++) {
+                File rolled = new File(base + "." + n + ext);
+                boolean gz = new File(rolled.getPath() + ".gz").exists();
+                if (rolled.exists()) pending = true;
+                if (gz || rolled.exists()) last = n;
+                if (n > last + 64) break;
+            }
+            if (mWritten.get() == LINES && !pending && last > 0
+                    && dirSize() <= MAX_DIR_SIZE + MAX_FILE_SIZE) {
+                break;
+            }
+            assertTrue("rolled " + last + ", pending " + pending + ", written " + mWritten.get()
+                    + ", dir " + dirSize(), System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+
+        // the last line may have rolled the current file, the next one creates it again
+        LogUtils.file(TAG, "end");
+        while (mWritten.get() <= LINES && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(current.exists());
+        assertTrue(current.length() < MAX_FILE_SIZE + 200);
+        // about 30 KB of lines in 1 KB files, the oldest are gone
+        assertTrue("rolled " + last, last > 10);
+        assertFalse(new File(base + ".1" + ext + ".gz").exists());
+        // the numbers of deleted files aren't reused, so the kept ones are the newest in a row
+        int kept = 0;
+        for (int n = last; new File(base + "." + n + ext + ".gz").exists(); n--) {
+            kept++;
+        }
+        assertEquals(mFolder.getRoot().list().length - 1, kept);
+        File newest = new File(base + "." + last + ext + ".gz");
+        String unzipped = gunzip(newest);
+        assertTrue(unzipped, unzipped.contains(TAG + ": line "));
+        assertTrue(newest.length() < unzipped.length());
+        assertTrue(read(current).contains(TAG + ": end"));
+    }
+
+    private long dirSize() {
+        long size = 0;
+        File[] files = mFolder.getRoot().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    private static String gunzip(File file) throws IOException {
+        return read(new GZIPInputStream(new FileInputStream(file)));
+    }
+
+    private static String read(File file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    private static String read(InputStream is) throws IOException {
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                os.write(buffer, 0, len);
+            }
+            return os.toString("UTF-8");
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * "{}" templates of {@link LogUtils}, and the level checks which skip formatting.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LogUtilsTemplateTest {
+
+    private static final String TAG = "TemplateTest";
+    private static final String LINE_SEP = System.getProperty("line.separator");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final List<String> mConsole = new ArrayList<>();
+    private final List<String> mFile = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Utils.init(RuntimeEnvironment.getApplication());
+        LogUtils.getConfig()
+                .setConsoleSwitch(true)
+                .setBorderSwitch(false)
+                .setSingleTagSwitch(true)
+                .setLogHeadSwitch(false)
+                .setDir(mFolder.getRoot())
+                .setOnConsoleOutputListener(new LogUtils.OnConsoleOutputListener() {
+                    @Override
+                    public void onConsoleOutput(int type, String tag, String content) {
+                        if (TAG.equals(tag)) mConsole.add(content);
+                    }
+                })
+                .setOnFileOutputListener(new LogUtils.OnFileOutputListener() {
+                    @Override
+                    public void onFileOutput(String filePath, String content) {
+                        synchronized (mFile) {
+                            if (content.contains(TAG)) mFile.add(content);
+                            mFile.notifyAll();
+                        }
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        LogUtils.getConfig()
+                .setBorderSwitch(true)
+                .setLogHeadSwitch(true)
+                .setConsoleFilter(LogUtils.V)
+                .setFileFilter(LogUtils.V)
+                .setLog2FileSwitch(false)
+                .setDir((File) null)
+                .setOnConsoleOutputListener(null)
+                .setOnFileOutputListener(null);
+        ShadowLog.reset();
+    }
+
+    @Test
+    public void placeholdersTakeArgsInOrder() {
+        assertEquals("a 1 b x c", LogUtils.formatTemplate("a {} b {} c", 1, "x"));
+        assertEquals("{}", LogUtils.formatTemplate("{}"));
+        assertEquals("{} and {}", LogUtils.formatTemplate("{} and {}", (Object[]) null));
+        assertEquals("null", LogUtils.formatTemplate(null, 1));
+        assertEquals("null is null", LogUtils.formatTemplate("{} is {}", null, "null"));
+    }
+
+    @Test
+    public void tooFewArgsKeepPlaceholders() {
+        assertEquals("a 1 b {} c {}", LogUtils.formatTemplate("a {} b {} c {}", 1));
+    }
+
+    @Test
+    public void tooManyArgsAreIgnored() {
+        assertEquals("a 1", LogUtils.formatTemplate("a {}", 1, 2, "three"));
+    }
+
+    @Test
+    public void trailingThrowablePrintsStackTrace() {
+        Exception e = new IllegalStateException("boom");
+        String out = LogUtils.formatTemplate("failed {}", "load", e);
+        assertTrue(out, out.startsWith("failed load" + LINE_SEP));
+        assertTrue(out, out.contains("IllegalStateException: boom"));
+        assertTrue(out, out.contains("trailingThrowablePrintsStackTrace"));
+        // a throwable which fills a placeholder is only formatted there
+        String inline = LogUtils.formatTemplate("failed {}", e);
+        assertTrue(inline, inline.startsWith("failed java.lang.IllegalStateException: boom"));
+        assertEquals(inline, inline.indexOf("boom"), inline.lastIndexOf("boom"));
+        // a throwable which isn't the last extra arg is ignored
+        assertEquals("failed load", LogUtils.formatTemplate("failed {}", "load", e, 3));
+    }
+
+    @Test
+    public void supplierIsCalledOnlyWhenLogged() {
+        final AtomicInteger calls = new AtomicInteger();
+        LogUtils.Supplier<String> supplier = new LogUtils.Supplier<String>() {
+            @Override
+            public String get() {
+                calls.incrementAndGet();
+                return "value";
+            }
+        };
+        LogUtils.getConfig().setConsoleFilter(LogUtils.I);
+        LogUtils.dTagFormat(TAG, "debug {}", supplier);
+        assertEquals(0, calls.get());
+        assertTrue(mConsole.isEmpty());
+
+        LogUtils.iTagFormat(TAG, "info {}", supplier);
+        assertEquals(1, calls.get());
+        assertEquals(1, mConsole.size());
+        assertTrue(mConsole.get(0), mConsole.get(0).contains("info value"));
+    }
+
+    @Test
+    public void bothFiltersSkipConsoleAndFile() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        LogUtils.Supplier<String> supplier = new LogUtils.Supplier<String>() {
+            @Override
+            public String get() {
+                calls.incrementAndGet();
+                return "value";
+            }
+        };
+        LogUtils.getConfig()
+                .setLog2FileSwitch(true)
+                .setConsoleFilter(LogUtils.E)
+                .setFileFilter(LogUtils.E);
+        assertFalse(LogUtils.isLoggable(LogUtils.W));
+        LogUtils.wTagFormat(TAG, "warn {}", supplier);
+        LogUtils.file(LogUtils.W, TAG, "warn file");
+        LogUtils.wTag(TAG, "warn");
+        assertEquals(0, calls.get());
+        assertTrue(mConsole.isEmpty());
+
+        // the file is only passed by the console filter
+        LogUtils.getConfig().setConsoleFilter(LogUtils.V);
+        LogUtils.dTagFormat(TAG, "debug {}", supplier);
+        assertEquals(1, calls.get());
+        assertEquals(1, mConsole.size());
+
+        // lines are written in order by one thread, so none of the filtered lines came before this one
+        LogUtils.eTagFormat(TAG, "error {}", supplier);
+        synchronized (mFile) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (mFile.isEmpty() && System.currentTimeMillis() < deadline) {
+                mFile.wait(100);
+            }
+        }
+        assertEquals(1, mFile.size());
+        assertTrue(mFile.get(0), mFile.get(0).contains("error value"));
+    }
+}
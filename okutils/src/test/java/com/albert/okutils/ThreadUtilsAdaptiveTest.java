@@ -0,0 +1,79 @@
+package com.albert.okutils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Hill-climbing decisions of {@link ThreadUtils.AdaptiveController}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ThreadUtilsAdaptiveTest {
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final int STEP = Math.max(1, CPU_COUNT / 2);
+    private static final int MIN = CPU_COUNT + 1;
+    private static final int MAX = 8 * CPU_COUNT;
+
+    private ThreadUtils.AdaptiveController mController;
+
+    @Before
+    public void setUp() {
+        mController = new ThreadUtils.AdaptiveController("adaptive-io-test");
+    }
+
+    @Test
+    public void blockingTasksGrowThePool() {
+        ThreadUtils.PoolResizeDecision decision = decideBusy(MIN, 100, 0.9);
+        assertEquals(MIN, decision.getOldSize());
+        assertEquals(MIN + STEP, decision.getNewSize());
+        assertEquals("adaptive-io-test", decision.getName());
+    }
+
+    @Test
+    public void growthWithoutGainIsTakenBack() {
+        int grown = decideBusy(MIN, 100, 0.9).getNewSize();
+        ThreadUtils.PoolResizeDecision decision = decideBusy(grown, 104, 0.9);
+        assertEquals(grown - STEP, decision.getNewSize());
+        assertEquals("growth didn't raise throughput", decision.getReason());
+        // the step back isn't a growth, so the next interval follows the blocking ratio again
+        assertEquals(grown, decideBusy(grown - STEP, 90, 0.9).getNewSize());
+    }
+
+    @Test
+    public void growthWithGainKeepsGrowing() {
+        int grown = decideBusy(MIN, 100, 0.9).getNewSize();
+        assertEquals(grown + STEP, decideBusy(grown, 120, 0.9).getNewSize());
+    }
+
+    @Test
+    public void idlePoolShrinksByOne() {
+        int current = MIN + 2;
+        ThreadUtils.PoolResizeDecision decision = mController.decide(current, 0, current - 1, 50, 0.9, MIN, MAX);
+        assertEquals(current - 1, decision.getNewSize());
+        assertEquals("idle", decision.getReason());
+        // a busy pool with an empty queue isn't idle
+        assertEquals(current + STEP, mController.decide(current, 0, current, 50, 0.9, MIN, MAX).getNewSize());
+    }
+
+    @Test
+    public void cpuBoundTasksShrinkThePool() {
+        int current = 4 * CPU_COUNT;
+        assertEquals(current - STEP, decideBusy(current, 100, 0).getNewSize());
+    }
+
+    @Test
+    public void sizeStaysWithinLimits() {
+        assertEquals(MAX, decideBusy(MAX, 100, 0.99).getNewSize());
+        assertEquals(MIN, mController.decide(MIN, 0, 0, 0, 0, MIN, MAX).getNewSize());
+        // a growth clamped to zero isn't taken back
+        assertEquals(MAX, decideBusy(MAX, 10, 0.99).getNewSize());
+    }
+
+    private ThreadUtils.PoolResizeDecision decideBusy(int current, double throughput, double blockingRatio) {
+        return mController.decide(current, 10, current, throughput, blockingRatio, MIN, MAX);
+    }
+}
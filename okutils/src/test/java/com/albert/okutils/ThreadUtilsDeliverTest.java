@@ -0,0 +1,76 @@
+package com.albert.okutils;
+
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Delivers set by {@link ThreadUtils#setDeliver(java.util.concurrent.ExecutorService, Executor)}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ThreadUtilsDeliverTest {
+
+    private final AtomicInteger mDelivered = new AtomicInteger();
+
+    private final Executor mDeliver = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mDelivered.incrementAndGet();
+            command.run();
+        }
+    };
+
+    @After
+    public void tearDown() {
+        ThreadUtils.setDeliver(ThreadUtils.getIoPool(), null);
+    }
+
+    @Test
+    public void poolDeliverAppliesToAllPriorities() throws Exception {
+        ThreadUtils.setDeliver(ThreadUtils.getIoPool(), mDeliver);
+        run(Thread.NORM_PRIORITY);
+        run(Thread.MIN_PRIORITY);
+        run(Thread.MAX_PRIORITY);
+        assertEquals(3, mDelivered.get());
+    }
+
+    @Test
+    public void removeByAnyPriority() throws Exception {
+        ThreadUtils.setDeliver(ThreadUtils.getIoPool(Thread.MAX_PRIORITY), mDeliver);
+        ThreadUtils.setDeliver(ThreadUtils.getIoPool(Thread.MIN_PRIORITY), null);
+        run(Thread.MAX_PRIORITY);
+        assertEquals(0, mDelivered.get());
+    }
+
+    private void run(final int priority) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        ThreadUtils.executeByIo(new ThreadUtils.SimpleTask<Object>() {
+            @Override
+            public Object doInBackground() {
+                return null;
+            }
+
+            @Override
+            public void onSuccess(Object result) {
+                done.countDown();
+            }
+        }, priority);
+        // the global deliver posts to main thread
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!done.await(10, TimeUnit.MILLISECONDS) && System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+        assertEquals(0, done.getCount());
+    }
+}
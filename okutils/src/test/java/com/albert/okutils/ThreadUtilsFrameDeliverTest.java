@@ -0,0 +1,117 @@
+package com.albert.okutils;
+
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Main thread messages of {@link ThreadUtils#getFrameDeliver()}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class ThreadUtilsFrameDeliverTest {
+
+    private static final int N = 200;
+
+    // the index of the main thread message being dispatched
+    private static int sMessage;
+
+    @After
+    public void tearDown() {
+        // the budget is global, restore the default
+        ThreadUtils.setFrameDeliverBudget(4, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void eachResultPostsOneMessage() throws Exception {
+        Executor deliver = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                ThreadUtils.runOnUiThread(command);
+            }
+        };
+        Set<Integer> frames = new HashSet<>();
+        int messages = deliver(deliver, frames, 0);
+        assertEquals(N, messages);
+        assertEquals(N, frames.size());
+    }
+
+    @Test
+    public void frameDeliverPostsAboutOneMessagePerFrame() throws Exception {
+        Set<Integer> frames = new HashSet<>();
+        int messages = deliver(ThreadUtils.getFrameDeliver(), frames, 0);
+        // one post to reach main thread and one frame
+        assertEquals(1, frames.size());
+        assertTrue("messages: " + messages, messages <= 2);
+    }
+
+    @Test
+    public void frameDeliverCarriesLeftoverOverToNextFrame() throws Exception {
+        ThreadUtils.setFrameDeliverBudget(4, TimeUnit.MILLISECONDS);
+        Set<Integer> frames = new HashSet<>();
+        // each result costs 1ms, so a frame holds up to 4 of them
+        int messages = deliver(ThreadUtils.getFrameDeliver(), frames, 1);
+        assertTrue("frames: " + frames.size(), frames.size() >= N / 4 && frames.size() <= N / 2);
+        assertTrue("messages: " + messages, messages <= frames.size() + 1);
+    }
+
+    /**
+     * Complete N tasks in background and run the main looper until it is idle.
+     *
+     * @param frames Collects the messages which delivered the results.
+     * @return the number of messages dispatched in main thread
+     */
+    private static int deliver(final Executor target, final Set<Integer> frames, final long costMillis)
+            throws InterruptedException {
+        final CountDownLatch delivered = new CountDownLatch(N);
+        Executor deliver = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                target.execute(command);
+                delivered.countDown();
+            }
+        };
+        for (int i = 0; i < N; i++) {
+            ThreadUtils.executeBySingle(new ThreadUtils.SimpleTask<Integer>() {
+                @Override
+                public Integer doInBackground() {
+                    return 0;
+                }
+
+                @Override
+                public void onSuccess(Integer result) {
+                    frames.add(sMessage);
+                    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(costMillis);
+                    while (System.nanoTime() < end) {
+                        // simulate the cost of binding the result
+                    }
+                }
+            }.setDeliver(deliver));
+        }
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+
+        ShadowLooper looper = shadowOf(Looper.getMainLooper());
+        sMessage = 0;
+        while (!looper.isIdle() || !Duration.ZERO.equals(looper.getNextScheduledTaskTime())) {
+            sMessage++;
+            looper.runOneTask();
+        }
+        return sMessage;
+    }
+}
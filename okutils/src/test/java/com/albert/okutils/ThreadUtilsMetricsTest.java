@@ -0,0 +1,138 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counters and latency of {@link ThreadUtils.PoolStats}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ThreadUtilsMetricsTest {
+
+    // a fixed pool no other test uses, it is shut down at the end
+    private static final int SIZE = 11;
+    private static final String NAME = "fixed(" + SIZE + ")";
+
+    private final ExecutorService mPool = ThreadUtils.getFixedPool(SIZE);
+
+    @After
+    public void tearDown() {
+        ThreadUtils.setMetricsEnabled(false);
+        ThreadUtils.setDeliver(mPool, null);
+    }
+
+    @Test
+    public void snapshotCountsEveryOutcome() throws Exception {
+        ThreadUtils.setDeliver(mPool, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        ThreadUtils.setMetricsEnabled(true);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        mPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                sleep(20);
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            mPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+        }
+        mPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("failing runnable");
+            }
+        });
+        ThreadUtils.executeByFixed(SIZE, new ThreadUtils.SimpleTask<Object>() {
+            @Override
+            public Object doInBackground() {
+                throw new IllegalStateException("failing task");
+            }
+
+            @Override
+            public void onSuccess(Object result) {
+            }
+
+            @Override
+            public void onFail(Throwable t) {
+            }
+        });
+        ThreadUtils.SimpleTask<Object> cancelled = new ThreadUtils.SimpleTask<Object>() {
+            @Override
+            public Object doInBackground() {
+                return null;
+            }
+
+            @Override
+            public void onSuccess(Object result) {
+            }
+        };
+        cancelled.cancel();
+        ThreadUtils.executeByFixed(SIZE, cancelled);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        mPool.shutdown();
+        assertTrue(mPool.awaitTermination(5, TimeUnit.SECONDS));
+
+        // rejected after shutdown, counted only while metrics is enabled
+        ThreadUtils.setMetricsEnabled(false);
+        mPool.execute(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        ThreadUtils.setMetricsEnabled(true);
+        mPool.execute(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        ThreadUtils.PoolStats stats = findStats();
+        assertEquals(7, stats.getSubmittedCount());
+        assertEquals(4, stats.getCompletedCount());
+        assertEquals(2, stats.getFailedCount());
+        assertEquals(1, stats.getCancelledCount());
+        assertEquals(1, stats.getRejectedCount());
+        assertEquals(7, stats.getWaitLatency().getCount());
+        assertEquals(7, stats.getRunLatency().getCount());
+        assertTrue(stats.toString(), stats.getRunLatency().getMaxMicros() >= 20000);
+    }
+
+    private static ThreadUtils.PoolStats findStats() {
+        ThreadUtils.PoolStats found = null;
+        for (ThreadUtils.PoolStats stats : ThreadUtils.snapshotPoolStats()) {
+            if (NAME.equals(stats.getName())) found = stats;
+        }
+        assertNotNull(found);
+        return found;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
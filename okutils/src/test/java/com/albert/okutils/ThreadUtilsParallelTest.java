@@ -0,0 +1,158 @@
+package com.albert.okutils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * parallelForRange, parallelMap and parallelReduce of {@link ThreadUtils}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ThreadUtilsParallelTest {
+
+    // not a multiple of the chunk count, so the last chunk is shorter
+    private static final int[] SIZES = {1, 2, 7, 1001};
+
+    @Test
+    public void forRangeCoversEachIndexOnce() {
+        for (int size : SIZES) {
+            final AtomicInteger[] counts = new AtomicInteger[size];
+            for (int i = 0; i < size; i++) counts[i] = new AtomicInteger();
+            ThreadUtils.parallelForRange(0, size, new ThreadUtils.RangeConsumer() {
+                @Override
+                public void accept(int from, int to) {
+                    for (int i = from; i < to; i++) counts[i].incrementAndGet();
+                }
+            });
+            for (int i = 0; i < size; i++) {
+                assertEquals(size + ": " + i, 1, counts[i].get());
+            }
+        }
+    }
+
+    @Test
+    public void emptyRangeAndSingleChunkRunInline() {
+        final AtomicInteger calls = new AtomicInteger();
+        ThreadUtils.parallelForRange(5, 5, new ThreadUtils.RangeConsumer() {
+            @Override
+            public void accept(int from, int to) {
+                calls.incrementAndGet();
+            }
+        });
+        assertEquals(0, calls.get());
+        assertTrue(ThreadUtils.parallelMap(new ArrayList<Integer>(), square()).isEmpty());
+        assertEquals(0, ThreadUtils.parallelMap(new int[0], intSquare()).length);
+        assertEquals("x", ThreadUtils.parallelReduce(new ArrayList<String>(), "x", concat()));
+        assertEquals(7L, ThreadUtils.parallelReduce(new long[0], 7L, sum()));
+
+        final Thread caller = Thread.currentThread();
+        final Thread[] runner = new Thread[1];
+        ThreadUtils.parallelForRange(0, 1, new ThreadUtils.RangeConsumer() {
+            @Override
+            public void accept(int from, int to) {
+                runner[0] = Thread.currentThread();
+                calls.incrementAndGet();
+            }
+        });
+        assertEquals(1, calls.get());
+        assertSame(caller, runner[0]);
+    }
+
+    @Test
+    public void mapKeepsOrder() {
+        for (int size : SIZES) {
+            List<Integer> list = new ArrayList<>();
+            List<Integer> expected = new ArrayList<>();
+            int[] array = new int[size];
+            int[] expectedArray = new int[size];
+            for (int i = 0; i < size; i++) {
+                list.add(i);
+                expected.add(i * i);
+                array[i] = i;
+                expectedArray[i] = i * i;
+            }
+            assertEquals(expected, ThreadUtils.parallelMap(list, square()));
+            assertEquals(expected, ThreadUtils.parallelMap(new LinkedList<>(list), square()));
+            assertArrayEquals(expectedArray, ThreadUtils.parallelMap(array, intSquare()));
+        }
+    }
+
+    @Test
+    public void reduceAcrossChunks() {
+        for (int size : SIZES) {
+            List<String> list = new ArrayList<>();
+            StringBuilder expected = new StringBuilder();
+            long[] array = new long[size];
+            long expectedSum = 0;
+            for (int i = 0; i < size; i++) {
+                list.add(i + ",");
+                expected.append(i).append(',');
+                array[i] = i * 3L + 1;
+                expectedSum += array[i];
+            }
+            // concatenation is associative but not commutative, so any reordering shows up
+            assertEquals(expected.toString(), ThreadUtils.parallelReduce(list, "", concat()));
+            assertEquals(expected.toString(), ThreadUtils.parallelReduce(new LinkedList<>(list), "", concat()));
+            assertEquals(expectedSum, ThreadUtils.parallelReduce(array, 0L, sum()));
+            assertEquals((long) (size - 1) * 3 + 1, ThreadUtils.parallelReduce(array, Long.MIN_VALUE, max()));
+        }
+        List<String> one = Collections.singletonList("a");
+        assertEquals("a", ThreadUtils.parallelReduce(one, "", concat()));
+    }
+
+    private static ThreadUtils.Function<Integer, Integer> square() {
+        return new ThreadUtils.Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                return value * value;
+            }
+        };
+    }
+
+    private static ThreadUtils.IntMapper intSquare() {
+        return new ThreadUtils.IntMapper() {
+            @Override
+            public int map(int value) {
+                return value * value;
+            }
+        };
+    }
+
+    private static ThreadUtils.Reducer<String> concat() {
+        return new ThreadUtils.Reducer<String>() {
+            @Override
+            public String reduce(String left, String right) {
+                return left + right;
+            }
+        };
+    }
+
+    private static ThreadUtils.LongReducer sum() {
+        return new ThreadUtils.LongReducer() {
+            @Override
+            public long reduce(long left, long right) {
+                return left + right;
+            }
+        };
+    }
+
+    private static ThreadUtils.LongReducer max() {
+        return new ThreadUtils.LongReducer() {
+            @Override
+            public long reduce(long left, long right) {
+                return Math.max(left, right);
+            }
+        };
+    }
+}
@@ -0,0 +1,232 @@
+package com.albert.okutils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Chaining, combining, timeouts and cancellation of {@link ThreadUtils.Stage}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ThreadUtilsStageTest {
+
+    @Test
+    public void cancelDoesNotInterruptInlineCaller() {
+        final ThreadUtils.Stage<Integer> source = new ThreadUtils.Stage<>();
+        @SuppressWarnings("unchecked") final ThreadUtils.Stage<Integer>[] next = new ThreadUtils.Stage[1];
+        next[0] = source.thenApply(new ThreadUtils.Stage.StageFunction<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                next[0].cancel();
+                return value;
+            }
+        });
+        // the function runs inline on this thread
+        source.complete(1);
+        assertTrue(next[0].isCancelled());
+        assertFalse(Thread.interrupted());
+    }
+
+    @Test
+    public void cancelInterruptsPoolRunner() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        ThreadUtils.Stage<Void> stage = ThreadUtils.supplyAsync(ThreadUtils.getCachedPool(), new Callable<Void>() {
+            @Override
+            public Void call() {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(stage.cancel());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelKeepsForeignInterruptOfWorker() throws Exception {
+        final AtomicBoolean interruptedAfterRun = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+        Executor worker = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        command.run();
+                        interruptedAfterRun.set(Thread.currentThread().isInterrupted());
+                        done.countDown();
+                    }
+                }).start();
+            }
+        };
+        ThreadUtils.supplyAsync(worker, new Callable<Void>() {
+            @Override
+            public Void call() {
+                // as shutdownNow would do to the pool worker
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(interruptedAfterRun.get());
+    }
+
+    @Test
+    public void thenApplyOnRunsInGivenPool() throws Exception {
+        Executor named = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                new Thread(command, "stage-test").start();
+            }
+        };
+        ThreadUtils.Stage<Integer> source = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<String> next = source.thenApplyOn(named, new ThreadUtils.Stage.StageFunction<Integer, String>() {
+            @Override
+            public String apply(Integer value) {
+                return Thread.currentThread().getName() + ":" + value;
+            }
+        });
+        source.complete(3);
+        assertEquals("stage-test:3", next.get());
+    }
+
+    @Test
+    public void thenCombineWaitsForBoth() throws Exception {
+        ThreadUtils.Stage<Integer> left = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<String> right = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<String> combined = left.thenCombine(right, new ThreadUtils.Stage.StageCombiner<Integer, String, String>() {
+            @Override
+            public String combine(Integer l, String r) {
+                return l + r;
+            }
+        });
+        left.complete(1);
+        assertFalse(combined.isDone());
+        right.complete("a");
+        assertEquals("1a", combined.get());
+
+        ThreadUtils.Stage<Integer> failing = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<String> other = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<String> failed = failing.thenCombine(other, new ThreadUtils.Stage.StageCombiner<Integer, String, String>() {
+            @Override
+            public String combine(Integer l, String r) {
+                return l + r;
+            }
+        });
+        IllegalStateException error = new IllegalStateException();
+        failing.fail(error);
+        // fails without waiting for the other
+        assertSame(error, causeOf(failed));
+    }
+
+    @Test
+    public void allOfAndAnyOf() throws Exception {
+        assertTrue(ThreadUtils.allOf().isDone());
+
+        ThreadUtils.Stage<Integer> a = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<Integer> b = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<Void> all = ThreadUtils.allOf(a, b);
+        ThreadUtils.Stage<Object> any = ThreadUtils.anyOf(a, b);
+        b.complete(2);
+        assertEquals(2, any.get());
+        assertFalse(all.isDone());
+        a.complete(1);
+        assertTrue(all.isDone());
+        all.get();
+
+        ThreadUtils.Stage<Integer> c = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<Integer> d = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<Void> allFailed = ThreadUtils.allOf(c, d);
+        IllegalStateException error = new IllegalStateException();
+        d.fail(error);
+        assertSame(error, causeOf(allFailed));
+    }
+
+    @Test
+    public void timeoutFailsStageAndCancelsUpstream() throws Exception {
+        ThreadUtils.Stage<Integer> source = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<Integer> next = source.thenApply(new ThreadUtils.Stage.StageFunction<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                return value;
+            }
+        }).timeout(50, TimeUnit.MILLISECONDS);
+        assertTrue(causeOf(next) instanceof TimeoutException);
+        // the upstream is cancelled right after the stage fails, so wait for it
+        try {
+            source.get();
+            fail();
+        } catch (CancellationException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+        }
+
+        ThreadUtils.Stage<Integer> fast = new ThreadUtils.Stage<>();
+        fast.timeout(50, TimeUnit.MILLISECONDS);
+        fast.complete(1);
+        Thread.sleep(150);
+        assertEquals(1, (int) fast.get());
+    }
+
+    @Test
+    public void cancelPropagatesDownstreamAndUpstream() {
+        ThreadUtils.Stage<Integer> source = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<Integer> middle = source.thenApply(identity());
+        ThreadUtils.Stage<Integer> last = middle.thenApplyOn(ThreadUtils.getCachedPool(), identity());
+        assertTrue(source.cancel());
+        assertTrue(middle.isCancelled());
+        assertTrue(last.isCancelled());
+        assertFalse(source.complete(1));
+
+        ThreadUtils.Stage<Integer> up = new ThreadUtils.Stage<>();
+        ThreadUtils.Stage<Integer> down = up.thenApply(identity());
+        assertTrue(down.cancel());
+        assertTrue(up.isCancelled());
+        try {
+            down.get();
+            fail();
+        } catch (CancellationException expected) {
+        } catch (Exception e) {
+            fail(e.toString());
+        }
+    }
+
+    private static ThreadUtils.Stage.StageFunction<Integer, Integer> identity() {
+        return new ThreadUtils.Stage.StageFunction<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                return value;
+            }
+        };
+    }
+
+    private static Throwable causeOf(ThreadUtils.Stage<?> stage) throws InterruptedException {
+        try {
+            stage.get();
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        fail("stage succeeded");
+        return null;
+    }
+}
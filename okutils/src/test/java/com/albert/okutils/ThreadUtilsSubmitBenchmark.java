@@ -0,0 +1,139 @@
+package com.albert.okutils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Multi-threaded task submission through {@link ThreadUtils}.
+ * <p>The lookup part is compared with the synchronized nested map it replaced.</p>
+ * <p>Run with {@code -Dokutils.benchmark=true}.</p>
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ThreadUtilsSubmitBenchmark {
+
+    private static final int[] PRODUCERS = {1, 2, 4, 8};
+    private static final int LOOKUPS     = 1000000;
+    private static final int TASKS       = 20000;
+    private static final int TYPE_CPU    = -8;
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final Map<Integer, Map<Integer, ExecutorService>> mLegacyPools = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("okutils.benchmark"));
+    }
+
+    @Test
+    public void submit() throws Exception {
+        System.out.println("cores: " + Runtime.getRuntime().availableProcessors());
+        for (int round = 0; round < 3; round++) {
+            boolean print = round == 2;
+            for (int producers : PRODUCERS) {
+                long lockFree = runProducers(producers, new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < LOOKUPS; i++) {
+                            assertNotNull(ThreadUtils.getCpuPool(Thread.MIN_PRIORITY + (i & 7)));
+                        }
+                    }
+                });
+                long legacy = runProducers(producers, new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < LOOKUPS; i++) {
+                            assertNotNull(legacyLookup(Thread.MIN_PRIORITY + (i & 7)));
+                        }
+                    }
+                });
+                final CountDownLatch done = new CountDownLatch(producers * TASKS);
+                long execute = runProducers(producers, new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < TASKS; i++) {
+                            ThreadUtils.executeByCpu(new ThreadUtils.SimpleTask<Void>() {
+                                @Override
+                                public Void doInBackground() {
+                                    done.countDown();
+                                    return null;
+                                }
+
+                                @Override
+                                public void onSuccess(Void result) {
+                                }
+                            }.setDeliver(DIRECT));
+                        }
+                    }
+                });
+                assertTrue(done.await(60, TimeUnit.SECONDS));
+                if (print) {
+                    long lookups = (long) producers * LOOKUPS;
+                    System.out.printf("producers %d: lookup %.1f Mops/s (synchronized %.1f Mops/s), "
+                                    + "executeByCpu %.0f ns/op%n",
+                            producers, lookups * 1e3 / lockFree, lookups * 1e3 / legacy,
+                            (double) execute / (producers * TASKS));
+                }
+            }
+        }
+    }
+
+    private ExecutorService legacyLookup(final int priority) {
+        synchronized (mLegacyPools) {
+            Map<Integer, ExecutorService> pools = mLegacyPools.get(TYPE_CPU);
+            if (pools == null) {
+                pools = new HashMap<>();
+                mLegacyPools.put(TYPE_CPU, pools);
+            }
+            ExecutorService pool = pools.get(priority);
+            if (pool == null) {
+                pool = ThreadUtils.getCpuPool(priority);
+                pools.put(priority, pool);
+            }
+            return pool;
+        }
+    }
+
+    private static long runProducers(final int producers, final Runnable body) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    body.run();
+                }
+            });
+            threads[i].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - begin;
+    }
+}
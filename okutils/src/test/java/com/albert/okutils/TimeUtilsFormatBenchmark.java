@@ -0,0 +1,68 @@
+package com.albert.okutils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Formats 1M timestamps with a mix of patterns through {@link TimeUtils#millis2String(long, String)}
+ * and through a new {@link SimpleDateFormat} per call.
+ * <p>Run with {@code -Dokutils.benchmark=true}.</p>
+ */
+public class TimeUtilsFormatBenchmark {
+
+    private static final int COUNT  = 1000000;
+    private static final int ROUNDS = 3;
+
+    // the first three take the fast path, the rest use the cached SimpleDateFormat
+    private static final String[] PATTERNS = {
+            TimeUtils.TIME_FORMATE1, TimeUtils.TIME_FORMATE6, TimeUtils.TIME_FORMATE14,
+            TimeUtils.TIME_FORMATE2, TimeUtils.TIME_FORMATE10, TimeUtils.TIME_FORMATE15
+    };
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("okutils.benchmark"));
+    }
+
+    @Test
+    public void mixedPatterns() {
+        Random random = new Random(42);
+        long[] millis = new long[COUNT];
+        long from = 946684800000L; // 2000-01-01
+        for (int i = 0; i < COUNT; i++) {
+            millis[i] = from + (long) (random.nextDouble() * 30 * 365 * 86400000L);
+        }
+        for (int i = 0; i < 1000; i++) {
+            String pattern = PATTERNS[i % PATTERNS.length];
+            assertEquals(new SimpleDateFormat(pattern).format(new Date(millis[i])),
+                    TimeUtils.millis2String(millis[i], pattern));
+        }
+
+        double cached = 0, perCall = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            int sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < COUNT; i++) {
+                sink += TimeUtils.millis2String(millis[i], PATTERNS[i % PATTERNS.length]).length();
+            }
+            cached = (System.nanoTime() - start) / (double) COUNT;
+
+            start = System.nanoTime();
+            for (int i = 0; i < COUNT; i++) {
+                String pattern = PATTERNS[i % PATTERNS.length];
+                sink += new SimpleDateFormat(pattern).format(new Date(millis[i])).length();
+            }
+            perCall = (System.nanoTime() - start) / (double) COUNT;
+            if (sink == 0) System.out.println();
+        }
+        System.out.printf("millis2String:                 %.0f ns/op%n", cached);
+        System.out.printf("new SimpleDateFormat + format: %.0f ns/op (%.1fx)%n", perCall, perCall / cached);
+    }
+}
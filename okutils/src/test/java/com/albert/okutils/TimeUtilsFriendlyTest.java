@@ -0,0 +1,151 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Batch friendly time spans of {@link TimeUtils}, their buckets, and the items which change
+ * between two refreshes.
+ */
+public class TimeUtilsFriendlyTest {
+
+    private static final long SEC = 1000;
+    private static final long MIN = 60 * SEC;
+    private static final long HOUR = 60 * MIN;
+    private static final long DAY = 24 * HOUR;
+
+    // spans around the edges of the buckets, negative ones are in the future
+    private static final long[] EDGES = {
+            -DAY, -1500, -1000, -1, 0, 1, 999, 1000, 1001, 1999, 2000,
+            MIN - 1, MIN, MIN + 1, 2 * MIN - 1, 2 * MIN,
+            HOUR - 1, HOUR, HOUR + 1, 5 * HOUR, DAY - 1, DAY, DAY + 1, 2 * DAY, 40 * DAY
+    };
+
+    private static final long[] STEPS = {0, 1, 2, 500, 999, 1000, 1001, 2000, MIN, HOUR, 2 * DAY};
+
+    private final TimeZone mDefaultZone = TimeZone.getDefault();
+
+    private long mMidnight;
+
+    @Before
+    public void setUp() {
+        TimeZone zone = TimeZone.getTimeZone("Asia/Shanghai");
+        TimeZone.setDefault(zone);
+        TimeUtils.clearFormatCache();
+        Calendar cal = Calendar.getInstance(zone);
+        cal.clear();
+        cal.set(2024, Calendar.MARCH, 10);
+        mMidnight = cal.getTimeInMillis();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultZone);
+        TimeUtils.clearFormatCache();
+    }
+
+    @Test
+    public void changesMatchRenderingAtNext() {
+        long[] nows = {mMidnight - HOUR - 500, mMidnight - 1500, mMidnight - 1, mMidnight, mMidnight + 500,
+                mMidnight + MIN - 500, mMidnight + HOUR - 500, mMidnight + 13 * HOUR + 12345};
+        Random random = new Random(21);
+        for (long now : nows) {
+            long[] millis = new long[EDGES.length + 200];
+            for (int i = 0; i < EDGES.length; i++) {
+                millis[i] = now - EDGES[i];
+            }
+            for (int i = EDGES.length; i < millis.length; i++) {
+                millis[i] = now - (long) ((random.nextDouble() - 0.1) * 3 * DAY);
+            }
+            String[] before = TimeUtils.getFriendlyTimeSpans(millis, now);
+            for (long step : STEPS) {
+                long next = now + step;
+                String[] after = TimeUtils.getFriendlyTimeSpans(millis, next);
+                int[] changes = TimeUtils.getFriendlyTimeSpanChanges(millis, now, next);
+                for (int i = 0, c = 0; i < millis.length; i++) {
+                    boolean changed = c < changes.length && changes[c] == i;
+                    if (changed) c++;
+                    assertEquals("span " + (now - millis[i]) + " at " + now + " to " + next
+                                    + ": " + before[i] + " -> " + after[i],
+                            !before[i].equals(after[i]), changed);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void changesAreFoundAtTheExactEdge() {
+        long now = mMidnight - 10 * MIN;
+        // 刚刚 -> 1秒前, 59秒前 -> 1分钟前, 59分钟前 -> 今天, 今天 -> 昨天, future -> 刚刚
+        long[] millis = {now - 1, now - MIN + 1, now - HOUR + 1, now - 2 * HOUR, now + 1};
+        long[] edges = {now + 999, now + 1, now + 1, mMidnight, now + 1};
+        for (int i = 0; i < millis.length; i++) {
+            long[] one = {millis[i]};
+            assertEquals(0, TimeUtils.getFriendlyTimeSpanChanges(one, now, edges[i] - 1).length);
+            assertArrayEquals(new int[]{0}, TimeUtils.getFriendlyTimeSpanChanges(one, now, edges[i]));
+            assertEquals(TimeUtils.getFriendlyTimeSpans(one, now)[0], TimeUtils.getFriendlyTimeSpans(one, edges[i] - 1)[0]);
+            assertFalse(TimeUtils.getFriendlyTimeSpans(one, now)[0].equals(TimeUtils.getFriendlyTimeSpans(one, edges[i])[0]));
+        }
+        // a date never changes
+        assertEquals(0, TimeUtils.getFriendlyTimeSpanChanges(new long[]{now - 3 * DAY}, now, now + 365 * DAY).length);
+    }
+
+    @Test
+    public void bucketsMatchSpans() {
+        long now = mMidnight + 2 * HOUR;
+        long[] millis = {now + 1, now, now - 999, now - 1000, now - MIN + 1, now - MIN, now - HOUR + 1,
+                now - HOUR, mMidnight, mMidnight - 1, mMidnight - DAY, mMidnight - DAY - 1};
+        int[] expected = {TimeUtils.SPAN_FUTURE, TimeUtils.SPAN_JUST_NOW, TimeUtils.SPAN_JUST_NOW,
+                TimeUtils.SPAN_SECONDS, TimeUtils.SPAN_SECONDS, TimeUtils.SPAN_MINUTES, TimeUtils.SPAN_MINUTES,
+                TimeUtils.SPAN_TODAY, TimeUtils.SPAN_TODAY, TimeUtils.SPAN_YESTERDAY, TimeUtils.SPAN_YESTERDAY,
+                TimeUtils.SPAN_DATE};
+        assertArrayEquals(expected, TimeUtils.getFriendlyTimeSpanBuckets(millis, now, new int[millis.length]));
+        String[] spans = TimeUtils.getFriendlyTimeSpans(millis, now);
+        assertEquals("刚刚", spans[1]);
+        assertEquals("1秒前", spans[3]);
+        assertEquals("59秒前", spans[4]);
+        assertEquals("1分钟前", spans[5]);
+        assertEquals("59分钟前", spans[6]);
+        assertEquals("今天00:00", spans[8]);
+        assertEquals("昨天23:59", spans[9]);
+        assertEquals("昨天00:00", spans[10]);
+        assertEquals("2024-03-08", spans[11]);
+    }
+
+    @Test
+    public void batchMatchesByNow() {
+        Random random = new Random(22);
+        long[] millis = new long[2000];
+        for (int i = 0; i < millis.length; i++) {
+            millis[i] = System.currentTimeMillis() - (long) ((random.nextDouble() - 0.05) * 3 * DAY);
+        }
+        int checked = 0;
+        for (int i = 0; i < millis.length; i++) {
+            long[] one = {millis[i]};
+            long before = System.currentTimeMillis();
+            String byNow = TimeUtils.getFriendlyTimeSpanByNow(millis[i]);
+            long after = System.currentTimeMillis();
+            // skip the items which changed while rendering
+            if (TimeUtils.getFriendlyTimeSpanChanges(one, before, after).length > 0) continue;
+            assertEquals(TimeUtils.getFriendlyTimeSpans(one, before)[0], byNow);
+            checked++;
+        }
+        assertTrue(checked + " of " + millis.length, checked > millis.length * 0.9);
+        String[] out = new String[millis.length];
+        long now = System.currentTimeMillis();
+        assertTrue(out == TimeUtils.getFriendlyTimeSpans(millis, now, out));
+        assertArrayEquals(TimeUtils.getFriendlyTimeSpans(millis, now), out);
+        assertEquals(-1, Arrays.asList(out).indexOf(null));
+    }
+}
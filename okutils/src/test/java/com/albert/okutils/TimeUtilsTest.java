@@ -0,0 +1,254 @@
+package com.albert.okutils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Formatting and parsing of {@link TimeUtils} against {@link java.text.SimpleDateFormat}.
+ */
+public class TimeUtilsTest {
+
+    // TimeUtils.FastDateParser.UNKNOWN
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final TimeZone mDefaultZone = TimeZone.getDefault();
+
+    @After
+    public void tearDown() {
+        setDefaultZone(mDefaultZone);
+    }
+
+    @Test
+    public void safeDateFormatFollowsDefaultZone() {
+        setDefaultZone(TimeZone.getTimeZone("Asia/Shanghai"));
+        assertEquals("08:00:00", TimeUtils.getSafeDateFormat(TimeUtils.TIME_FORMATE13).format(0L));
+        setDefaultZone(TimeZone.getTimeZone("America/New_York"));
+        assertEquals("19:00:00", TimeUtils.getSafeDateFormat(TimeUtils.TIME_FORMATE13).format(0L));
+    }
+
+    @Test
+    public void fastFormatterFollowsDefaultZone() {
+        setDefaultZone(TimeZone.getTimeZone("Asia/Shanghai"));
+        assertEquals("1970-01-01 08:00:01", TimeUtils.millis2String(1000L));
+        setDefaultZone(TimeZone.getTimeZone("America/New_York"));
+        assertEquals("1969-12-31 19:00:01", TimeUtils.millis2String(1000L));
+    }
+
+    @Test
+    public void dayBoundaryFollowsDefaultZone() {
+        long now = System.currentTimeMillis();
+        setDefaultZone(TimeZone.getTimeZone("Pacific/Kiritimati"));
+        assertTrue(TimeUtils.isToday(now));
+        // UTC+14 与 UTC-11 相差 25 小时，两地的今天不会重合
+        TimeZone zone = TimeZone.getTimeZone("Pacific/Pago_Pago");
+        setDefaultZone(zone);
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(now);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        long today = cal.getTimeInMillis();
+        assertTrue(TimeUtils.isToday(today));
+        assertFalse(TimeUtils.isToday(today - 1));
+    }
+
+    @Test
+    public void defaultZoneChangeIsPickedUpWithinASecond() throws InterruptedException {
+        setDefaultZone(TimeZone.getTimeZone("Asia/Shanghai"));
+        assertEquals("1970-01-01 08:00:01", TimeUtils.millis2String(1000L));
+        // without clearFormatCache(), the default zone is compared once a second
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        Thread.sleep(1100);
+        assertEquals("1969-12-31 19:00:01", TimeUtils.millis2String(1000L));
+        assertEquals("19:00:00", TimeUtils.getSafeDateFormat(TimeUtils.TIME_FORMATE13).format(0L));
+    }
+
+    @Test
+    public void yesterdayEndsBeforeTodayStarts() {
+        setDefaultZone(TimeZone.getTimeZone("Asia/Shanghai"));
+        long today = TimeUtils.getZeroClockTimestamp(System.currentTimeMillis());
+        long yesterday = TimeUtils.getZeroClockTimestamp(today - 1);
+        assertFalse(TimeUtils.isYesterDay(today));
+        assertTrue(TimeUtils.isToday(today));
+        assertTrue(TimeUtils.isYesterDay(today - 1));
+        assertTrue(TimeUtils.isYesterDay(yesterday));
+        assertFalse(TimeUtils.isYesterDay(yesterday - 1));
+        assertEquals(today - 86400000L, yesterday);
+    }
+
+    @Test
+    public void zeroClockFollowsDaylightSaving() {
+        setDefaultZone(TimeZone.getTimeZone("America/New_York"));
+        // 2021-03-14 has 23 hours and 2021-11-07 has 25 hours in New York
+        long springNoon = 1615741200000L;  // 2021-03-14 13:00 EDT
+        long fallNoon = 1636304400000L;    // 2021-11-07 12:00 EST
+        assertEquals(1615698000000L, TimeUtils.getZeroClockTimestamp(springNoon)); // 00:00 EST
+        assertEquals(1636257600000L, TimeUtils.getZeroClockTimestamp(fallNoon));   // 00:00 EDT
+        assertEquals(23 * 3600000L, TimeUtils.getZeroClockTimestamp(springNoon + 86400000L)
+                - TimeUtils.getZeroClockTimestamp(springNoon));
+        assertEquals(25 * 3600000L, TimeUtils.getZeroClockTimestamp(fallNoon + 86400000L)
+                - TimeUtils.getZeroClockTimestamp(fallNoon));
+        Random random = new Random(20);
+        String[] zones = {"America/New_York", "Europe/London", "Australia/Lord_Howe", "America/Sao_Paulo"};
+        for (String id : zones) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            setDefaultZone(zone);
+            for (int i = 0; i < 2000; i++) {
+                long millis = 946684800000L + (long) (random.nextDouble() * 30 * 365 * 86400000L);
+                assertEquals(id + " " + millis, zeroClock(millis, zone), TimeUtils.getZeroClockTimestamp(millis));
+            }
+        }
+    }
+
+    @Test
+    public void dayOffsetsMatchCalendarDays() {
+        String[] zones = {"America/New_York", "Pacific/Kiritimati", "Pacific/Pago_Pago", "Asia/Shanghai"};
+        Random random = new Random(21);
+        for (String id : zones) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            setDefaultZone(zone);
+            long now = System.currentTimeMillis();
+            long today = zeroClock(now, zone);
+            long[] millis = new long[1000];
+            millis[0] = today;
+            millis[1] = today - 1;
+            millis[2] = now;
+            for (int i = 3; i < millis.length; i++) {
+                millis[i] = now + (long) ((random.nextDouble() - 0.5) * 2 * 800 * 86400000L);
+            }
+            int[] offsets = TimeUtils.getDayOffsets(millis);
+            assertEquals(0, offsets[0]);
+            assertEquals(-1, offsets[1]);
+            assertEquals(0, offsets[2]);
+            for (int i = 0; i < millis.length; i++) {
+                assertEquals(id + " " + millis[i], calendarDay(millis[i], zone) - calendarDay(now, zone), offsets[i]);
+            }
+        }
+    }
+
+    @Test
+    public void millis2StringMatchesSimpleDateFormat() {
+        String[] patterns = {TimeUtils.TIME_FORMATE1, TimeUtils.TIME_FORMATE6, TimeUtils.TIME_FORMATE14};
+        String[] zones = TimeZone.getAvailableIDs();
+        Random random = new Random(18);
+        for (int z = 0; z < 50; z++) {
+            setDefaultZone(TimeZone.getTimeZone(zones[random.nextInt(zones.length)]));
+            for (int i = 0; i < 2000; i++) {
+                long millis = randomMillis(random);
+                if (millis == 0) continue;
+                for (String pattern : patterns) {
+                    SimpleDateFormat sdf = new SimpleDateFormat(pattern);
+                    assertEquals(TimeZone.getDefault().getID() + " " + millis,
+                            sdf.format(new Date(millis)), TimeUtils.millis2String(millis, pattern));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parseFastMatchesSimpleDateFormat() throws ParseException {
+        String[] patterns = {TimeUtils.TIME_FORMATE1, TimeUtils.TIME_FORMATE4, TimeUtils.TIME_FORMATE6,
+                TimeUtils.TIME_FORMATE10, TimeUtils.TIME_FORMATE13, TimeUtils.TIME_FORMATE61};
+        String[] zones = TimeZone.getAvailableIDs();
+        Random random = new Random(19);
+        int formatted = 0, formattedFast = 0;
+        for (int z = 0; z < 50; z++) {
+            setDefaultZone(TimeZone.getTimeZone(zones[random.nextInt(zones.length)]));
+            for (String pattern : patterns) {
+                SimpleDateFormat sdf = new SimpleDateFormat(pattern);
+                sdf.setLenient(false);
+                for (int i = 0; i < 500; i++) {
+                    // 格式化得到的合法时间和各字段随机取值（可能越界）的时间
+                    boolean valid = random.nextBoolean();
+                    String time = valid ? sdf.format(new Date(randomMillis(random))) : randomDigits(random, pattern);
+                    long fast = TimeUtils.parseFast(time, pattern);
+                    if (valid) {
+                        formatted++;
+                        if (fast != UNKNOWN) formattedFast++;
+                    }
+                    if (fast == UNKNOWN) continue;
+                    String message = TimeZone.getDefault().getID() + " " + pattern + " " + time;
+                    assertEquals(message, sdf.parse(time).getTime(), fast);
+                    assertEquals(message, fast, TimeUtils.string2Millis(time, pattern));
+                }
+            }
+        }
+        // 范围内的合法时间绝大多数应走快速解析
+        assertTrue(formattedFast + " of " + formatted, formattedFast > formatted * 0.7);
+    }
+
+    private static void setDefaultZone(TimeZone zone) {
+        TimeZone.setDefault(zone);
+        TimeUtils.clearFormatCache();
+    }
+
+    private static long zeroClock(long millis, TimeZone zone) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(millis);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * The local date of millis as days since 1970-01-01.
+     */
+    private static long calendarDay(long millis, TimeZone zone) {
+        Calendar local = Calendar.getInstance(zone);
+        local.setTimeInMillis(millis);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(local.get(Calendar.YEAR), local.get(Calendar.MONTH), local.get(Calendar.DAY_OF_MONTH));
+        return utc.getTimeInMillis() / 86400000L;
+    }
+
+    private static String randomDigits(Random random, String pattern) {
+        StringBuilder sb = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); ) {
+            char c = pattern.charAt(i);
+            int end = i;
+            while (end < pattern.length() && pattern.charAt(end) == c) end++;
+            if (c == 'y' && end - i == 4) {
+                sb.append(1890 + random.nextInt(130));
+            } else if (Character.isLetter(c)) {
+                int max = c == 'M' ? 13 : c == 'd' ? 32 : c == 'H' ? 25 : c == 'y' ? 100 : 61;
+                int value = random.nextInt(max + 1);
+                if (value < 10) sb.append('0');
+                sb.append(value);
+            } else {
+                sb.append(pattern, i, end);
+            }
+            i = end;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 多数落在 1900 到 9999 年之间，少数超出范围走 SimpleDateFormat，
+     * 部分取同一秒附近的值以覆盖快速格式化的缓存
+     */
+    private static long randomMillis(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return (long) ((random.nextDouble() - 0.5) * 2 * 300000000000000L);
+            case 1:
+                return 1700000000000L + random.nextInt(3000);
+            default:
+                return -2208988800000L + (long) (random.nextDouble() * 8100 * 365.2425 * 86400000L);
+        }
+    }
+}
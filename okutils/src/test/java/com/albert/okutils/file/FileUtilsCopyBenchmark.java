@@ -0,0 +1,101 @@
+package com.albert.okutils.file;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Copies a 1 GB file with {@link FileUtils#copyFile(File, File)} and with an 8 KB stream loop.
+ * <p>Run with {@code -Dokutils.benchmark=true}; needs about 2 GB of free space in java.io.tmpdir.</p>
+ */
+public class FileUtilsCopyBenchmark {
+
+    private static final long SIZE   = 1024L * 1024 * 1024;
+    private static final int  ROUNDS = 3;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("okutils.benchmark"));
+    }
+
+    @Test
+    public void copy1g() throws IOException {
+        File src = mFolder.newFile("src.bin");
+        File dest = new File(mFolder.getRoot(), "dest.bin");
+        writeRandom(src);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean print = round == ROUNDS - 1;
+
+            dest.delete();
+            long cpu = threads.getCurrentThreadCpuTime();
+            long start = System.nanoTime();
+            assertTrue(FileUtils.copyFile(src, dest));
+            report(print, "FileUtils.copyFile", start, cpu, threads);
+            assertEquals(SIZE, dest.length());
+
+            dest.delete();
+            cpu = threads.getCurrentThreadCpuTime();
+            start = System.nanoTime();
+            streamCopy(src, dest);
+            report(print, "8 KB stream copy  ", start, cpu, threads);
+            assertEquals(SIZE, dest.length());
+        }
+    }
+
+    private static void report(boolean print, String name, long start, long cpu, ThreadMXBean threads) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double cpuMillis = (threads.getCurrentThreadCpuTime() - cpu) / 1e6;
+        if (print) {
+            System.out.printf("%s: %.0f MB/s, %.0f ms cpu%n", name, SIZE / 1048576.0 / seconds, cpuMillis);
+        }
+    }
+
+    private static void writeRandom(File file) throws IOException {
+        byte[] block = new byte[1024 * 1024];
+        new Random(22).nextBytes(block);
+        OutputStream os = new FileOutputStream(file);
+        try {
+            for (long written = 0; written < SIZE; written += block.length) {
+                // vary each block so the copy cannot be deduplicated
+                block[(int) (written / block.length) % block.length]++;
+                os.write(block);
+            }
+        } finally {
+            os.close();
+        }
+    }
+
+    private static void streamCopy(File src, File dest) throws IOException {
+        InputStream is = new FileInputStream(src);
+        OutputStream os = new FileOutputStream(dest);
+        try {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                os.write(buffer, 0, len);
+            }
+        } finally {
+            is.close();
+            os.close();
+        }
+    }
+}
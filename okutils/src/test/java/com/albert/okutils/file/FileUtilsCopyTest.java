@@ -0,0 +1,242 @@
+package com.albert.okutils.file;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Copies and moves of files and directories through {@link FileUtils}, with their progress.
+ */
+public class FileUtilsCopyTest {
+
+    // 早于任何复制的修改时间，重命名会保留，复制不会
+    private static final long OLD_MODIFIED = 1000000000000L;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final Random mRandom = new Random(22);
+
+    @Test
+    public void copyFileKeepsBytesAndReportsProgress() throws IOException {
+        // empty, one byte, inside one transfer chunk, and across the 8 MB chunks
+        int[] sizes = {0, 1, 300000, 8 * 1024 * 1024 + 13};
+        for (int size : sizes) {
+            File src = write(new File(mFolder.getRoot(), "src-" + size), size);
+            File dest = new File(mFolder.getRoot(), "out/dest-" + size);
+            Progress progress = new Progress();
+            assertTrue(FileUtils.copyFile(src, dest, null, progress));
+            assertArrayEquals(read(src), read(dest));
+            assertTrue(src.exists());
+            progress.assertDone(size);
+        }
+    }
+
+    @Test
+    public void moveFileRenames() throws IOException {
+        File src = write(new File(mFolder.getRoot(), "src"), 300000);
+        byte[] bytes = read(src);
+        assertTrue(src.setLastModified(OLD_MODIFIED));
+        File dest = write(new File(mFolder.getRoot(), "dir/dest"), 10);
+        Progress progress = new Progress();
+        assertTrue(FileUtils.moveFile(src, dest, null, progress));
+        assertFalse(src.exists());
+        assertArrayEquals(bytes, read(dest));
+        assertEquals(OLD_MODIFIED, dest.lastModified());
+        // one callback with the whole file
+        assertEquals(1, progress.mCount);
+        progress.assertDone(bytes.length);
+    }
+
+    @Test
+    public void replaceListenerCanKeepDestination() throws IOException {
+        File src = write(new File(mFolder.getRoot(), "src"), 100);
+        File dest = write(new File(mFolder.getRoot(), "dest"), 10);
+        byte[] old = read(dest);
+        assertTrue(FileUtils.moveFile(src, dest, new FileUtils.OnReplaceListener() {
+            @Override
+            public boolean onReplace() {
+                return false;
+            }
+        }));
+        assertTrue(src.exists());
+        assertArrayEquals(old, read(dest));
+    }
+
+    @Test
+    public void copyDirReportsTotal() throws IOException {
+        File src = new File(mFolder.getRoot(), "src");
+        long total = createTree(src, 2);
+        File dest = new File(mFolder.getRoot(), "dest");
+        Progress progress = new Progress();
+        assertTrue(FileUtils.copyDir(src, dest, null, progress));
+        assertSameTree(src, dest);
+        progress.assertDone(total);
+    }
+
+    @Test
+    public void moveDirReplacesThenRenames() throws IOException {
+        File src = new File(mFolder.getRoot(), "src");
+        long total = createTree(src, 2);
+        setModified(src);
+        File copy = new File(mFolder.getRoot(), "copy");
+        assertTrue(FileUtils.copyDir(src, copy));
+        File dest = new File(mFolder.getRoot(), "dest");
+        createTree(dest, 1);
+        write(new File(dest, "only-in-dest"), 5);
+        Progress progress = new Progress();
+        assertTrue(FileUtils.moveDir(src, dest, null, progress));
+        assertFalse(src.exists());
+        // the old content is gone, not merged
+        assertSameTree(copy, dest);
+        assertFalse(new File(dest, "only-in-dest").exists());
+        // renamed, so the files keep their modified time
+        assertEquals(OLD_MODIFIED, new File(dest, "file0").lastModified());
+        assertEquals(1, progress.mCount);
+        progress.assertDone(total);
+    }
+
+    @Test
+    public void moveDirIntoItselfFails() throws IOException {
+        File src = new File(mFolder.getRoot(), "src");
+        createTree(src, 1);
+        assertFalse(FileUtils.moveDir(src, new File(src, "inner")));
+        assertTrue(new File(src, "file0").exists());
+    }
+
+    @Test
+    public void failedCopyDeletesPartialDestination() throws IOException {
+        File src = write(new File(mFolder.getRoot(), "src"), 8 * 1024 * 1024 + 13);
+        File dest = new File(mFolder.getRoot(), "dest");
+        try {
+            FileUtils.copyFile(src, dest, null, new FileUtils.OnCopyProgressListener() {
+                @Override
+                public void onProgress(long copied, long total, long bytesPerSecond) {
+                    // fail after the first chunk is written
+                    throw new IllegalStateException("cancelled");
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("cancelled", expected.getMessage());
+        }
+        assertFalse(dest.exists());
+        assertTrue(src.exists());
+    }
+
+    private static final class Progress implements FileUtils.OnCopyProgressListener {
+        long mCount;
+        long mCopied;
+        long mTotal = -1;
+
+        @Override
+        public void onProgress(long copied, long total, long bytesPerSecond) {
+            assertTrue(copied + " after " + mCopied, copied > mCopied);
+            assertTrue(bytesPerSecond >= 0);
+            if (mTotal != -1) assertEquals(mTotal, total);
+            mCount++;
+            mCopied = copied;
+            mTotal = total;
+        }
+
+        void assertDone(long total) {
+            if (total == 0) {
+                assertEquals(0, mCopied);
+                return;
+            }
+            assertEquals(total, mTotal);
+            assertEquals(total, mCopied);
+        }
+    }
+
+    private long createTree(File dir, int depth) throws IOException {
+        long total = 0;
+        for (int i = 0; i < 3; i++) {
+            total += write(new File(dir, "file" + i), mRandom.nextInt(100000)).length();
+            if (depth > 0) {
+                total += createTree(new File(dir, "dir" + i), depth - 1);
+            }
+        }
+        return total;
+    }
+
+    private static void setModified(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                setModified(file);
+            } else {
+                assertTrue(file.setLastModified(OLD_MODIFIED));
+            }
+        }
+    }
+
+    private static void assertSameTree(File expected, File actual) throws IOException {
+        List<String> names = names(expected);
+        assertEquals(names, names(actual));
+        for (String name : names) {
+            File file = new File(expected, name);
+            if (file.isDirectory()) {
+                assertSameTree(file, new File(actual, name));
+            } else {
+                assertArrayEquals(name, read(file), read(new File(actual, name)));
+            }
+        }
+    }
+
+    private static List<String> names(File dir) {
+        String[] names = dir.list();
+        assertTrue(dir + " isn't a dir", names != null);
+        Arrays.sort(names);
+        return new ArrayList<>(Arrays.asList(names));
+    }
+
+    private File write(File file, int size) throws IOException {
+        File parent = file.getParentFile();
+        assertTrue(parent.isDirectory() || parent.mkdirs());
+        byte[] bytes = new byte[size];
+        mRandom.nextBytes(bytes);
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(bytes);
+        } finally {
+            os.close();
+        }
+        return file;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream is = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < bytes.length) {
+                int len = is.read(bytes, read, bytes.length - read);
+                if (len == -1) break;
+                read += len;
+            }
+            assertEquals(-1, is.read());
+        } finally {
+            is.close();
+        }
+        return bytes;
+    }
+}
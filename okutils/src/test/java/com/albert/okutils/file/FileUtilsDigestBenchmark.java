@@ -0,0 +1,113 @@
+package com.albert.okutils.file;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * MD5 and SHA-256 of a 2 GB file in one pass with {@link FileUtils#getFileDigests(File, String...)}
+ * and with an 8 KB stream loop.
+ * <p>Run with {@code -Dokutils.benchmark=true}; needs about 2 GB of free space in java.io.tmpdir.</p>
+ */
+public class FileUtilsDigestBenchmark {
+
+    private static final long     SIZE       = 2048L * 1024 * 1024;
+    private static final int      ROUNDS     = 2;
+    private static final String[] ALGORITHMS = {"MD5", "SHA-256"};
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("okutils.benchmark"));
+    }
+
+    @Test
+    public void digest2g() throws Exception {
+        File file = mFolder.newFile("digest.bin");
+        writeRandom(file);
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean threads = bean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) bean : null;
+        long id = Thread.currentThread().getId();
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean print = round == ROUNDS - 1;
+
+            long allocated = threads == null ? 0 : threads.getThreadAllocatedBytes(id);
+            long start = System.nanoTime();
+            byte[][] digests = FileUtils.getFileDigests(file, ALGORITHMS);
+            report(print, "FileUtils.getFileDigests", start, threads, id, allocated);
+
+            allocated = threads == null ? 0 : threads.getThreadAllocatedBytes(id);
+            start = System.nanoTime();
+            byte[][] expected = streamDigests(file);
+            report(print, "8 KB stream loop        ", start, threads, id, allocated);
+
+            for (int i = 0; i < ALGORITHMS.length; i++) {
+                assertArrayEquals(expected[i], digests[i]);
+            }
+        }
+    }
+
+    private static void report(boolean print, String name, long start,
+                               com.sun.management.ThreadMXBean threads, long id, long allocated) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (!print) return;
+        String heap = threads == null ? "" : String.format(", %d KB allocated",
+                (threads.getThreadAllocatedBytes(id) - allocated) / 1024);
+        System.out.printf("%s: %.0f MB/s%s%n", name, SIZE / 1048576.0 / seconds, heap);
+    }
+
+    private static byte[][] streamDigests(File file) throws Exception {
+        MessageDigest[] mds = new MessageDigest[ALGORITHMS.length];
+        for (int i = 0; i < mds.length; i++) {
+            mds[i] = MessageDigest.getInstance(ALGORITHMS[i]);
+        }
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                for (MessageDigest md : mds) {
+                    md.update(buffer, 0, len);
+                }
+            }
+        } finally {
+            is.close();
+        }
+        byte[][] digests = new byte[mds.length][];
+        for (int i = 0; i < mds.length; i++) {
+            digests[i] = mds[i].digest();
+        }
+        return digests;
+    }
+
+    private static void writeRandom(File file) throws IOException {
+        byte[] block = new byte[1024 * 1024];
+        new Random(25).nextBytes(block);
+        OutputStream os = new FileOutputStream(file);
+        try {
+            for (long written = 0; written < SIZE; written += block.length) {
+                block[(int) (written / block.length) % block.length]++;
+                os.write(block);
+            }
+        } finally {
+            os.close();
+        }
+    }
+}
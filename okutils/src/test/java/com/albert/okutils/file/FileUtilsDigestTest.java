@@ -0,0 +1,126 @@
+package com.albert.okutils.file;
+
+import android.os.Looper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Digests of {@link FileUtils#getFileDigests(File, String...)} against {@link MessageDigest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FileUtilsDigestTest {
+
+    private static final String[] ALGORITHMS = {"MD5", "SHA-256"};
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private long mRead;
+    private long mTotal;
+    private byte[][] mDigests;
+
+    @Test
+    public void digestsMatchMessageDigest() throws Exception {
+        // empty, inside one chunk, several chunks, the largest mapped file, and a streamed one
+        long[] sizes = {0, 1, 300000, 64L * 1024 * 1024, 64L * 1024 * 1024 + 13};
+        Random random = new Random(25);
+        for (long size : sizes) {
+            File file = mFolder.newFile("digest-" + size);
+            writeRandom(file, size, random);
+            byte[][] digests = FileUtils.getFileDigests(file, ALGORITHMS);
+            assertNotNull(digests);
+            byte[][] expected = digest(file);
+            for (int i = 0; i < ALGORITHMS.length; i++) {
+                assertArrayEquals(ALGORITHMS[i] + " of " + size + " bytes", expected[i], digests[i]);
+            }
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void procFileReportsBytesRead() throws Exception {
+        File file = new File("/proc/version");
+        assumeTrue(file.canRead() && file.length() == 0);
+        byte[][] expected = digest(file);
+        FileUtils.getFileDigestsAsync(file, new FileUtils.OnDigestListener() {
+            @Override
+            public void onProgress(long read, long total) {
+                mRead = read;
+                mTotal = total;
+            }
+
+            @Override
+            public void onSuccess(byte[][] digests) {
+                mDigests = digests;
+            }
+        }, ALGORITHMS);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (mDigests == null && System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(10);
+        }
+        assertNotNull(mDigests);
+        assertArrayEquals(expected[0], mDigests[0]);
+        assertTrue(mRead > 0);
+        assertEquals(mRead, mTotal);
+    }
+
+    private static byte[][] digest(File file) throws Exception {
+        MessageDigest[] mds = new MessageDigest[ALGORITHMS.length];
+        for (int i = 0; i < mds.length; i++) {
+            mds[i] = MessageDigest.getInstance(ALGORITHMS[i]);
+        }
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                for (MessageDigest md : mds) {
+                    md.update(buffer, 0, len);
+                }
+            }
+        } finally {
+            is.close();
+        }
+        byte[][] digests = new byte[mds.length][];
+        for (int i = 0; i < mds.length; i++) {
+            digests[i] = mds[i].digest();
+        }
+        return digests;
+    }
+
+    private static void writeRandom(File file, long size, Random random) throws IOException {
+        byte[] block = new byte[1024 * 1024];
+        OutputStream os = new FileOutputStream(file);
+        try {
+            for (long written = 0; written < size; ) {
+                random.nextBytes(block);
+                int len = (int) Math.min(block.length, size - written);
+                os.write(block, 0, len);
+                written += len;
+            }
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.albert.okutils.file;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Indexed {@link FileUtils#getDirLength(File)} against a full walk after each kind of change.
+ * <p>The recheck interval is set to a day, so the index has to follow the changes made through
+ * the utils by itself; only a change made outside the utils waits for a recheck.</p>
+ */
+public class FileUtilsDirSizeIndexTest {
+
+    private static final long DAY_MILLIS = 86400000L;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mRoot;
+    private File mIndexFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mRoot = mFolder.newFolder("root");
+        mIndexFile = new File(mFolder.getRoot(), "index/root.idx");
+        writeTree(mRoot, 2);
+        FileUtils.setDirSizeIndexRecheckInterval(DAY_MILLIS);
+        FileUtils.enableDirSizeIndex(mRoot, mIndexFile);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.disableDirSizeIndex(mRoot);
+        FileUtils.setDirSizeIndexRecheckInterval(3000);
+    }
+
+    @Test
+    public void indexFollowsChanges() throws Exception {
+        File a = new File(mRoot, "d0");
+        File b = new File(a, "d1");
+        assertIndexed();
+
+        // write
+        assertTrue(FileIOUtils.writeFileFromString(new File(b, "new.txt"), repeat('w', 3000)));
+        assertIndexed();
+        // write into a directory that doesn't exist yet
+        assertTrue(FileIOUtils.writeFileFromString(new File(a, "d9/d10/new.txt"), repeat('n', 700)));
+        assertIndexed();
+        // append
+        assertTrue(FileIOUtils.writeFileFromString(new File(b, "new.txt"), repeat('a', 1500), true));
+        assertIndexed();
+        // overwrite with a shorter content
+        assertTrue(FileIOUtils.writeFileFromString(new File(b, "new.txt"), "short"));
+        assertIndexed();
+        // delete
+        assertTrue(FileUtils.deleteFile(new File(a, "f1.txt")));
+        assertIndexed();
+        // rename
+        assertTrue(FileUtils.rename(new File(b, "new.txt"), "renamed.txt"));
+        assertIndexed();
+        // move a directory in from outside
+        File outside = mFolder.newFolder("outside");
+        writeTree(outside, 2);
+        assertTrue(FileUtils.moveDir(outside, new File(b, "moved")));
+        assertIndexed();
+        // move a directory out
+        assertTrue(FileUtils.moveDir(new File(mRoot, "d0/d1/moved/d0"), new File(mFolder.getRoot(), "out")));
+        assertIndexed();
+        // delete a directory
+        assertTrue(FileUtils.deleteDir(new File(a, "d9")));
+        assertIndexed();
+    }
+
+    @Test
+    public void fileCreatedOutsideUtilsIsFoundByRecheck() throws Exception {
+        assertIndexed();
+        writeBytes(new File(mRoot, "d0/outside.bin"), 4096);
+        FileUtils.setDirSizeIndexRecheckInterval(0);
+        assertIndexed();
+    }
+
+    @Test
+    public void reloadsFromIndexFile() throws Exception {
+        FileUtils.disableDirSizeIndex(mRoot);
+        assertTrue(!mIndexFile.exists() || mIndexFile.delete());
+        // older than the racy window, so the saved nodes keep the real last modified times
+        ageDirs(mRoot, System.currentTimeMillis() - 60000);
+        FileUtils.enableDirSizeIndex(mRoot, mIndexFile);
+        long length = assertIndexed();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!mIndexFile.isFile() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(mIndexFile.isFile());
+        FileUtils.disableDirSizeIndex(mRoot);
+
+        // appending outside the utils doesn't touch the directories, so only a length
+        // loaded from the index file still misses it
+        OutputStream os = new FileOutputStream(new File(mRoot, "d0/f1.txt"), true);
+        try {
+            os.write(new byte[100]);
+        } finally {
+            os.close();
+        }
+        FileUtils.enableDirSizeIndex(mRoot, mIndexFile);
+        assertEquals(length, FileUtils.getDirLength(mRoot));
+        assertEquals(length + 100, walkLength(mRoot));
+        File d1 = new File(mRoot, "d0/d1");
+        assertEquals(walkLength(d1), FileUtils.getDirLength(d1));
+    }
+
+    /**
+     * 检查根目录及每个子目录的索引长度与遍历长度一致
+     *
+     * @return the length of root
+     */
+    private long assertIndexed() {
+        checkDir(mRoot);
+        return walkLength(mRoot);
+    }
+
+    private static void checkDir(File dir) {
+        assertEquals(dir.getPath(), walkLength(dir), FileUtils.getDirLength(dir));
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.isDirectory()) checkDir(file);
+        }
+    }
+
+    private static long walkLength(File dir) {
+        long length = 0;
+        File[] files = dir.listFiles();
+        if (files == null) return 0;
+        for (File file : files) {
+            length += file.isDirectory() ? walkLength(file) : file.length();
+        }
+        return length;
+    }
+
+    private static void writeTree(File dir, int depth) throws IOException {
+        for (int i = 0; i < 3; i++) {
+            writeBytes(new File(dir, "f" + i + ".txt"), 100 * (i + 1) + depth);
+        }
+        if (depth == 0) return;
+        File sub = new File(dir, "d" + (2 - depth));
+        assertTrue(sub.mkdir());
+        writeTree(sub, depth - 1);
+    }
+
+    private static void ageDirs(File dir, long time) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) ageDirs(file, time);
+            }
+        }
+        assertTrue(dir.setLastModified(time));
+    }
+
+    private static void writeBytes(File file, int size) throws IOException {
+        OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(new byte[size]);
+        } finally {
+            os.close();
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
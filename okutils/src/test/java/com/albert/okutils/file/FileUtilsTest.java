@@ -0,0 +1,163 @@
+package com.albert.okutils.file;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Directory listing and walking of {@link FileUtils}.
+ * <p>Walks started on a fork/join worker fork their subdirectories, so the parallel path
+ * is covered on single core machines too.</p>
+ */
+public class FileUtilsTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void recursiveListIsPreOrderOnCallingThread() throws IOException {
+        File root = mFolder.getRoot();
+        createTree(root, 3);
+        final Thread caller = Thread.currentThread();
+        final List<File> visited = new ArrayList<>();
+        List<File> list = FileUtils.listFilesInDirWithFilter(root, new FileFilter() {
+            @Override
+            public boolean accept(File pathname) {
+                assertSame(caller, Thread.currentThread());
+                // not synchronized: the filter is called one file at a time
+                visited.add(pathname);
+                return !pathname.getName().startsWith("skip");
+            }
+        }, true);
+
+        List<File> all = new ArrayList<>();
+        preOrder(root, all);
+        assertEquals(all, visited);
+        List<File> expected = new ArrayList<>();
+        for (File file : all) {
+            if (!file.getName().startsWith("skip")) expected.add(file);
+        }
+        assertEquals(expected, list);
+        assertTrue(list.size() > 50);
+    }
+
+    @Test
+    public void cancelledWalkVisitsNothingAfterReturn() throws Exception {
+        final File root = mFolder.getRoot();
+        createTree(root, 4);
+        final int total = FileUtils.listFilesInDirWithFilter(root, new FileFilter() {
+            @Override
+            public boolean accept(File pathname) {
+                return true;
+            }
+        }, true).size();
+        for (final boolean parallel : new boolean[]{false, true}) {
+            for (final int stopAt : new int[]{1, 10, total / 2}) {
+                final AtomicInteger visits = new AtomicInteger();
+                final FileUtils.OnFileVisitor visitor = new FileUtils.OnFileVisitor() {
+                    @Override
+                    public boolean onPreVisitDir(File dir) {
+                        return visit();
+                    }
+
+                    @Override
+                    public boolean onVisitFile(File file) {
+                        return visit();
+                    }
+
+                    @Override
+                    public boolean onPostVisitDir(File dir) {
+                        return visit();
+                    }
+
+                    private boolean visit() {
+                        try {
+                            // give the other workers time to run into the cancel
+                            Thread.sleep(1);
+                        } catch (InterruptedException ignore) {
+                        }
+                        return visits.incrementAndGet() < stopAt;
+                    }
+                };
+                boolean walked = walk(parallel, new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return FileUtils.walkDir(root, visitor);
+                    }
+                });
+                assertFalse(walked);
+                int returned = visits.get();
+                Thread.sleep(50);
+                assertEquals("parallel " + parallel + ", stop at " + stopAt, returned, visits.get());
+                assertTrue(returned < total);
+                if (!parallel) assertEquals(stopAt, returned);
+            }
+        }
+    }
+
+    @Test
+    public void deleteDirRemovesDeepTreeInParallel() throws Exception {
+        final File root = new File(mFolder.getRoot(), "root");
+        assertTrue(root.mkdir());
+        createTree(root, 4);
+        // a deep chain besides the wide tree
+        File deep = new File(root, "deep");
+        for (int i = 0; i < 100; i++) {
+            deep = new File(deep, "d" + i);
+        }
+        assertTrue(deep.mkdirs());
+        assertTrue(new File(deep, "leaf").createNewFile());
+        boolean deleted = walk(true, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return FileUtils.deleteDir(root);
+            }
+        });
+        assertTrue(deleted);
+        assertFalse(root.exists());
+    }
+
+    private static boolean walk(boolean parallel, Callable<Boolean> walk) throws Exception {
+        if (!parallel) return walk.call();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            return pool.submit(walk).get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void createTree(File dir, int depth) throws IOException {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(new File(dir, (i == 0 ? "skip" : "file") + i).createNewFile());
+            if (depth > 0) {
+                File sub = new File(dir, (i == 1 ? "skip" : "dir") + "-dir" + i);
+                assertTrue(sub.mkdir());
+                createTree(sub, depth - 1);
+            }
+        }
+    }
+
+    private static void preOrder(File dir, List<File> out) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            out.add(file);
+            if (file.isDirectory()) preOrder(file, out);
+        }
+    }
+}
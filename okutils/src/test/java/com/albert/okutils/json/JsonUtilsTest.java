@@ -0,0 +1,68 @@
+package com.albert.okutils.json;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@link JsonUtils#formatJson(String, int, int)}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class JsonUtilsTest {
+
+    private static final String LINE_SEP = System.getProperty("line.separator");
+
+    @Test
+    public void formatLikeJSONObject() throws Exception {
+        String json = "{\"name\":\"okutils\",\"size\":-15,\"tags\":[\"a\",\"b\\\"c\"],"
+                + "\"empty\":{},\"list\":[],\"nested\":{\"ok\":true,\"none\":null,\"n\":[0,1,{\"x\":false}]}}";
+        assertEquals(new JSONObject(json).toString(4), JsonUtils.formatJson(json));
+    }
+
+    @Test
+    public void misplacedTokensReturnOriginal() {
+        String[] invalid = {
+                "{a b}",
+                "{\"a\" 1}",
+                "{\"a\":1,}",
+                "{\"a\":1 \"b\":2}",
+                "[1 2]",
+                "[1,,2]",
+                "[,1]",
+                "{\"a\"::1}",
+                "{:1}",
+                "{\"a\"}",
+                "[\"a\":1]",
+                "[tru]",
+                "[01]",
+                "[1.]",
+                "[-]",
+                "{\"a\":1}}",
+                "[1] 2",
+                "[{}{}]",
+        };
+        for (String json : invalid) {
+            assertSame(json, JsonUtils.formatJson(json, 4, 0));
+        }
+    }
+
+    @Test
+    public void truncateWithLineSeparator() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(i);
+        }
+        String json = sb.append(']').toString();
+        String formatted = JsonUtils.formatJson(json, 4, 50);
+        assertEquals(JsonUtils.formatJson(json, 4, 0).substring(0, 50)
+                + LINE_SEP + "... (truncated, " + json.length() + " chars in total)", formatted);
+        // the part after the limit is still validated
+        String invalid = json.substring(0, json.length() - 1) + ",]";
+        assertSame(invalid, JsonUtils.formatJson(invalid, 4, 50));
+    }
+}